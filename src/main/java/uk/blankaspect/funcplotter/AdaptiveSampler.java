@@ -0,0 +1,499 @@
+/*====================================================================*\
+
+AdaptiveSampler.java
+
+Class: adaptive sampler of functions.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import java.util.concurrent.CancellationException;
+
+import java.util.function.BooleanSupplier;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: ADAPTIVE SAMPLER OF FUNCTIONS
+
+
+/**
+ * This class refines the {@link FunctionSamples} of a function over the segments where one sample per column of a plot
+ * does not resolve the curve.  A segment that is not hidden and whose ends are finite is a candidate for refinement if
+ * <ul>
+ *   <li>the function changes by more than a few pixels over the segment (a steep segment),</li>
+ *   <li>the segment is not known to be continuous and is not drawn because the value at its midpoint does not lie
+ *       between the values at its ends, which may be a discontinuity or an extremum that is narrower than a column
+ *       (an ambiguous midpoint test), or</li>
+ *   <li>the derivatives of the function at the ends of the segment, which are computed by automatic differentiation
+ *       (see {@link Expression#evaluateDual(double)}), have opposite signs and their tangents predict an extremum that
+ *       lies more than half a pixel beyond the samples of the segment, as they do at a narrow spike.</li>
+ * </ul>
+ * <p>
+ * The first two tests use only the samples.  Derivatives are computed only at the ends of the segments that those tests
+ * flag and of the segments at whose ends the samples bend by more than half a pixel, which are the segments that may
+ * contain an extremum.  They are computed in decreasing order of the cheap estimate of the error of their segments, and
+ * each is charged to the budget below as {@link #DERIVATIVE_COST} evaluations of the function; no more than half of the
+ * budget is spent on derivatives, so that some of it is left for refinement.
+ * </p>
+ * <p>
+ * The candidates are refined in decreasing order of their estimated error in pixels until a budget of evaluations of
+ * the function is spent.  A segment is refined by bisecting it recursively, to a depth of at most {@link #MAX_DEPTH},
+ * wherever a subsegment is steep, its midpoint deviates from a straight line by more than half a pixel, or its
+ * midpoint test is ambiguous.  A subsegment at which bisection stops is drawn if the function is known to be
+ * continuous over the segment or if its midpoint test succeeds, so a spike is drawn to its extremum and a discontinuity
+ * is confined to the narrowest subsegment that contains it.
+ * </p>
+ * <p>
+ * The number of evaluations that were spent on derivatives and refinement is available from {@link
+ * #getNumExtraSamples()}; the renderer adds it to the number of samples when it measures the cost of sampling a
+ * function, and uses it to predict the cost of the next render.
+ * </p>
+ * <p>
+ * The refinement may be cancelled.  Whether it has been cancelled is tested before the derivatives of each suspect
+ * segment are computed and before each candidate is refined; if it has, the constructor throws a {@link
+ * CancellationException}.
+ * </p>
+ */
+
+class AdaptiveSampler
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum number of times that a segment is bisected. */
+	public static final		int		MAX_DEPTH	= 4;
+
+	/** The number of evaluations of the function that are charged for a derivative at a point. */
+	public static final		int		DERIVATIVE_COST	= 2;
+
+	// The change of the function, in pixels, above which a segment or subsegment is steep
+	private static final	double	STEEP_HEIGHT	= 4.0;
+
+	// The deviation, in pixels, of a predicted extremum or a midpoint above which a segment is refined
+	private static final	double	MAX_DEVIATION	= 0.5;
+
+	// The maximum number of points of a refined segment
+	private static final	int		MAX_NUM_POINTS	= (1 << MAX_DEPTH) + 1;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	FunctionSamples	samples;
+	private	Expression		expression;
+	private	double			pixelHeight;
+	private	int				budget;
+	private	int				derivativeBudget;
+	private	int				numExtraSamples;
+	private	Refinement[]	refinements;
+	private	double[]		pointTs;
+	private	double[]		pointYs;
+	private	boolean[]		pointsConnected;
+	private	int				numPoints;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an adaptive sampler that refines the specified samples.
+	 *
+	 * @param  samples
+	 *           the samples that will be refined.
+	 * @param  pixelHeight
+	 *           the height of a pixel of the plot, in units of the ordinates.
+	 * @param  budget
+	 *           the maximum number of evaluations of the function that will be spent on derivatives and refinement.
+	 * @param  cancelled
+	 *           the test of whether the refinement has been cancelled, or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the refinement is complete.
+	 */
+
+	public AdaptiveSampler(
+		FunctionSamples	samples,
+		double			pixelHeight,
+		int				budget,
+		BooleanSupplier	cancelled)
+	{
+		// Initialise instance variables
+		this.samples = samples;
+		expression = samples.getExpression();
+		this.pixelHeight = pixelHeight;
+		this.budget = budget;
+		derivativeBudget = budget / 2;
+		int numSegments = Math.max(0, samples.getNumPoints() - 1);
+		refinements = new Refinement[numSegments];
+		pointTs = new double[MAX_NUM_POINTS];
+		pointYs = new double[MAX_NUM_POINTS];
+		pointsConnected = new boolean[MAX_NUM_POINTS - 1];
+
+		// Find the segments that may need refinement from the cheap tests
+		List<Candidate> suspects = new ArrayList<>();
+		if (budget > 0)
+		{
+			for (int i = 0; i < numSegments; i++)
+			{
+				double error = estimateError(i);
+				if ((error > 0.0) || (getBend(i) > MAX_DEVIATION) || (getBend(i + 1) > MAX_DEVIATION))
+					suspects.add(new Candidate(i, error));
+			}
+		}
+
+		// Compute the derivatives at the ends of the suspect segments in decreasing order of their cheap errors while
+		// the budget allows, and find the candidates for refinement
+		suspects.sort((candidate1, candidate2) -> Double.compare(candidate2.error(), candidate1.error()));
+		double[] derivatives = new double[samples.getNumPoints()];
+		Arrays.fill(derivatives, Double.NaN);
+		boolean[] derivativesKnown = new boolean[derivatives.length];
+		List<Candidate> candidates = new ArrayList<>();
+		for (Candidate suspect : suspects)
+		{
+			if ((cancelled != null) && cancelled.getAsBoolean())
+				throw new CancellationException();
+			int index = suspect.index();
+			double error = suspect.error();
+			boolean known0 = getDerivative(index, derivatives, derivativesKnown);
+			boolean known1 = getDerivative(index + 1, derivatives, derivativesKnown);
+			if (known0 && known1)
+				error = Math.max(error, estimateExtremumError(index, derivatives[index], derivatives[index + 1]));
+			if (error > 0.0)
+				candidates.add(new Candidate(index, error));
+		}
+
+		// Refine the candidates in decreasing order of their errors until the budget is spent
+		candidates.sort((candidate1, candidate2) -> Double.compare(candidate2.error(), candidate1.error()));
+		for (Candidate candidate : candidates)
+		{
+			if (this.budget <= 0)
+				break;
+			if ((cancelled != null) && cancelled.getAsBoolean())
+				throw new CancellationException();
+			refinements[candidate.index()] = refine(candidate.index());
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static boolean isFinite(
+		double	y0,
+		double	y1)
+	{
+		return Double.isFinite(y0) && Double.isFinite(y1);
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean isBetween(
+		double	y,
+		double	y0,
+		double	y1)
+	{
+		return ((y >= y0) && (y <= y1)) || ((y >= y1) && (y <= y0)) || (y0 == y1);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the refinement of the specified segment.
+	 *
+	 * @param  index
+	 *           the index of the segment.
+	 * @return the refinement of the segment at {@code index}, or {@code null} if the segment was not refined.
+	 */
+
+	public Refinement getRefinement(
+		int	index)
+	{
+		return refinements[index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of evaluations of the function that were spent on derivatives and refinement.
+	 *
+	 * @return the number of evaluations of the function that were spent on derivatives and refinement.
+	 */
+
+	public int getNumExtraSamples()
+	{
+		return numExtraSamples;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Computes the derivative of the function at the specified point if it has not already been computed and the budget
+	 * for derivatives allows.  Returns {@code true} if the derivative is known.
+	 */
+
+	private boolean getDerivative(
+		int			index,
+		double[]	derivatives,
+		boolean[]	derivativesKnown)
+	{
+		if (!derivativesKnown[index] && (derivativeBudget > 0))
+		{
+			double y = samples.getY(index);
+			if (Double.isFinite(y))
+			{
+				derivatives[index] = expression.evaluateDual(samples.getX(index)).derivative();
+				budget -= DERIVATIVE_COST;
+				derivativeBudget -= DERIVATIVE_COST;
+				numExtraSamples += DERIVATIVE_COST;
+			}
+			derivativesKnown[index] = true;
+		}
+		return derivativesKnown[index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the bend of the samples at the specified point: the deviation, in pixels, of the sample at the point from
+	 * the line between the samples on either side of it, or zero if it cannot be measured.
+	 */
+
+	private double getBend(
+		int	index)
+	{
+		if ((index == 0) || (index == samples.getNumPoints() - 1) || samples.isHidden(index - 1)
+				|| samples.isHidden(index))
+			return 0.0;
+
+		double y0 = samples.getY(index - 1);
+		double y = samples.getY(index);
+		double y1 = samples.getY(index + 1);
+		double bend = Math.abs(y - 0.5 * (y0 + y1)) / pixelHeight;
+		return Double.isFinite(bend) ? bend : 0.0;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an estimate of the error, in pixels, of drawing the specified segment as a line between its ends from the
+	 * tests that use only the samples, or zero if the segment is not flagged by those tests.
+	 */
+
+	private double estimateError(
+		int	index)
+	{
+		double y0 = samples.getY(index);
+		double y1 = samples.getY(index + 1);
+		if (samples.isHidden(index) || !isFinite(y0, y1))
+			return 0.0;
+
+		// Steep segment
+		double error = 0.0;
+		double height = Math.abs(y1 - y0) / pixelHeight;
+		if (height > STEEP_HEIGHT)
+			error = height;
+
+		// Ambiguous midpoint test
+		double midY = samples.getMidY(index);
+		double lowerY = Math.min(y0, y1);
+		double upperY = Math.max(y0, y1);
+		if (!samples.isContinuous(index) && !samples.isConnected(index))
+		{
+			double deviation = Double.isFinite(midY)
+									? Math.max(lowerY - midY, midY - upperY) / pixelHeight
+									: height;
+			error = Math.max(error, Math.max(deviation, 1.0));
+		}
+
+		return error;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the deviation, in pixels, of the extremum that is predicted by the tangents at the ends of the specified
+	 * segment from the samples of the segment, or zero if the tangents do not predict an extremum or the deviation is
+	 * not greater than {@link #MAX_DEVIATION}.
+	 */
+
+	private double estimateExtremumError(
+		int		index,
+		double	d0,
+		double	d1)
+	{
+		double y0 = samples.getY(index);
+		double y1 = samples.getY(index + 1);
+		if (samples.isHidden(index) || !isFinite(y0, y1) || !isFinite(d0, d1)
+				|| !(((d0 > 0.0) && (d1 < 0.0)) || ((d0 < 0.0) && (d1 > 0.0))))
+			return 0.0;
+
+		double lowerY = Math.min(y0, y1);
+		double upperY = Math.max(y0, y1);
+		double midY = samples.getMidY(index);
+		if (Double.isFinite(midY))
+		{
+			lowerY = Math.min(lowerY, midY);
+			upperY = Math.max(upperY, midY);
+		}
+		double delta = samples.getDelta();
+		double t = Math.min(Math.max(0.0, (y1 - y0 - d1 * delta) / (d0 - d1)), delta);
+		double extremumY = y0 + d0 * t;
+		double deviation = Math.max(lowerY - extremumY, extremumY - upperY) / pixelHeight;
+		return (deviation > MAX_DEVIATION) ? deviation : 0.0;
+	}
+
+	//------------------------------------------------------------------
+
+	private Refinement refine(
+		int	index)
+	{
+		// Initialise the points of the refinement with the start of the segment
+		double y0 = samples.getY(index);
+		pointTs[0] = 0.0;
+		pointYs[0] = y0;
+		numPoints = 1;
+
+		// Bisect the segment
+		bisect(samples.getX(index), samples.getDelta(), 0.0, y0, 1.0, samples.getY(index + 1), samples.getMidY(index),
+			   samples.isContinuous(index), 0);
+
+		// Create the refinement from the points
+		return new Refinement(Arrays.copyOf(pointTs, numPoints), Arrays.copyOf(pointYs, numPoints),
+							  Arrays.copyOf(pointsConnected, numPoints - 1));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Bisects the subsegment between the specified fractions of a segment recursively, and appends the points of the
+	 * subsegment after its start to the points of the refinement.
+	 */
+
+	private void bisect(
+		double		x,
+		double		delta,
+		double		t0,
+		double		y0,
+		double		t1,
+		double		y1,
+		double		midY,
+		boolean		continuous,
+		int			depth)
+	{
+		// Evaluate the function at the midpoint of the subsegment if it is not known and the budget allows
+		double t = 0.5 * (t0 + t1);
+		boolean midpointKnown = !Double.isNaN(midY);
+		if (!midpointKnown && (budget > 0) && (depth < MAX_DEPTH))
+		{
+			midY = expression.evaluate(x + t * delta);
+			--budget;
+			++numExtraSamples;
+			midpointKnown = true;
+		}
+
+		// Bisect the subsegment if it is not resolved
+		if (midpointKnown && (depth < MAX_DEPTH))
+		{
+			boolean ambiguous = !continuous && !isBetween(midY, y0, y1);
+			boolean steep = isFinite(y0, y1) && (Math.abs(y1 - y0) / pixelHeight > STEEP_HEIGHT);
+			boolean curved = Double.isFinite(midY) && isFinite(y0, y1)
+								&& (Math.abs(midY - 0.5 * (y0 + y1)) / pixelHeight > MAX_DEVIATION);
+			if (ambiguous || steep || curved)
+			{
+				bisect(x, delta, t0, y0, t, midY, Double.NaN, continuous, depth + 1);
+				bisect(x, delta, t, midY, t1, y1, Double.NaN, continuous, depth + 1);
+				return;
+			}
+		}
+
+		// Append the end of the subsegment, which is drawn if the function is continuous over it or if its midpoint
+		// test succeeds.  If the midpoint is not known because the budget is spent, the subsegment is drawn unless it
+		// is steep.
+		pointTs[numPoints] = t1;
+		pointYs[numPoints] = y1;
+		pointsConnected[numPoints - 1] = isFinite(y0, y1)
+											&& (continuous
+												|| (midpointKnown
+														? isBetween(midY, y0, y1)
+														: (Math.abs(y1 - y0) / pixelHeight <= STEEP_HEIGHT)));
+		++numPoints;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: REFINEMENT OF A SEGMENT
+
+
+	/**
+	 * This record holds the refinement of a segment of a {@link FunctionSamples}: a sequence of points from the start
+	 * of the segment to its end, and the decision whether each subsegment between adjacent points is drawn.
+	 *
+	 * @param ts
+	 *          the positions of the points as fractions of the segment, from 0 at its start to 1 at its end.
+	 * @param ys
+	 *          the values of the function at the points.
+	 * @param connected
+	 *          the decisions whether the subsegments are drawn.  Subsegment <i>k</i> lies between points <i>k</i> and
+	 *          <i>k</i> + 1.
+	 */
+
+	record Refinement(
+		double[]	ts,
+		double[]	ys,
+		boolean[]	connected)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: CANDIDATE FOR REFINEMENT
+
+
+	/**
+	 * This record holds a segment that is a candidate for refinement and an estimate of the error of drawing it as a
+	 * line between its ends.
+	 *
+	 * @param index
+	 *          the index of the segment.
+	 * @param error
+	 *          the estimated error, in pixels.
+	 */
+
+	private record Candidate(
+		int		index,
+		double	error)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
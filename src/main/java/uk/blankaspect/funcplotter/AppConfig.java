@@ -65,6 +65,8 @@ import uk.blankaspect.ui.swing.filechooser.FileChooserUtils;
 
 import uk.blankaspect.ui.swing.font.FontEx;
 
+import uk.blankaspect.ui.swing.image.PngEncoder;
+
 import uk.blankaspect.ui.swing.text.TextRendering;
 
 //----------------------------------------------------------------------
@@ -132,10 +134,13 @@ class AppConfig
 	private interface Key
 	{
 		String	APPEARANCE						= "appearance";
+		String	ADAPTIVE_SAMPLE_BUDGET			= "adaptiveSampleBudget";
+		String	APPROXIMATE_MATH				= "approximateMath";
 		String	AXIS							= "axis";
 		String	BACKGROUND						= "background";
 		String	CLEAR_EDIT_LIST_ON_SAVE			= "clearEditListOnSave";
 		String	COLOUR							= "colour";
+		String	COMPILE_EXPRESSIONS				= "compileExpressions";
 		String	CONFIGURATION					= FuncPlotterApp.NAME_KEY + "Configuration";
 		String	DEFAULT_FILE_KIND				= "defaultFileKind";
 		String	DIRECTORY						= "directory";
@@ -146,6 +151,8 @@ class AppConfig
 		String	GENERAL							= "general";
 		String	GRID							= "grid";
 		String	IMAGE_MARGIN					= "imageMargin";
+		String	IMAGE_SCALE						= "imageScale";
+		String	INTERACTION_COLUMN_STEP			= "interactionColumnStep";
 		String	LIST_SIZE						= "listSize";
 		String	LOOK_AND_FEEL					= "lookAndFeel";
 		String	MAIN_WINDOW_LOCATION			= "mainWindowLocation";
@@ -156,6 +163,8 @@ class AppConfig
 		String	NUM_Y_SCALE_DIGITS				= "numYScaleDigits";
 		String	OBSCURED_COLOUR					= "obscuredColour";
 		String	PLOT							= "plot";
+		String	PNG_COMPRESSION_LEVEL			= "pngCompressionLevel";
+		String	PNG_FILTER_STRATEGY				= "pngFilterStrategy";
 		String	SAVE_FUNCTION_COLOURS			= "saveFunctionColours";
 		String	SCALE							= "scale";
 		String	SELECT_TEXT_ON_FOCUS_GAINED		= "selectTextOnFocusGained";
@@ -1605,6 +1614,359 @@ class AppConfig
 	//==================================================================
 
 
+	// PROPERTY CLASS: COMPILE EXPRESSIONS
+
+
+	private class CPCompileExpressions
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPCompileExpressions()
+		{
+			super(concatenateKeys(Key.PLOT, Key.COMPILE_EXPRESSIONS));
+			value = true;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isCompileExpressions()
+	{
+		return cpCompileExpressions.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setCompileExpressions(boolean value)
+	{
+		cpCompileExpressions.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPCompileExpressions	cpCompileExpressions	= new CPCompileExpressions();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: APPROXIMATE MATH
+
+
+	private class CPApproximateMath
+		extends Property.BooleanProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPApproximateMath()
+		{
+			super(concatenateKeys(Key.PLOT, Key.APPROXIMATE_MATH));
+			value = false;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public boolean isApproximateMath()
+	{
+		return cpApproximateMath.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setApproximateMath(boolean value)
+	{
+		cpApproximateMath.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPApproximateMath	cpApproximateMath	= new CPApproximateMath();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: INTERACTION COLUMN STEP
+
+
+	private class CPInteractionColumnStep
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPInteractionColumnStep()
+		{
+			super(concatenateKeys(Key.PLOT, Key.INTERACTION_COLUMN_STEP), PlotPanel.MIN_INTERACTION_COLUMN_STEP,
+				  PlotPanel.MAX_INTERACTION_COLUMN_STEP);
+			value = 4;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getInteractionColumnStep()
+	{
+		return cpInteractionColumnStep.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setInteractionColumnStep(int value)
+	{
+		cpInteractionColumnStep.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPInteractionColumnStep	cpInteractionColumnStep	= new CPInteractionColumnStep();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: IMAGE SCALE
+
+
+	private class CPImageScale
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPImageScale()
+		{
+			super(concatenateKeys(Key.PLOT, Key.IMAGE_SCALE), PlotPanel.MIN_IMAGE_SCALE, PlotPanel.MAX_IMAGE_SCALE);
+			value = 1;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getImageScale()
+	{
+		return cpImageScale.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setImageScale(int value)
+	{
+		cpImageScale.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPImageScale	cpImageScale	= new CPImageScale();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: ADAPTIVE SAMPLE BUDGET
+
+
+	private class CPAdaptiveSampleBudget
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPAdaptiveSampleBudget()
+		{
+			super(concatenateKeys(Key.PLOT, Key.ADAPTIVE_SAMPLE_BUDGET), PlotPanel.MIN_ADAPTIVE_SAMPLE_BUDGET,
+				  PlotPanel.MAX_ADAPTIVE_SAMPLE_BUDGET);
+			value = 2 * PlotPanel.MAX_PLOT_WIDTH;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getAdaptiveSampleBudget()
+	{
+		return cpAdaptiveSampleBudget.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setAdaptiveSampleBudget(int value)
+	{
+		cpAdaptiveSampleBudget.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPAdaptiveSampleBudget	cpAdaptiveSampleBudget	= new CPAdaptiveSampleBudget();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: PNG COMPRESSION LEVEL
+
+
+	private class CPPngCompressionLevel
+		extends Property.IntegerProperty
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPPngCompressionLevel()
+		{
+			super(concatenateKeys(Key.PLOT, Key.PNG_COMPRESSION_LEVEL), PngEncoder.MIN_COMPRESSION_LEVEL,
+				  PngEncoder.MAX_COMPRESSION_LEVEL);
+			value = PngEncoder.DEFAULT_COMPRESSION_LEVEL;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public int getPngCompressionLevel()
+	{
+		return cpPngCompressionLevel.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setPngCompressionLevel(int value)
+	{
+		cpPngCompressionLevel.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPPngCompressionLevel	cpPngCompressionLevel	= new CPPngCompressionLevel();
+
+	//==================================================================
+
+
+	// PROPERTY CLASS: PNG FILTER STRATEGY
+
+
+	private class CPPngFilterStrategy
+		extends Property.EnumProperty<PngEncoder.FilterStrategy>
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private CPPngFilterStrategy()
+		{
+			super(concatenateKeys(Key.PLOT, Key.PNG_FILTER_STRATEGY), PngEncoder.FilterStrategy.class);
+			value = PngEncoder.FilterStrategy.ADAPTIVE;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance methods : associated methods in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	public PngEncoder.FilterStrategy getPngFilterStrategy()
+	{
+		return cpPngFilterStrategy.getValue();
+	}
+
+	//------------------------------------------------------------------
+
+	public void setPngFilterStrategy(PngEncoder.FilterStrategy value)
+	{
+		cpPngFilterStrategy.setValue(value);
+	}
+
+	//------------------------------------------------------------------
+
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+//  Instance variables : associated variables in enclosing class
+//::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::::
+
+	private	CPPngFilterStrategy	cpPngFilterStrategy	= new CPPngFilterStrategy();
+
+	//==================================================================
+
+
 	// PROPERTY CLASS: PLOT FOCUSED BORDER COLOUR
 
 
@@ -0,0 +1,307 @@
+/*====================================================================*\
+
+ApproximateMathFunctions.java
+
+Class: approximate mathematical functions.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: APPROXIMATE MATHEMATICAL FUNCTIONS
+
+
+/**
+ * This class provides cheap approximations to the logarithmic functions of {@link Expression} and to the inverse
+ * hyperbolic functions, which are derived from the natural logarithm.  The approximations are used to evaluate an
+ * expression when it is plotted, where the values of the expression need to be accurate only to a fraction of the
+ * height of a pixel; they must not be used where a value is displayed or exported.
+ * <p>
+ * The natural logarithm splits its argument into a power of two and a mantissa, divides the mantissa by the nearest of
+ * 128 tabulated values by multiplying by a tabulated reciprocal, and evaluates a truncated Taylor series of ln(1 +
+ * <i>r</i>) of the small quotient <i>r</i>.  The degree of the series is chosen by the {@linkplain Accuracy accuracy}
+ * of an evaluation, which is the coarsest one whose bound on the error is below the resolution that the plot
+ * requires (see {@link #getAccuracy(double, double, double)}).  The error of an approximation is no greater than the
+ * bound of its accuracy multiplied by the larger of 1 and the magnitude of the exact result.
+ * </p>
+ * <p>
+ * Special values (NaN, infinities, zeros and subnormal numbers) are passed to {@link Math#log(double)}, so the
+ * approximations have the same domains as the exact functions in {@link MathFunctions}.
+ * </p>
+ * <p>
+ * Only the functions that are markedly faster than the corresponding methods of {@link Math} are approximated.  The
+ * sine, cosine and tangent of {@link Math} are intrinsics that a polynomial approximation with the same reduction of
+ * the argument did not beat even at low degree, and an approximation to the exponential function, from which the
+ * hyperbolic functions were derived, was no faster than {@link Math#exp(double)}; those functions are always
+ * evaluated exactly.
+ * </p>
+ */
+
+class ApproximateMathFunctions
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	// The number of subintervals of an octave in the tables of the logarithm
+	private static final	int		LOG_TABLE_BITS		= 7;
+	private static final	int		LOG_TABLE_LENGTH	= 1 << LOG_TABLE_BITS;
+
+	// Coefficients of the Taylor series of ln(1 + r) for |r| <= 1/256
+	private static final	double	L2	= -1.0 / 2.0;
+	private static final	double	L3	= 1.0 / 3.0;
+	private static final	double	L4	= -1.0 / 4.0;
+	private static final	double	L5	= 1.0 / 5.0;
+
+	private static final	double	LN_2		= Math.log(2.0);
+	private static final	double	RECIP_LN_10	= 1.0 / Math.log(10.0);
+
+	private static final	int		DOUBLE_MANTISSA_BITS	= 52;
+	private static final	long	DOUBLE_MANTISSA_MASK	= (1L << DOUBLE_MANTISSA_BITS) - 1;
+	private static final	int		DOUBLE_EXPONENT_BIAS	= 1023;
+
+	// Reciprocals of the midpoints of the subintervals [1 + j/128, 1 + (j+1)/128) of the mantissa, and the logarithms of
+	// the midpoints, for 0 <= j < 128
+	private static final	double[]	LOG_RECIPROCALS;
+	private static final	double[]	LOG_TABLE;
+
+////////////////////////////////////////////////////////////////////////
+//  Static initialiser
+////////////////////////////////////////////////////////////////////////
+
+	static
+	{
+		LOG_RECIPROCALS = new double[LOG_TABLE_LENGTH];
+		LOG_TABLE = new double[LOG_TABLE_LENGTH];
+		for (int i = 0; i < LOG_TABLE_LENGTH; i++)
+		{
+			double reciprocal = 1.0 / (1.0 + ((double)i + 0.5) / (double)LOG_TABLE_LENGTH);
+			LOG_RECIPROCALS[i] = reciprocal;
+			LOG_TABLE[i] = -Math.log(reciprocal);
+		}
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private ApproximateMathFunctions()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the coarsest accuracy of the approximations of this class with which values in the specified interval can
+	 * be plotted with the specified resolution.  The test assumes that the errors of the approximations are not
+	 * amplified by the operations of the expression that is plotted.
+	 *
+	 * @param  lower
+	 *           the lower bound of the interval of values that are plotted.
+	 * @param  upper
+	 *           the upper bound of the interval of values that are plotted.
+	 * @param  resolution
+	 *           the smallest difference between two values that must be distinguished.
+	 * @return the coarsest accuracy whose error is less than {@code resolution} for any value in the interval [{@code
+	 *         lower}, {@code upper}], or {@code null} if no accuracy is fine enough.
+	 */
+
+	public static Accuracy getAccuracy(
+		double	lower,
+		double	upper,
+		double	resolution)
+	{
+		double scale = Math.max(1.0, Math.max(Math.abs(lower), Math.abs(upper)));
+		for (Accuracy accuracy : Accuracy.values())
+		{
+			if (accuracy.maxError * scale < resolution)
+				return accuracy;
+		}
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an approximation to the natural logarithm of the specified value.
+	 *
+	 * @param  x
+	 *           the argument of the logarithm.
+	 * @param  degree
+	 *           the degree of the Taylor series of ln(1 + <i>r</i>): the {@linkplain Accuracy#getDegree() degree} of an
+	 *           accuracy.
+	 * @return an approximation to the natural logarithm of {@code x}.
+	 */
+
+	public static double log(
+		double	x,
+		int		degree)
+	{
+		if (!(x >= Double.MIN_NORMAL) || (x == Double.POSITIVE_INFINITY))
+			return Math.log(x);
+
+		// Split argument into exponent and mantissa: x = 2^e * m, where 1 <= m < 2
+		long bits = Double.doubleToRawLongBits(x);
+		int e = (int)(bits >>> DOUBLE_MANTISSA_BITS) - DOUBLE_EXPONENT_BIAS;
+		double m = Double.longBitsToDouble((bits & DOUBLE_MANTISSA_MASK) | ((long)DOUBLE_EXPONENT_BIAS
+																			<< DOUBLE_MANTISSA_BITS));
+
+		// ln(x) = e * ln(2) + ln(c) + ln(1 + r), where c is the midpoint of the subinterval that contains m and
+		// r = m/c - 1
+		int j = (int)((bits & DOUBLE_MANTISSA_MASK) >>> (DOUBLE_MANTISSA_BITS - LOG_TABLE_BITS));
+		double r = m * LOG_RECIPROCALS[j] - 1.0;
+		double p = switch (degree)
+		{
+			case 2  -> r + r * r * L2;
+			case 3  -> r + r * r * (L2 + r * L3);
+			default -> r + r * r * (L2 + r * (L3 + r * (L4 + r * L5)));
+		};
+		return ((double)e * LN_2 + LOG_TABLE[j]) + p;
+	}
+
+	//------------------------------------------------------------------
+
+	public static double log10(
+		double	x,
+		int		degree)
+	{
+		return log(x, degree) * RECIP_LN_10;
+	}
+
+	//------------------------------------------------------------------
+
+	public static double acosh(
+		double	x,
+		int		degree)
+	{
+		return (x < 1.0) ? Double.NaN : log(x + Math.sqrt(x * x - 1.0), degree);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double asinh(
+		double	x,
+		int		degree)
+	{
+		return log(x + Math.sqrt(x * x + 1.0), degree);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double atanh(
+		double	x,
+		int		degree)
+	{
+		return ((x >= -1.0) && (x <= 1.0)) ? 0.5 * log((1.0 + x) / (1.0 - x), degree) : Double.NaN;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: ACCURACIES OF THE APPROXIMATIONS
+
+
+	/**
+	 * This is an enumeration of the accuracies of the approximations, from the coarsest to the finest.  An accuracy
+	 * determines the degree of the Taylor series of ln(1 + <i>r</i>) for |<i>r</i>| &le; 1/256, whose truncation error
+	 * is at most 2<sup>-8(<i>n</i>+1)</sup>/(<i>n</i> + 1) for degree <i>n</i>, and bounds the error of an
+	 * approximation with a margin for rounding.
+	 */
+
+	enum Accuracy
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		LOW
+		(
+			2, 3.0e-8
+		),
+
+		MEDIUM
+		(
+			3, 1.0e-10
+		),
+
+		HIGH
+		(
+			5, 1.0e-14
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int		degree;
+		private	double	maxError;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Accuracy(
+			int		degree,
+			double	maxError)
+		{
+			this.degree = degree;
+			this.maxError = maxError;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Returns the degree of the Taylor series that is evaluated with this accuracy.
+		 *
+		 * @return the degree of the Taylor series that is evaluated with this accuracy.
+		 */
+
+		public int getDegree()
+		{
+			return degree;
+		}
+
+		//--------------------------------------------------------------
+
+		/**
+		 * Returns the bound on the error of an approximation with this accuracy, relative to the larger of 1 and the
+		 * magnitude of the result.
+		 *
+		 * @return the bound on the error of an approximation with this accuracy.
+		 */
+
+		public double getMaxError()
+		{
+			return maxError;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,376 @@
+/*====================================================================*\
+
+BandedImage.java
+
+Class: image that is rendered in horizontal bands.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+
+import java.util.Vector;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: IMAGE THAT IS RENDERED IN HORIZONTAL BANDS
+
+
+/**
+ * This class implements an RGB image that is not held in memory but is rendered on demand, one horizontal band at a
+ * time, by an {@linkplain IRenderer renderer}.  The bands are the tiles of the image: each band spans the width of the
+ * image, and its height is chosen so that a band has no more than {@link #MAX_BAND_AREA} pixels.  Only the most
+ * recently rendered band is retained, so the memory that an image occupies is bounded however tall it is.
+ * <p>
+ * An image is intended to be read from top to bottom by a consumer such as an image writer, which requests one row or
+ * a few rows at a time with {@link #getData(Rectangle)}; each band is then rendered only once.  A band is rendered
+ * again if it is requested after another band.
+ * </p>
+ * <p>
+ * This class is not thread-safe.
+ * </p>
+ */
+
+class BandedImage
+	implements RenderedImage
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The maximum number of pixels in a band. */
+	public static final		int		MAX_BAND_AREA	= 1 << 22;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int				width;
+	private	int				height;
+	private	int				bandHeight;
+	private	IRenderer		renderer;
+	private	BufferedImage	band;
+	private	int				bandIndex;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an image that is rendered in horizontal bands.
+	 *
+	 * @param width
+	 *          the width of the image.
+	 * @param height
+	 *          the height of the image.
+	 * @param renderer
+	 *          the renderer that draws the bands of the image.
+	 */
+
+	public BandedImage(
+		int			width,
+		int			height,
+		IRenderer	renderer)
+	{
+		// Initialise instance variables
+		this.width = width;
+		this.height = height;
+		this.renderer = renderer;
+		bandHeight = Math.max(1, Math.min(height, MAX_BAND_AREA / width));
+		band = new BufferedImage(width, bandHeight, BufferedImage.TYPE_INT_RGB);
+		bandIndex = -1;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : RenderedImage interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public Vector<RenderedImage> getSources()
+	{
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public Object getProperty(
+		String	name)
+	{
+		return Image.UndefinedProperty;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public String[] getPropertyNames()
+	{
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public ColorModel getColorModel()
+	{
+		return band.getColorModel();
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public SampleModel getSampleModel()
+	{
+		return band.getSampleModel();
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getWidth()
+	{
+		return width;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getHeight()
+	{
+		return height;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getMinX()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getMinY()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getNumXTiles()
+	{
+		return 1;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getNumYTiles()
+	{
+		return (height + bandHeight - 1) / bandHeight;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getMinTileX()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getMinTileY()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getTileWidth()
+	{
+		return width;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getTileHeight()
+	{
+		return bandHeight;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getTileGridXOffset()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int getTileGridYOffset()
+	{
+		return 0;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The raster of the tile shares the buffer of the band, so its pixels are valid only until another band is
+	 * rendered.
+	 * </p>
+	 */
+
+	@Override
+	public Raster getTile(
+		int	tileX,
+		int	tileY)
+	{
+		return getBand(tileY);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public Raster getData()
+	{
+		return getData(new Rectangle(0, 0, width, height));
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public Raster getData(
+		Rectangle	rect)
+	{
+		WritableRaster raster = band.getRaster().createCompatibleWritableRaster(rect.x, rect.y, rect.width,
+																				  rect.height);
+		return copyData(raster);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public WritableRaster copyData(
+		WritableRaster	raster)
+	{
+		if (raster == null)
+			raster = band.getRaster().createCompatibleWritableRaster(width, height);
+
+		// Copy the intersection of each band with the raster
+		int startIndex = Math.max(0, raster.getMinY()) / bandHeight;
+		int endIndex = Math.min(height, raster.getMinY() + raster.getHeight());
+		for (int i = startIndex; i * bandHeight < endIndex; i++)
+			raster.setRect(getBand(i));
+		return raster;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the raster of the band at the specified index, rendering the band if it is not the most recently rendered
+	 * one.  The coordinates of the raster are those of the band in the image.
+	 */
+
+	private Raster getBand(
+		int	index)
+	{
+		int y = index * bandHeight;
+		if (bandIndex != index)
+		{
+			bandIndex = -1;
+			Graphics2D gr = band.createGraphics();
+			try
+			{
+				gr.translate(0, -y);
+				gr.clipRect(0, y, width, bandHeight);
+				renderer.render(gr);
+			}
+			finally
+			{
+				gr.dispose();
+			}
+			bandIndex = index;
+		}
+		return band.getRaster().createTranslatedChild(0, y);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
+
+
+	// INTERFACE: RENDERER OF THE BANDS OF AN IMAGE
+
+
+	/**
+	 * This functional interface defines the method that is called to render a band of a {@link BandedImage}.
+	 */
+
+	@FunctionalInterface
+	interface IRenderer
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Renders the part of the image that lies within the clip of the specified graphics context.  The coordinates
+		 * of the graphics context are those of the image, and its clip is the bounds of a band.
+		 *
+		 * @param gr
+		 *          the graphics context in which the band will be rendered.
+		 */
+
+		void render(
+			Graphics2D	gr);
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,310 @@
+/*====================================================================*\
+
+ColumnCache.java
+
+Class: cache of the values of subexpressions at samples.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.CancellationException;
+
+import java.util.function.BooleanSupplier;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: CACHE OF THE VALUES OF SUBEXPRESSIONS AT SAMPLES
+
+
+/**
+ * This class caches the values of the column subexpressions of a specialised expression (see {@link PartialEvaluator})
+ * at the samples of a {@link FunctionSamples}, which are the points and the midpoints of the segments between adjacent
+ * points.  Sample <i>j</i> has the abscissa (2 * {@code firstIndex} + <i>j</i>) * {@code delta} / 2.
+ * <p>
+ * A column of values is identified by the structure of its subexpression, so a column that is computed for one
+ * specialisation of an expression is reused by a later specialisation of the same expression in which only parameters
+ * on which the subexpression does not depend have changed.  When the columns of a specialisation are requested, the
+ * columns that the specialisation does not use are discarded.
+ * </p>
+ * <p>
+ * The points of a cache may be shifted by a whole number of points.  The columns are not discarded: when a column is
+ * next requested, its values at the samples that the old and new points share are reused, and only its values at the
+ * other samples are computed.
+ * </p>
+ * <p>
+ * A cache is not thread-safe.
+ * </p>
+ */
+
+class ColumnCache
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	double								delta;
+	private	long								firstIndex;
+	private	int									numPoints;
+	private	ApproximateMathFunctions.Accuracy	accuracy;
+	private	double[]							xs;
+	private	int[]								indices;
+	private	Map<Expression.Node, double[]>		columns;
+	private	long								columnsFirstIndex;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an empty cache of the values of subexpressions at the samples of the specified points.
+	 * The abscissa of the point at index <i>i</i> is ({@code firstIndex} + <i>i</i>) * {@code delta}.
+	 *
+	 * @param delta
+	 *          the spacing of the points.
+	 * @param firstIndex
+	 *          the index of the first point relative to the origin of the abscissae.
+	 * @param numPoints
+	 *          the number of points.
+	 * @param accuracy
+	 *          the accuracy of the approximations with which the subexpressions will be evaluated, or {@code null} if
+	 *          they will be evaluated exactly.
+	 */
+
+	public ColumnCache(
+		double								delta,
+		long								firstIndex,
+		int									numPoints,
+		ApproximateMathFunctions.Accuracy	accuracy)
+	{
+		this.delta = delta;
+		this.firstIndex = firstIndex;
+		this.numPoints = numPoints;
+		this.accuracy = accuracy;
+		columns = new HashMap<>();
+		columnsFirstIndex = firstIndex;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the spacing of the points.
+	 *
+	 * @return the spacing of the points.
+	 */
+
+	public double getDelta()
+	{
+		return delta;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first point relative to the origin of the abscissae.
+	 *
+	 * @return the index of the first point relative to the origin of the abscissae.
+	 */
+
+	public long getFirstIndex()
+	{
+		return firstIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the index of the first point relative to the origin of the abscissae, which shifts the points of this cache
+	 * by a whole number of points.
+	 *
+	 * @param firstIndex
+	 *          the index of the first point relative to the origin of the abscissae.
+	 */
+
+	public void setFirstIndex(
+		long	firstIndex)
+	{
+		if (this.firstIndex != firstIndex)
+		{
+			this.firstIndex = firstIndex;
+			xs = null;
+			indices = null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of points.
+	 *
+	 * @return the number of points.
+	 */
+
+	public int getNumPoints()
+	{
+		return numPoints;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the accuracy of the approximations with which the subexpressions are evaluated.
+	 *
+	 * @return the accuracy of the approximations with which the subexpressions are evaluated, or {@code null} if they
+	 *         are evaluated exactly.
+	 */
+
+	public ApproximateMathFunctions.Accuracy getAccuracy()
+	{
+		return accuracy;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the values of the specified subexpressions at the samples of this cache.  The values of a subexpression
+	 * that are not in the cache are computed from the values of the subexpressions that precede it in the list.
+	 *
+	 * @param  subexpressions
+	 *           the column subexpressions of a specialised expression, in the order in which {@link PartialEvaluator}
+	 *           lists them.
+	 * @param  cancelled
+	 *           the test of whether the computation of the values has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.  If it is cancelled, the cache is left unchanged.
+	 * @return the values of {@code subexpressions}.  The value of subexpression <i>k</i> at sample <i>j</i> is element
+	 *         [<i>k</i>][<i>j</i>] of the array.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the values are computed.
+	 */
+
+	public double[][] getValues(
+		List<Expression.Node>	subexpressions,
+		BooleanSupplier			cancelled)
+	{
+		double[][] values = new double[subexpressions.size()][];
+		Map<Expression.Node, double[]> usedColumns = new HashMap<>();
+		for (int i = 0; i < values.length; i++)
+		{
+			// Get column from cache
+			Expression.Node subexpression = subexpressions.get(i);
+			double[] column = usedColumns.get(subexpression);
+			if (column == null)
+				column = columns.get(subexpression);
+
+			// If column is not cached, evaluate subexpression with the preceding columns as inputs
+			if (column == null)
+			{
+				if (xs == null)
+					initSamples();
+				column = new double[xs.length];
+				createProgram(subexpressions, i).evaluate(xs, values, indices, column, xs.length, cancelled);
+			}
+
+			// If column was cached for other points, shift it and evaluate subexpression at the exposed samples
+			else if ((columnsFirstIndex != firstIndex) && !usedColumns.containsKey(subexpression))
+				column = shiftColumn(column, subexpressions, i, values, cancelled);
+
+			usedColumns.put(subexpression, column);
+			values[i] = column;
+		}
+
+		// Discard columns that are no longer used
+		columns = usedColumns;
+		columnsFirstIndex = firstIndex;
+
+		return values;
+	}
+
+	//------------------------------------------------------------------
+
+	private PostfixProgram createProgram(
+		List<Expression.Node>	subexpressions,
+		int						index)
+	{
+		Expression.Node subexpression = subexpressions.get(index);
+		return PostfixProgram.create(subexpression, new SubexpressionTable(subexpression), accuracy,
+									 subexpressions.subList(0, index));
+	}
+
+	//------------------------------------------------------------------
+
+	private double[] shiftColumn(
+		double[]				column,
+		List<Expression.Node>	subexpressions,
+		int						index,
+		double[][]				values,
+		BooleanSupplier			cancelled)
+	{
+		if (xs == null)
+			initSamples();
+
+		// Copy the values at the samples that the old and new points share, and collect the other samples
+		long offset = 2 * (firstIndex - columnsFirstIndex);
+		double[] shiftedColumn = new double[xs.length];
+		double[] exposedXs = new double[xs.length];
+		int[] exposedIndices = new int[xs.length];
+		int numExposed = 0;
+		for (int i = 0; i < xs.length; i++)
+		{
+			long j = i + offset;
+			if ((j >= 0) && (j < column.length))
+				shiftedColumn[i] = column[(int)j];
+			else
+			{
+				exposedXs[numExposed] = xs[i];
+				exposedIndices[numExposed++] = i;
+			}
+		}
+
+		// Evaluate subexpression at the exposed samples
+		if (numExposed > 0)
+		{
+			double[] exposedValues = new double[numExposed];
+			createProgram(subexpressions, index).evaluate(exposedXs, values, exposedIndices, exposedValues,
+														  numExposed, cancelled);
+			for (int i = 0; i < numExposed; i++)
+				shiftedColumn[exposedIndices[i]] = exposedValues[i];
+		}
+
+		return shiftedColumn;
+	}
+
+	//------------------------------------------------------------------
+
+	private void initSamples()
+	{
+		int numSamples = Math.max(0, 2 * numPoints - 1);
+		xs = new double[numSamples];
+		indices = new int[numSamples];
+		for (int i = 0; i < numSamples; i++)
+		{
+			xs[i] = (double)(2 * firstIndex + i) * (0.5 * delta);
+			indices[i] = i;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
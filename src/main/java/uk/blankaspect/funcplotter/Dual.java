@@ -0,0 +1,38 @@
+/*====================================================================*\
+
+Dual.java
+
+Record: dual number.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// RECORD: DUAL NUMBER
+
+
+/**
+ * This record implements an immutable dual number, which holds the value of a function and the value of its derivative
+ * at the same point.  Dual numbers are the result of evaluating an {@link Expression} by forward-mode automatic
+ * differentiation.
+ *
+ * @param value
+ *          the value of the function.
+ * @param derivative
+ *          the value of the derivative of the function.
+ */
+
+record Dual(
+	double	value,
+	double	derivative)
+{
+}
+
+//----------------------------------------------------------------------
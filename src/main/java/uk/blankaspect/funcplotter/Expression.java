@@ -19,9 +19,18 @@ package uk.blankaspect.funcplotter;
 
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 
+import java.util.concurrent.CancellationException;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleUnaryOperator;
+
 import uk.blankaspect.common.exception.AppException;
 
 //----------------------------------------------------------------------
@@ -39,6 +48,12 @@ class Expression
 
 	private static final	String	VARIABLE_STR	= "x";
 
+	private static final	int		MAX_NUM_CACHED_EXPRESSIONS	= 256;
+
+	// The estimated cost of evaluating a constant, the variable, a parameter or a common subexpression whose value has
+	// already been computed
+	private static final	int		TERMINAL_COST	= 1;
+
 	// Lexical analyser states
 	private enum LexState
 	{
@@ -76,7 +91,7 @@ class Expression
 	// UNARY OPERATION
 
 
-	private enum UnaryOperation
+	enum UnaryOperation
 	{
 
 	////////////////////////////////////////////////////////////////////
@@ -85,7 +100,8 @@ class Expression
 
 		ABS
 		(
-			"abs"
+			"abs",
+			1
 		)
 		{
 			@Override
@@ -97,7 +113,8 @@ class Expression
 
 		ACOS
 		(
-			"acos"
+			"acos",
+			20
 		)
 		{
 			@Override
@@ -109,55 +126,60 @@ class Expression
 
 		ACOSH
 		(
-			"acosh"
+			"acosh",
+			25
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return (operand < 1.0) ? Double.NaN : Math.log(operand + Math.sqrt(operand * operand - 1.0));
+				return MathFunctions.acosh(operand);
 			}
 		},
 
 		ACOT
 		(
-			"acot"
+			"acot",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return Math.atan(1.0 / operand);
+				return MathFunctions.acot(operand);
 			}
 		},
 
 		ACSC
 		(
-			"acsc"
+			"acsc",
+			25
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return Math.asin(1.0 / operand);
+				return MathFunctions.acsc(operand);
 			}
 		},
 
 		ASEC
 		(
-			"asec"
+			"asec",
+			25
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return Math.acos(1.0 / operand);
+				return MathFunctions.asec(operand);
 			}
 		},
 
 		ASIN
 		(
-			"asin"
+			"asin",
+			20
 		)
 		{
 			@Override
@@ -169,19 +191,21 @@ class Expression
 
 		ASINH
 		(
-			"asinh"
+			"asinh",
+			25
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return Math.log(operand + Math.sqrt(operand * operand + 1.0));
+				return MathFunctions.asinh(operand);
 			}
 		},
 
 		ATAN
 		(
-			"atan"
+			"atan",
+			20
 		)
 		{
 			@Override
@@ -193,21 +217,21 @@ class Expression
 
 		ATANH
 		(
-			"atanh"
+			"atanh",
+			25
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return ((operand >= -1.0) && (operand <= 1.0))
-						? 0.5 * Math.log((1.0 + operand) / (1.0 - operand))
-						: Double.NaN;
+				return MathFunctions.atanh(operand);
 			}
 		},
 
 		CEIL
 		(
-			"ceil"
+			"ceil",
+			2
 		)
 		{
 			@Override
@@ -219,7 +243,8 @@ class Expression
 
 		COS
 		(
-			"cos"
+			"cos",
+			15
 		)
 		{
 			@Override
@@ -231,43 +256,47 @@ class Expression
 
 		COSH
 		(
-			"cosh"
+			"cosh",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return 0.5 * (Math.exp(operand) + Math.exp(-operand));
+				return MathFunctions.cosh(operand);
 			}
 		},
 
 		COT
 		(
-			"cot"
+			"cot",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return 1.0 / Math.tan(operand);
+				return MathFunctions.cot(operand);
 			}
 		},
 
 		CSC
 		(
-			"csc"
+			"csc",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return 1.0 / Math.sin(operand);
+				return MathFunctions.csc(operand);
 			}
 		},
 
 		EXP
 		(
-			"exp"
+			"exp",
+			15
 		)
 		{
 			@Override
@@ -279,7 +308,8 @@ class Expression
 
 		FLOOR
 		(
-			"floor"
+			"floor",
+			2
 		)
 		{
 			@Override
@@ -291,7 +321,8 @@ class Expression
 
 		LG
 		(
-			"lg"
+			"lg",
+			20
 		)
 		{
 			@Override
@@ -303,7 +334,8 @@ class Expression
 
 		LN
 		(
-			"ln"
+			"ln",
+			15
 		)
 		{
 			@Override
@@ -315,7 +347,8 @@ class Expression
 
 		ROUND
 		(
-			"round"
+			"round",
+			2
 		)
 		{
 			@Override
@@ -327,19 +360,21 @@ class Expression
 
 		SEC
 		(
-			"sec"
+			"sec",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return 1.0 / Math.cos(operand);
+				return MathFunctions.sec(operand);
 			}
 		},
 
 		SIN
 		(
-			"sin"
+			"sin",
+			15
 		)
 		{
 			@Override
@@ -351,19 +386,21 @@ class Expression
 
 		SINH
 		(
-			"sinh"
+			"sinh",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				return 0.5 * (Math.exp(operand) - Math.exp(-operand));
+				return MathFunctions.sinh(operand);
 			}
 		},
 
 		SQRT
 		(
-			"sqrt"
+			"sqrt",
+			4
 		)
 		{
 			@Override
@@ -375,7 +412,8 @@ class Expression
 
 		TAN
 		(
-			"tan"
+			"tan",
+			20
 		)
 		{
 			@Override
@@ -387,20 +425,21 @@ class Expression
 
 		TANH
 		(
-			"tanh"
+			"tanh",
+			20
 		)
 		{
 			@Override
 			protected double evaluate(double operand)
 			{
-				double exp2X = Math.exp(2.0 * operand);
-				return (exp2X - 1) / (exp2X + 1);
+				return MathFunctions.tanh(operand);
 			}
 		},
 
 		PLUS
 		(
-			"plus"
+			"plus",
+			0
 		)
 		{
 			@Override
@@ -412,7 +451,8 @@ class Expression
 
 		MINUS
 		(
-			"minus"
+			"minus",
+			1
 		)
 		{
 			@Override
@@ -426,9 +466,11 @@ class Expression
 	//  Constructors
 	////////////////////////////////////////////////////////////////////
 
-		private UnaryOperation(String key)
+		private UnaryOperation(String key,
+							   int    cost)
 		{
 			this.key = key;
+			this.cost = cost;
 		}
 
 		//--------------------------------------------------------------
@@ -458,6 +500,7 @@ class Expression
 	////////////////////////////////////////////////////////////////////
 
 		private	String	key;
+		private	int		cost;
 
 	}
 
@@ -467,7 +510,7 @@ class Expression
 	// BINARY OPERATION
 
 
-	private enum BinaryOperation
+	enum BinaryOperation
 	{
 
 	////////////////////////////////////////////////////////////////////
@@ -477,7 +520,8 @@ class Expression
 		ADD
 		(
 			"add",
-			0
+			0,
+			1
 		)
 		{
 			@Override
@@ -491,7 +535,8 @@ class Expression
 		SUBTRACT
 		(
 			"subtract",
-			0
+			0,
+			1
 		)
 		{
 			@Override
@@ -505,6 +550,7 @@ class Expression
 		MULTIPLY
 		(
 			"multiply",
+			1,
 			1
 		)
 		{
@@ -519,7 +565,8 @@ class Expression
 		DIVIDE
 		(
 			"divide",
-			1
+			1,
+			4
 		)
 		{
 			@Override
@@ -533,7 +580,8 @@ class Expression
 		REMAINDER
 		(
 			"remainder",
-			1
+			1,
+			10
 		)
 		{
 			@Override
@@ -547,7 +595,8 @@ class Expression
 		IEEE_REMAINDER
 		(
 			"ieeeRemainder",
-			1
+			1,
+			15
 		)
 		{
 			@Override
@@ -561,7 +610,8 @@ class Expression
 		POWER
 		(
 			"power",
-			2
+			2,
+			40
 		)
 		{
 			@Override
@@ -577,10 +627,12 @@ class Expression
 	////////////////////////////////////////////////////////////////////
 
 		private BinaryOperation(String key,
-								int    precedence)
+								int    precedence,
+								int    cost)
 		{
 			this.key = key;
 			this.precedence = precedence;
+			this.cost = cost;
 		}
 
 		//--------------------------------------------------------------
@@ -612,6 +664,7 @@ class Expression
 
 		private	String	key;
 		private	int		precedence;
+		private	int		cost;
 
 	}
 
@@ -1198,6 +1251,49 @@ class Expression
 		//==============================================================
 
 
+		// PARAMETER TOKEN
+
+
+		private static class ParameterToken
+			extends Token
+		{
+
+		////////////////////////////////////////////////////////////////
+		//  Constructors
+		////////////////////////////////////////////////////////////////
+
+			private ParameterToken(int  offset,
+								   char name)
+			{
+				super(offset);
+				this.name = name;
+			}
+
+			//----------------------------------------------------------
+
+		////////////////////////////////////////////////////////////////
+		//  Instance methods : overriding methods
+		////////////////////////////////////////////////////////////////
+
+			@Override
+			public String toString()
+			{
+				return Character.toString(name);
+			}
+
+			//----------------------------------------------------------
+
+		////////////////////////////////////////////////////////////////
+		//  Instance variables
+		////////////////////////////////////////////////////////////////
+
+			private	char	name;
+
+		}
+
+		//==============================================================
+
+
 		// KEYWORD TOKEN
 
 
@@ -1361,7 +1457,7 @@ class Expression
 	// NODE CLASS
 
 
-	private static class Node
+	static class Node
 	{
 
 	////////////////////////////////////////////////////////////////////
@@ -1372,7 +1468,7 @@ class Expression
 		// CONSTANT NODE
 
 
-		private static class ConstantNode
+		static class ConstantNode
 			extends Node
 		{
 
@@ -1386,8 +1482,8 @@ class Expression
 		//  Constructors
 		////////////////////////////////////////////////////////////////
 
-			private ConstantNode(Node   parent,
-								 double value)
+			ConstantNode(Node   parent,
+						 double value)
 			{
 				super(parent);
 				this.value = value;
@@ -1451,11 +1547,19 @@ class Expression
 
 			//----------------------------------------------------------
 
+			@Override
+			protected Interval evaluate(Interval x)
+			{
+				return Interval.of(value);
+			}
+
+			//----------------------------------------------------------
+
 		////////////////////////////////////////////////////////////////
 		//  Instance variables
 		////////////////////////////////////////////////////////////////
 
-			private	double	value;
+			protected	double	value;
 
 		}
 
@@ -1465,7 +1569,7 @@ class Expression
 		// VARIABLE NODE
 
 
-		private static class VariableNode
+		static class VariableNode
 			extends Node
 		{
 
@@ -1479,7 +1583,7 @@ class Expression
 		//  Constructors
 		////////////////////////////////////////////////////////////////
 
-			private VariableNode(Node parent)
+			VariableNode(Node parent)
 			{
 				super(parent);
 			}
@@ -1533,6 +1637,119 @@ class Expression
 
 			//----------------------------------------------------------
 
+			@Override
+			protected Interval evaluate(Interval x)
+			{
+				return x;
+			}
+
+			//----------------------------------------------------------
+
+		}
+
+		//==============================================================
+
+
+		// PARAMETER NODE
+
+
+		/**
+		 * A parameter has no value until the expression that contains it is specialised to particular values of its
+		 * parameters, so the node evaluates to NaN.
+		 */
+
+		static class ParameterNode
+			extends Node
+		{
+
+		////////////////////////////////////////////////////////////////
+		//  Constants
+		////////////////////////////////////////////////////////////////
+
+			private static final	String	KIND_STR	= "parameter";
+
+		////////////////////////////////////////////////////////////////
+		//  Constructors
+		////////////////////////////////////////////////////////////////
+
+			ParameterNode(Node parent,
+						  char name)
+			{
+				super(parent);
+				this.name = name;
+			}
+
+			//----------------------------------------------------------
+
+		////////////////////////////////////////////////////////////////
+		//  Instance methods : overriding methods
+		////////////////////////////////////////////////////////////////
+
+			@Override
+			public boolean equals(Object obj)
+			{
+				if (this == obj)
+					return true;
+
+				return (obj instanceof ParameterNode other) && (name == other.name) && super.equals(other);
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			public int hashCode()
+			{
+				return 31 * super.hashCode() + name;
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected boolean isTerminal()
+			{
+				return true;
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected String getKindString()
+			{
+				return KIND_STR;
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected String getValueString()
+			{
+				return Character.toString(name);
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected double evaluate(double x)
+			{
+				return Double.NaN;
+			}
+
+			//----------------------------------------------------------
+
+			@Override
+			protected Interval evaluate(Interval x)
+			{
+				return Interval.EMPTY;
+			}
+
+			//----------------------------------------------------------
+
+		////////////////////////////////////////////////////////////////
+		//  Instance variables
+		////////////////////////////////////////////////////////////////
+
+			protected	char	name;
+
 		}
 
 		//==============================================================
@@ -1541,7 +1758,7 @@ class Expression
 		// UNARY OPERATION NODE
 
 
-		private static class UnaryOperationNode
+		static class UnaryOperationNode
 			extends Node
 		{
 
@@ -1555,8 +1772,8 @@ class Expression
 		//  Constructors
 		////////////////////////////////////////////////////////////////
 
-			private UnaryOperationNode(Node           parent,
-									   UnaryOperation unaryOperation)
+			UnaryOperationNode(Node           parent,
+							   UnaryOperation unaryOperation)
 			{
 				super(parent);
 				this.unaryOperation = unaryOperation;
@@ -1612,11 +1829,19 @@ class Expression
 
 			//----------------------------------------------------------
 
+			@Override
+			protected Interval evaluate(Interval x)
+			{
+				return leftChild.evaluate(x).apply(unaryOperation);
+			}
+
+			//----------------------------------------------------------
+
 		////////////////////////////////////////////////////////////////
 		//  Instance variables
 		////////////////////////////////////////////////////////////////
 
-			private	UnaryOperation	unaryOperation;
+			protected	UnaryOperation	unaryOperation;
 
 		}
 
@@ -1626,7 +1851,7 @@ class Expression
 		// BINARY OPERATION NODE
 
 
-		private static class BinaryOperationNode
+		static class BinaryOperationNode
 			extends Node
 		{
 
@@ -1640,8 +1865,8 @@ class Expression
 		//  Constructors
 		////////////////////////////////////////////////////////////////
 
-			private BinaryOperationNode(Node            parent,
-										BinaryOperation binaryOperation)
+			BinaryOperationNode(Node            parent,
+								BinaryOperation binaryOperation)
 			{
 				super(parent);
 				this.binaryOperation = binaryOperation;
@@ -1697,11 +1922,24 @@ class Expression
 
 			//----------------------------------------------------------
 
+			@Override
+			protected Interval evaluate(Interval x)
+			{
+				// The product of a subexpression with itself is a square, whose enclosure is tighter than that of a
+				// product of independent operands
+				Interval operand1 = leftChild.evaluate(x);
+				if ((binaryOperation == BinaryOperation.MULTIPLY) && leftChild.equals(rightChild))
+					return operand1.square();
+				return operand1.apply(binaryOperation, rightChild.evaluate(x));
+			}
+
+			//----------------------------------------------------------
+
 		////////////////////////////////////////////////////////////////
 		//  Instance variables
 		////////////////////////////////////////////////////////////////
 
-			private	BinaryOperation	binaryOperation;
+			protected	BinaryOperation	binaryOperation;
 
 		}
 
@@ -1833,6 +2071,13 @@ class Expression
 
 		//--------------------------------------------------------------
 
+		protected Interval evaluate(Interval x)
+		{
+			return Interval.EMPTY;
+		}
+
+		//--------------------------------------------------------------
+
 		private Node getBinaryOperationAncestor(int precedence)
 		{
 			Node node = this;
@@ -1956,15 +2201,62 @@ class Expression
 
 	//==================================================================
 
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: SPECIALISATION
+
+
+	/**
+	 * This record holds the most recent specialisation of an expression with parameters, together with the values of
+	 * the parameters to which it was specialised.
+	 *
+	 * @param values
+	 *          the values of the parameters of the expression, in the order of the names of the parameters.
+	 * @param expression
+	 *          the specialised expression.
+	 */
+
+	private record Specialisation(double[]   values,
+								  Expression expression)
+	{ }
+
+	//==================================================================
+
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
 ////////////////////////////////////////////////////////////////////////
 
-	public Expression(String str)
+	private Expression(String str)
 		throws Expression.Exception
 	{
 		this.str = str;
-		parse(str);
+		tokens = Collections.unmodifiableList(toTokens(str));
+		tree = parse(tokens);
+		optimisedTree = ExpressionOptimiser.optimise(tree);
+		subexpressions = new SubexpressionTable(optimisedTree);
+		parameterNames = getParameterNames(tokens);
+		columnSubexpressions = Collections.emptyList();
+		cost = getCost(optimisedTree, subexpressions, new boolean[subexpressions.getNumSlots()]);
+		specialised = false;
+	}
+
+	//------------------------------------------------------------------
+
+	private Expression(Expression       expression,
+					   PartialEvaluator partialEvaluator)
+	{
+		str = expression.str;
+		tokens = expression.tokens;
+		tree = partialEvaluator.getTree();
+		optimisedTree = tree;
+		subexpressions = new SubexpressionTable(optimisedTree);
+		parameterNames = "";
+		columnSubexpressions = partialEvaluator.getColumnSubexpressions();
+		cost = getCost(optimisedTree, subexpressions, new boolean[subexpressions.getNumSlots()]);
+		specialised = true;
 	}
 
 	//------------------------------------------------------------------
@@ -1973,6 +2265,93 @@ class Expression
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Returns an expression that is parsed from the specified string.
+	 * <p>
+	 * An expression is immutable and may be evaluated by several threads concurrently, so a single instance is shared
+	 * by all the functions that have the same source string.  The most recently used expressions are cached by their
+	 * source strings; if an expression for the specified string is in the cache, the cached expression, together with
+	 * the tree and the compiled form that it has already created, is returned without parsing the string again.
+	 * </p>
+	 *
+	 * @param  str
+	 *           the string from which the expression will be parsed.
+	 * @return an expression that is parsed from {@code str}.
+	 * @throws Expression.Exception
+	 *           if {@code str} is not a valid expression.
+	 */
+
+	public static Expression valueOf(String str)
+		throws Expression.Exception
+	{
+		synchronized (cache)
+		{
+			Expression expression = cache.get(str);
+			if (expression == null)
+			{
+				expression = new Expression(str);
+				cache.put(str, expression);
+				if (cache.size() > MAX_NUM_CACHED_EXPRESSIONS)
+					cache.remove(cache.keySet().iterator().next());
+			}
+			return expression;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the estimated cost of evaluating the specified tree once.  A subtree that has a slot is counted in full
+	 * only at its first occurrence; subsequent occurrences load its value from the slot.
+	 */
+
+	private static int getCost(Node               node,
+							   SubexpressionTable subexpressions,
+							   boolean[]          evaluatedSlots)
+	{
+		if (node == null)
+			return 0;
+
+		int slot = subexpressions.getSlot(node);
+		if (slot >= 0)
+		{
+			if (evaluatedSlots[slot])
+				return TERMINAL_COST;
+			evaluatedSlots[slot] = true;
+		}
+
+		if (node instanceof Node.UnaryOperationNode unaryNode)
+			return unaryNode.unaryOperation.cost + getCost(node.leftChild, subexpressions, evaluatedSlots);
+		if (node instanceof Node.BinaryOperationNode binaryNode)
+		{
+			return binaryNode.binaryOperation.cost + getCost(node.leftChild, subexpressions, evaluatedSlots)
+					+ getCost(node.rightChild, subexpressions, evaluatedSlots);
+		}
+		return TERMINAL_COST;
+	}
+
+	//------------------------------------------------------------------
+
+	private static String getParameterNames(List<Token> tokens)
+	{
+		boolean[] found = new boolean['z' - 'a' + 1];
+		for (Token token : tokens)
+		{
+			if (token instanceof Token.ParameterToken parameterToken)
+				found[parameterToken.name - 'a'] = true;
+		}
+
+		StringBuilder buffer = new StringBuilder();
+		for (int i = 0; i < found.length; i++)
+		{
+			if (found[i])
+				buffer.append((char)('a' + i));
+		}
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
 	private static boolean isWhitespace(char ch)
 	{
 		final	String	WHITESPACE_CHARS	= " \t\n\r";
@@ -2048,9 +2427,11 @@ class Expression
 		if (str.equals(VARIABLE_STR))
 			return new Token.VariableToken(offset);
 		Keyword keyword = Keyword.forKey(str);
-		if (keyword == null)
-			throw new Expression.Exception(ErrorId.UNRECOGNISED_TOKEN, str, offset);
-		return new Token.KeywordToken(offset, keyword);
+		if (keyword != null)
+			return new Token.KeywordToken(offset, keyword);
+		if (str.length() == 1)
+			return new Token.ParameterToken(offset, str.charAt(0));
+		throw new Expression.Exception(ErrorId.UNRECOGNISED_TOKEN, str, offset);
 	}
 
 	//------------------------------------------------------------------
@@ -2247,6 +2628,16 @@ class Expression
 						state = ParseState.OPERATION;
 					}
 
+					// Parameter token
+					else if (token instanceof Token.ParameterToken)
+					{
+						Node node = new Node.ParameterNode(activeNode, ((Token.ParameterToken)token).name);
+						if (!activeNode.addChild(node))
+							throw new ParserError(8, token.offset);
+						activeNode = node;
+						state = ParseState.OPERATION;
+					}
+
 					// Keyword token
 					else if (token instanceof Token.KeywordToken)
 					{
@@ -2313,9 +2704,10 @@ class Expression
 
 				case OPERATION:
 				{
-					// Number token, variable token or keyword token
+					// Number token, variable token, parameter token or keyword token
 					if ((token instanceof Token.NumberToken) ||
 						 (token instanceof Token.VariableToken) ||
+						 (token instanceof Token.ParameterToken) ||
 						 (token instanceof Token.KeywordToken))
 						throw new SyntaxError(ErrorId.BINARY_OPERATION_EXPECTED, token.offset);
 
@@ -2402,7 +2794,273 @@ class Expression
 
 	public double evaluate(double x)
 	{
-		return tree.evaluate(x);
+		DoubleUnaryOperator evaluator = this.evaluator;
+		if (evaluator == null)
+		{
+			evaluator = createEvaluator();
+			this.evaluator = evaluator;
+		}
+		return evaluator.applyAsDouble(x);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this expression for each of the specified values of the variable.  The expression is evaluated one
+	 * operation at a time over a block of values, rather than one value at a time over the whole expression.
+	 *
+	 * @param xs
+	 *          the values of the variable.
+	 * @param out
+	 *          the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *          out[i]}.  The length of the array must not be less than the length of {@code xs}.
+	 */
+
+	public void evaluate(double[] xs,
+						 double[] out)
+	{
+		evaluate(xs, out, xs.length, null);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this expression for the specified number of values of the variable.
+	 *
+	 * @param  xs
+	 *           the values of the variable.
+	 * @param  out
+	 *           the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *           out[i]}.
+	 * @param  length
+	 *           the number of elements of {@code xs}, starting from the first, that will be evaluated.
+	 * @param  cancelled
+	 *           the test of whether the evaluation has been cancelled, or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the evaluation is complete.
+	 */
+
+	public void evaluate(double[]        xs,
+						 double[]        out,
+						 int             length,
+						 BooleanSupplier cancelled)
+	{
+		getProgram().evaluate(xs, out, length, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates an approximation to this expression for the specified number of values of the variable.  The
+	 * logarithmic and inverse hyperbolic operations of the expression are evaluated with the cheaper approximations of
+	 * {@link ApproximateMathFunctions} to the specified accuracy.  The results are intended only for plotting; values
+	 * that are displayed or exported should be obtained with {@link #evaluate(double)}.
+	 *
+	 * @param  xs
+	 *           the values of the variable.
+	 * @param  out
+	 *           the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *           out[i]}.
+	 * @param  length
+	 *           the number of elements of {@code xs}, starting from the first, that will be evaluated.
+	 * @param  accuracy
+	 *           the accuracy of the approximations.
+	 * @param  cancelled
+	 *           the test of whether the evaluation has been cancelled, or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the evaluation is complete.
+	 */
+
+	public void evaluateApproximately(double[]                          xs,
+									  double[]                          out,
+									  int                               length,
+									  ApproximateMathFunctions.Accuracy accuracy,
+									  BooleanSupplier                   cancelled)
+	{
+		PostfixProgram program = approximateProgram;
+		if ((program == null) || (program.getAccuracy() != accuracy))
+		{
+			program = PostfixProgram.create(optimisedTree, subexpressions, accuracy);
+			approximateProgram = program;
+		}
+		program.evaluate(xs, out, length, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this expression and its derivative with respect to the variable for the specified value of the
+	 * variable.  The derivative is computed together with the value by forward-mode automatic differentiation, so it is
+	 * exact up to rounding rather than an approximation from finite differences.  The derivative of a function that
+	 * is not differentiable at {@code x}, such as {@code abs} at zero or {@code floor} at an integer, is a one-sided
+	 * derivative or zero.
+	 *
+	 * @param  x
+	 *           the value of the variable.
+	 * @return the value of this expression and the value of its derivative at {@code x}.
+	 */
+
+	public Dual evaluateDual(double x)
+	{
+		return getProgram().evaluateDual(x);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an enclosure of the values of this expression over the specified interval of the variable.  Every
+	 * non-NaN value that {@link #evaluate(double)} returns for a value of the variable in the interval lies within the
+	 * enclosure.
+	 *
+	 * @param  lower
+	 *           the lower bound of the interval of the variable.
+	 * @param  upper
+	 *           the upper bound of the interval of the variable.
+	 * @return an enclosure of the values of this expression over [{@code lower}, {@code upper}].  The enclosure is
+	 *         empty if the expression is NaN over the whole interval.
+	 */
+
+	public Interval evaluateInterval(double lower,
+									 double upper)
+	{
+		// Check that the enclosure contains the values at the bounds, which catches a rule of interval arithmetic that
+		// excludes a value that the evaluator returns
+		Interval enclosure = optimisedTree.evaluate(Interval.of(lower, upper));
+		assert enclosure.encloses(evaluate(lower)) && enclosure.encloses(evaluate(upper))
+				: "Enclosure " + enclosure + " over [" + lower + ", " + upper + "]";
+		return enclosure;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this expression at the specified samples of a column cache.  The values of the column subexpressions of
+	 * this expression, which is a specialisation of an expression with parameters, are loaded from the cache; the
+	 * cache computes the values of any column subexpressions that it does not hold.
+	 *
+	 * @param  xs
+	 *           the values of the variable.
+	 * @param  indices
+	 *           the indices of the samples of {@code columns} at which the expression will be evaluated.  {@code
+	 *           xs[i]} is the abscissa of the sample {@code indices[i]}.
+	 * @param  columns
+	 *           the cache of the values of the column subexpressions of this expression.
+	 * @param  out
+	 *           the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *           out[i]}.
+	 * @param  length
+	 *           the number of elements of {@code xs}, starting from the first, that will be evaluated.
+	 * @param  cancelled
+	 *           the test of whether the evaluation has been cancelled, or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the evaluation is complete.
+	 * @see    #specialise(ParameterSet)
+	 */
+
+	public void evaluate(double[]        xs,
+						 int[]           indices,
+						 ColumnCache     columns,
+						 double[]        out,
+						 int             length,
+						 BooleanSupplier cancelled)
+	{
+		ApproximateMathFunctions.Accuracy accuracy = columns.getAccuracy();
+
+		// If there are no column subexpressions, evaluate the expression directly
+		if (columnSubexpressions.isEmpty())
+		{
+			if (accuracy == null)
+				evaluate(xs, out, length, cancelled);
+			else
+				evaluateApproximately(xs, out, length, accuracy, cancelled);
+			return;
+		}
+
+		// Evaluate the expression with its column subexpressions as the inputs of a program
+		PostfixProgram program = (accuracy == null) ? columnProgram : approximateColumnProgram;
+		if ((program == null) || (program.getAccuracy() != accuracy))
+		{
+			program = PostfixProgram.create(optimisedTree, subexpressions, accuracy, columnSubexpressions);
+			if (accuracy != null)
+				approximateColumnProgram = program;
+			else
+				columnProgram = program;
+		}
+		program.evaluate(xs, columns.getValues(columnSubexpressions, cancelled), indices, out, length, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the names of the parameters of this expression.
+	 *
+	 * @return a string that contains the name of each parameter of this expression once, in alphabetical order.  The
+	 *         string is empty if the expression has no parameters.
+	 */
+
+	public String getParameterNames()
+	{
+		return parameterNames;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if this expression has parameters.
+	 *
+	 * @return {@code true} if this expression has parameters.
+	 */
+
+	public boolean hasParameters()
+	{
+		return !parameterNames.isEmpty();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an expression that is equivalent to this expression with each of its parameters replaced by its value in
+	 * the specified set of parameters.  The subexpressions that depend on parameters but not on the variable are
+	 * evaluated once, when the expression is specialised (see {@link PartialEvaluator}).
+	 * <p>
+	 * The specialised expression has the same source string as this expression.  It is not added to the cache of
+	 * parsed expressions, but the most recent specialisation of this expression is retained together with the values
+	 * of the parameters of this expression to which it was specialised.  If those values have not changed, the retained
+	 * expression, together with the evaluators that it has already created, is returned; so a change to a parameter on
+	 * which this expression does not depend does not cause it to be specialised again.
+	 * </p>
+	 * <p>
+	 * A specialised expression is never compiled to bytecode: it is evaluated by a {@link PostfixProgram}, because a
+	 * compiled class would be defined for each new value of a parameter and would be interpreted until the JIT compiler
+	 * had warmed it.
+	 * </p>
+	 *
+	 * @param  parameters
+	 *           the parameters whose values will replace the parameters of this expression.
+	 * @return an expression that is equivalent to this expression for the values of {@code parameters}, or this
+	 *         expression if it has no parameters.
+	 */
+
+	public Expression specialise(ParameterSet parameters)
+	{
+		// An expression without parameters is its own specialisation
+		if (!hasParameters())
+			return this;
+
+		// Get the values of the parameters of this expression
+		double[] values = new double[parameterNames.length()];
+		for (int i = 0; i < values.length; i++)
+			values[i] = parameters.getValue(parameterNames.charAt(i));
+
+		// If the values of the parameters have not changed since the last specialisation, reuse it
+		Specialisation specialisation = this.specialisation;
+		if ((specialisation != null) && Arrays.equals(specialisation.values(), values))
+			return specialisation.expression();
+
+		// Specialise this expression
+		Expression expression = new Expression(this, new PartialEvaluator(optimisedTree, parameters));
+		this.specialisation = new Specialisation(values, expression);
+		return expression;
 	}
 
 	//------------------------------------------------------------------
@@ -2427,22 +3085,99 @@ class Expression
 
 	//------------------------------------------------------------------
 
-	private void parse(String str)
-		throws Expression.Exception
+	/**
+	 * Returns the number of nodes of the optimised tree of this expression that are not evaluated because they belong to
+	 * a repeated subexpression whose value is computed only once for each value of the variable.
+	 *
+	 * @return the number of nodes that are eliminated by sharing the common subexpressions of this expression.
+	 */
+
+	public int getNumEliminatedNodes()
 	{
-		tokens = toTokens(str);
-		tree = parse(tokens);
+		return subexpressions.getNumEliminatedNodes();
 	}
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns the estimated cost of evaluating this expression for one value of the variable.  The cost is the sum of
+	 * the weights of the operations of the optimised tree, in units of the cost of an addition: an elementary function
+	 * such as {@code sin} or {@code exp} weighs much more than an arithmetic operation, and a power weighs most of all.
+	 * The operations of a common subexpression are counted only once.  The cost is only a relative estimate; the time
+	 * that an evaluation takes is measured by the renderer of a plot (see {@link FrameScheduler}).
+	 *
+	 * @return the estimated cost of evaluating this expression for one value of the variable.
+	 */
+
+	public int getCost()
+	{
+		return cost;
+	}
+
+	//------------------------------------------------------------------
+
+	/*
+	 * The evaluators of an expression are created lazily.  If two threads race to create an evaluator, each creates an
+	 * equivalent evaluator from the immutable optimised tree, and the evaluator that is stored last is retained.
+	 */
+
+	private PostfixProgram getProgram()
+	{
+		PostfixProgram program = this.program;
+		if (program == null)
+		{
+			program = (evaluator instanceof PostfixProgram evalProgram)
+								? evalProgram
+								: PostfixProgram.create(optimisedTree, subexpressions);
+			this.program = program;
+		}
+		return program;
+	}
+
+	//------------------------------------------------------------------
+
+	private DoubleUnaryOperator createEvaluator()
+	{
+		// Compile optimised tree to bytecode, unless this expression is a specialisation, whose lifetime may be too
+		// short to repay the cost of compiling it
+		DoubleUnaryOperator evaluator = null;
+		if (!specialised && AppConfig.INSTANCE.isCompileExpressions())
+			evaluator = ExpressionCompiler.compile(optimisedTree, subexpressions);
+
+		// If tree was not compiled, flatten it into a program for a stack machine
+		if (evaluator == null)
+			evaluator = PostfixProgram.create(optimisedTree, subexpressions);
+
+		return evaluator;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	private static	Map<String, Expression>	cache	= new LinkedHashMap<>(16, 0.75f, true);
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	String		str;
-	private	List<Token>	tokens;
-	private	Node		tree;
+	private final		String				str;
+	private final		List<Token>			tokens;
+	private final		Node				tree;
+	private final		Node				optimisedTree;
+	private final		SubexpressionTable	subexpressions;
+	private final		String				parameterNames;
+	private final		List<Node>			columnSubexpressions;
+	private final		int					cost;
+	private final		boolean				specialised;
+	private volatile	Specialisation		specialisation;
+	private volatile	DoubleUnaryOperator	evaluator;
+	private volatile	PostfixProgram		program;
+	private volatile	PostfixProgram		approximateProgram;
+	private volatile	PostfixProgram		columnProgram;
+	private volatile	PostfixProgram		approximateColumnProgram;
 
 }
 
@@ -0,0 +1,710 @@
+/*====================================================================*\
+
+ExpressionCompiler.java
+
+Class: expression compiler.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+import java.lang.invoke.MethodHandles;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import java.util.function.DoubleUnaryOperator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: EXPRESSION COMPILER
+
+
+/**
+ * This class compiles the abstract syntax tree of an {@link Expression} to a hidden class that implements {@link
+ * DoubleUnaryOperator}.  The {@code applyAsDouble} method of the hidden class is a straight-line sequence of JVM
+ * instructions that evaluates the tree for the value of the variable that is passed to it.
+ * <p>
+ * The operations that are not JVM instructions are compiled to calls to the same methods that are called by the
+ * interpreter, so the compiled form of an expression produces the same results as the interpreter.
+ * </p>
+ */
+
+class ExpressionCompiler
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		CLASS_FILE_MAGIC			= 0xCAFEBABE;
+	private static final	int		CLASS_FILE_MAJOR_VERSION	= 61;	// Java 17
+
+	private static final	int		MAX_CODE_LENGTH		= 65535;
+	private static final	int		MAX_STACK_SIZE		= 65535;
+	private static final	int		MAX_NUM_LOCALS		= 65535;
+
+	private static final	int		ACC_PUBLIC	= 0x0001;
+	private static final	int		ACC_FINAL	= 0x0010;
+	private static final	int		ACC_SUPER	= 0x0020;
+
+	private static final	String	CLASS_NAME	=
+			ExpressionCompiler.class.getPackageName().replace('.', '/') + "/CompiledExpression";
+
+	private static final	String	OBJECT_CLASS_NAME			= "java/lang/Object";
+	private static final	String	MATH_CLASS_NAME				= "java/lang/Math";
+	private static final	String	MATH_FUNCTIONS_CLASS_NAME	=
+			MathFunctions.class.getName().replace('.', '/');
+	private static final	String	INTERFACE_NAME				=
+			DoubleUnaryOperator.class.getName().replace('.', '/');
+
+	private static final	String	CONSTRUCTOR_NAME	= "<init>";
+	private static final	String	METHOD_NAME			= "applyAsDouble";
+	private static final	String	CODE_ATTR_NAME		= "Code";
+
+	private static final	String	VOID_DESCRIPTOR				= "()V";
+	private static final	String	UNARY_DOUBLE_DESCRIPTOR		= "(D)D";
+	private static final	String	BINARY_DOUBLE_DESCRIPTOR	= "(DD)D";
+
+	// Local variable of applyAsDouble() that holds the value of the variable
+	private static final	int		VARIABLE_INDEX	= 1;
+
+	// First local variable of applyAsDouble() that holds the value of a common subexpression
+	private static final	int		FIRST_SLOT_INDEX	= VARIABLE_INDEX + 2;
+
+	// JVM instructions
+	private interface Opcode
+	{
+		int	DCONST_0		= 0x0E;
+		int	DCONST_1		= 0x0F;
+		int	LDC2_W			= 0x14;
+		int	DLOAD			= 0x18;
+		int	DLOAD_1			= 0x27;
+		int	ALOAD_0			= 0x2A;
+		int	DSTORE			= 0x39;
+		int	DUP2			= 0x5C;
+		int	DADD			= 0x63;
+		int	DSUB			= 0x67;
+		int	DMUL			= 0x6B;
+		int	DDIV			= 0x6F;
+		int	DREM			= 0x73;
+		int	DNEG			= 0x77;
+		int	DRETURN			= 0xAF;
+		int	RETURN			= 0xB1;
+		int	INVOKESPECIAL	= 0xB7;
+		int	INVOKESTATIC	= 0xB8;
+		int	WIDE			= 0xC4;
+	}
+
+	// Constant-pool tags
+	private interface Tag
+	{
+		int	UTF8				= 1;
+		int	DOUBLE				= 6;
+		int	CLASS				= 7;
+		int	METHOD_REF			= 10;
+		int	NAME_AND_TYPE		= 12;
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	SubexpressionTable		subexpressions;
+	private	boolean[]				slotsStored;
+	private	ConstantPool			constantPool;
+	private	ByteArrayOutputStream	code;
+	private	int						stackSize;
+	private	int						maxStackSize;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private ExpressionCompiler(
+		SubexpressionTable	subexpressions)
+	{
+		this.subexpressions = subexpressions;
+		slotsStored = new boolean[subexpressions.getNumSlots()];
+		constantPool = new ConstantPool();
+		code = new ByteArrayOutputStream();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compiles the specified abstract syntax tree to a hidden class and returns an instance of the class.  The value of
+	 * each common subexpression of the tree is computed once and stored in a local variable, from which it is loaded
+	 * when the subexpression occurs again.
+	 *
+	 * @param  tree
+	 *           the tree that will be compiled.
+	 * @param  subexpressions
+	 *           the common subexpressions of {@code tree}.
+	 * @return an instance of the compiled form of {@code tree}, or {@code null} if the tree could not be compiled.
+	 */
+
+	public static DoubleUnaryOperator compile(
+		Expression.Node		tree,
+		SubexpressionTable	subexpressions)
+	{
+		try
+		{
+			byte[] classFile = new ExpressionCompiler(subexpressions).createClassFile(tree);
+			Class<?> cls = MethodHandles.lookup().defineHiddenClass(classFile, true).lookupClass();
+			return (DoubleUnaryOperator)cls.getDeclaredConstructor().newInstance();
+		}
+		catch (ReflectiveOperationException | RuntimeException | LinkageError e)
+		{
+			return null;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static String getMathFunctionName(
+		Expression.UnaryOperation	operation)
+	{
+		return switch (operation)
+		{
+			case ABS   -> "abs";
+			case ACOS  -> "acos";
+			case ASIN  -> "asin";
+			case ATAN  -> "atan";
+			case CEIL  -> "ceil";
+			case COS   -> "cos";
+			case EXP   -> "exp";
+			case FLOOR -> "floor";
+			case LG    -> "log10";
+			case LN    -> "log";
+			case ROUND -> "rint";
+			case SIN   -> "sin";
+			case SQRT  -> "sqrt";
+			case TAN   -> "tan";
+			default    -> null;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	private static String getMathFunctionsName(
+		Expression.UnaryOperation	operation)
+	{
+		return switch (operation)
+		{
+			case ACOSH -> "acosh";
+			case ACOT  -> "acot";
+			case ACSC  -> "acsc";
+			case ASEC  -> "asec";
+			case ASINH -> "asinh";
+			case ATANH -> "atanh";
+			case COSH  -> "cosh";
+			case COT   -> "cot";
+			case CSC   -> "csc";
+			case SEC   -> "sec";
+			case SINH  -> "sinh";
+			case TANH  -> "tanh";
+			default    -> null;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	private byte[] createClassFile(
+		Expression.Node	tree)
+	{
+		// Generate code of applyAsDouble()
+		emit(tree);
+		emitInstruction(Opcode.DRETURN);
+		byte[] methodCode = code.toByteArray();
+		if (methodCode.length > MAX_CODE_LENGTH)
+			throw new IllegalStateException("Code too large");
+		if (maxStackSize > MAX_STACK_SIZE)
+			throw new IllegalStateException("Stack too large");
+		int maxLocals = FIRST_SLOT_INDEX + 2 * subexpressions.getNumSlots();
+		if (maxLocals > MAX_NUM_LOCALS)
+			throw new IllegalStateException("Too many local variables");
+
+		// Generate code of constructor
+		code.reset();
+		emitInstruction(Opcode.ALOAD_0);
+		emitInstruction(Opcode.INVOKESPECIAL,
+						constantPool.addMethodRef(OBJECT_CLASS_NAME, CONSTRUCTOR_NAME, VOID_DESCRIPTOR));
+		emitInstruction(Opcode.RETURN);
+		byte[] constructorCode = code.toByteArray();
+
+		// Add remaining entries to constant pool
+		int thisClassIndex = constantPool.addClass(CLASS_NAME);
+		int superClassIndex = constantPool.addClass(OBJECT_CLASS_NAME);
+		int interfaceIndex = constantPool.addClass(INTERFACE_NAME);
+		int constructorNameIndex = constantPool.addUtf8(CONSTRUCTOR_NAME);
+		int constructorDescIndex = constantPool.addUtf8(VOID_DESCRIPTOR);
+		int methodNameIndex = constantPool.addUtf8(METHOD_NAME);
+		int methodDescIndex = constantPool.addUtf8(UNARY_DOUBLE_DESCRIPTOR);
+		int codeAttrNameIndex = constantPool.addUtf8(CODE_ATTR_NAME);
+
+		// Write class file
+		try
+		{
+			ByteArrayOutputStream outStream = new ByteArrayOutputStream();
+			DataOutputStream dataOutStream = new DataOutputStream(outStream);
+
+			// Write header
+			dataOutStream.writeInt(CLASS_FILE_MAGIC);
+			dataOutStream.writeShort(0);
+			dataOutStream.writeShort(CLASS_FILE_MAJOR_VERSION);
+
+			// Write constant pool
+			constantPool.write(dataOutStream);
+
+			// Write class, superclass and interfaces
+			dataOutStream.writeShort(ACC_FINAL | ACC_SUPER);
+			dataOutStream.writeShort(thisClassIndex);
+			dataOutStream.writeShort(superClassIndex);
+			dataOutStream.writeShort(1);
+			dataOutStream.writeShort(interfaceIndex);
+
+			// Write fields
+			dataOutStream.writeShort(0);
+
+			// Write methods
+			dataOutStream.writeShort(2);
+			writeMethod(dataOutStream, constructorNameIndex, constructorDescIndex, codeAttrNameIndex, 1, 1,
+						constructorCode);
+			writeMethod(dataOutStream, methodNameIndex, methodDescIndex, codeAttrNameIndex, maxStackSize, maxLocals,
+						methodCode);
+
+			// Write class attributes
+			dataOutStream.writeShort(0);
+
+			return outStream.toByteArray();
+		}
+		catch (IOException e)
+		{
+			// not expected: a ByteArrayOutputStream doesn't throw an exception
+			throw new IllegalStateException(e);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeMethod(
+		DataOutputStream	outStream,
+		int					nameIndex,
+		int					descriptorIndex,
+		int					codeAttrNameIndex,
+		int					maxStack,
+		int					maxLocals,
+		byte[]				code)
+		throws IOException
+	{
+		outStream.writeShort(ACC_PUBLIC);
+		outStream.writeShort(nameIndex);
+		outStream.writeShort(descriptorIndex);
+		outStream.writeShort(1);
+
+		outStream.writeShort(codeAttrNameIndex);
+		outStream.writeInt(12 + code.length);
+		outStream.writeShort(maxStack);
+		outStream.writeShort(maxLocals);
+		outStream.writeInt(code.length);
+		outStream.write(code);
+		outStream.writeShort(0);	// exception table
+		outStream.writeShort(0);	// attributes
+	}
+
+	//------------------------------------------------------------------
+
+	private void emit(
+		Expression.Node	node)
+	{
+		// If the value of a common subexpression has already been stored, load it from its local variable
+		int slot = subexpressions.getSlot(node);
+		if ((slot >= 0) && slotsStored[slot])
+		{
+			emitLocalInstruction(Opcode.DLOAD, FIRST_SLOT_INDEX + 2 * slot);
+			pushDouble();
+			return;
+		}
+
+		// Constant
+		if (node instanceof Expression.Node.ConstantNode constantNode)
+		{
+			long bits = Double.doubleToRawLongBits(constantNode.value);
+			if (bits == 0)
+				emitInstruction(Opcode.DCONST_0);
+			else if (bits == Double.doubleToRawLongBits(1.0))
+				emitInstruction(Opcode.DCONST_1);
+			else
+				emitInstruction(Opcode.LDC2_W, constantPool.addDouble(constantNode.value));
+			pushDouble();
+		}
+
+		// Variable
+		else if (node instanceof Expression.Node.VariableNode)
+		{
+			emitInstruction(Opcode.DLOAD_1);
+			pushDouble();
+		}
+
+		// Unary operation
+		else if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+		{
+			emit(unaryNode.leftChild);
+
+			Expression.UnaryOperation operation = unaryNode.unaryOperation;
+			switch (operation)
+			{
+				case PLUS:
+					// do nothing
+					break;
+
+				case MINUS:
+					emitInstruction(Opcode.DNEG);
+					break;
+
+				default:
+				{
+					String name = getMathFunctionName(operation);
+					String className = MATH_CLASS_NAME;
+					if (name == null)
+					{
+						name = getMathFunctionsName(operation);
+						className = MATH_FUNCTIONS_CLASS_NAME;
+					}
+					if (name == null)
+						throw new IllegalStateException("Unsupported unary operation: " + operation);
+					emitInstruction(Opcode.INVOKESTATIC,
+									constantPool.addMethodRef(className, name, UNARY_DOUBLE_DESCRIPTOR));
+					break;
+				}
+			}
+		}
+
+		// Binary operation
+		else if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+		{
+			emit(binaryNode.leftChild);
+			emit(binaryNode.rightChild);
+
+			switch (binaryNode.binaryOperation)
+			{
+				case ADD:
+					emitInstruction(Opcode.DADD);
+					break;
+
+				case SUBTRACT:
+					emitInstruction(Opcode.DSUB);
+					break;
+
+				case MULTIPLY:
+					emitInstruction(Opcode.DMUL);
+					break;
+
+				case DIVIDE:
+					emitInstruction(Opcode.DDIV);
+					break;
+
+				case REMAINDER:
+					emitInstruction(Opcode.DREM);
+					break;
+
+				case IEEE_REMAINDER:
+					emitInstruction(Opcode.INVOKESTATIC,
+									constantPool.addMethodRef(MATH_CLASS_NAME, "IEEEremainder",
+															  BINARY_DOUBLE_DESCRIPTOR));
+					break;
+
+				case POWER:
+					emitInstruction(Opcode.INVOKESTATIC,
+									constantPool.addMethodRef(MATH_CLASS_NAME, "pow", BINARY_DOUBLE_DESCRIPTOR));
+					break;
+			}
+			popDouble();
+		}
+
+		// Parameter: it has no value until the expression is specialised
+		else if (node instanceof Expression.Node.ParameterNode)
+		{
+			emitInstruction(Opcode.LDC2_W, constantPool.addDouble(Double.NaN));
+			pushDouble();
+		}
+
+		// Unknown kind of node
+		else
+			throw new IllegalStateException("Unsupported node: " + node);
+
+		// Store the value of a common subexpression in its local variable
+		if (slot >= 0)
+		{
+			emitInstruction(Opcode.DUP2);
+			pushDouble();
+			emitLocalInstruction(Opcode.DSTORE, FIRST_SLOT_INDEX + 2 * slot);
+			popDouble();
+			slotsStored[slot] = true;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void emitInstruction(
+		int	opcode)
+	{
+		code.write(opcode);
+	}
+
+	//------------------------------------------------------------------
+
+	private void emitInstruction(
+		int	opcode,
+		int	operand)
+	{
+		code.write(opcode);
+		code.write(operand >> 8);
+		code.write(operand);
+	}
+
+	//------------------------------------------------------------------
+
+	private void emitLocalInstruction(
+		int	opcode,
+		int	index)
+	{
+		if (index > 0xFF)
+		{
+			code.write(Opcode.WIDE);
+			emitInstruction(opcode, index);
+		}
+		else
+		{
+			code.write(opcode);
+			code.write(index);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void pushDouble()
+	{
+		stackSize += 2;
+		maxStackSize = Math.max(stackSize, maxStackSize);
+	}
+
+	//------------------------------------------------------------------
+
+	private void popDouble()
+	{
+		stackSize -= 2;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member interfaces
+////////////////////////////////////////////////////////////////////////
+
+
+	// INTERFACE: CONSTANT-POOL ENTRY WRITER
+
+
+	@FunctionalInterface
+	private interface IEntryWriter
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Methods
+	////////////////////////////////////////////////////////////////////
+
+		void write(
+			DataOutputStream	outStream)
+			throws IOException;
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: CONSTANT POOL
+
+
+	private static class ConstantPool
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int	MAX_NUM_ENTRIES	= 65535;
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	ByteArrayOutputStream	outStream;
+		private	DataOutputStream		dataOutStream;
+		private	Map<Object, Integer>	indices;
+		private	int						nextIndex;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ConstantPool()
+		{
+			outStream = new ByteArrayOutputStream();
+			dataOutStream = new DataOutputStream(outStream);
+			indices = new HashMap<>();
+			nextIndex = 1;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private int addUtf8(
+			String	str)
+		{
+			return addEntry(Tag.UTF8 + ":" + str, 1, out ->
+			{
+				out.writeByte(Tag.UTF8);
+				out.writeUTF(str);
+			});
+		}
+
+		//--------------------------------------------------------------
+
+		private int addDouble(
+			double	value)
+		{
+			long bits = Double.doubleToRawLongBits(value);
+			return addEntry(bits, 2, out ->
+			{
+				out.writeByte(Tag.DOUBLE);
+				out.writeLong(bits);
+			});
+		}
+
+		//--------------------------------------------------------------
+
+		private int addClass(
+			String	name)
+		{
+			int nameIndex = addUtf8(name);
+			return addEntry(Tag.CLASS + ":" + name, 1, out ->
+			{
+				out.writeByte(Tag.CLASS);
+				out.writeShort(nameIndex);
+			});
+		}
+
+		//--------------------------------------------------------------
+
+		private int addNameAndType(
+			String	name,
+			String	descriptor)
+		{
+			int nameIndex = addUtf8(name);
+			int descriptorIndex = addUtf8(descriptor);
+			return addEntry(Tag.NAME_AND_TYPE + ":" + name + ":" + descriptor, 1, out ->
+			{
+				out.writeByte(Tag.NAME_AND_TYPE);
+				out.writeShort(nameIndex);
+				out.writeShort(descriptorIndex);
+			});
+		}
+
+		//--------------------------------------------------------------
+
+		private int addMethodRef(
+			String	className,
+			String	name,
+			String	descriptor)
+		{
+			int classIndex = addClass(className);
+			int nameAndTypeIndex = addNameAndType(name, descriptor);
+			return addEntry(Tag.METHOD_REF + ":" + className + "." + name + ":" + descriptor, 1, out ->
+			{
+				out.writeByte(Tag.METHOD_REF);
+				out.writeShort(classIndex);
+				out.writeShort(nameAndTypeIndex);
+			});
+		}
+
+		//--------------------------------------------------------------
+
+		private int addEntry(
+			Object			key,
+			int				numSlots,
+			IEntryWriter	writer)
+		{
+			Integer index = indices.get(key);
+			if (index == null)
+			{
+				if (nextIndex + numSlots > MAX_NUM_ENTRIES)
+					throw new IllegalStateException("Constant pool too large");
+				try
+				{
+					writer.write(dataOutStream);
+				}
+				catch (IOException e)
+				{
+					// not expected: a ByteArrayOutputStream doesn't throw an exception
+					throw new IllegalStateException(e);
+				}
+				index = nextIndex;
+				indices.put(key, index);
+				nextIndex += numSlots;
+			}
+			return index;
+		}
+
+		//--------------------------------------------------------------
+
+		private void write(
+			DataOutputStream	outStream)
+			throws IOException
+		{
+			outStream.writeShort(nextIndex);
+			this.outStream.writeTo(outStream);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,285 @@
+/*====================================================================*\
+
+ExpressionOptimiser.java
+
+Class: expression optimiser.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: EXPRESSION OPTIMISER
+
+
+/**
+ * This class rewrites the abstract syntax tree of an {@link Expression} into an equivalent tree that is cheaper to
+ * evaluate.  The following rewrites are performed:
+ * <ul>
+ *   <li>subtrees that depend neither on the variable nor on any parameter are replaced by constants,</li>
+ *   <li>a power with a small integer exponent is replaced by a chain of multiplications,</li>
+ *   <li>a power with an exponent of 0.5 is replaced by a square root if its base cannot be -&infin;, because
+ *       -&infin; to the power of 0.5 is +&infin; but the square root of -&infin; is NaN,</li>
+ *   <li>identity operations (unary plus, double negation, the addition or subtraction of zero, and multiplication or
+ *       division by one) are removed.</li>
+ * </ul>
+ * <p>
+ * A chain of multiplications repeats the base of the power, but a repeated base is evaluated only once because it is a
+ * common subexpression (see {@link SubexpressionTable}).
+ * </p>
+ * <p>
+ * The rewritten tree is a new tree: the tree from which it is derived is not modified.  The rewrites may change the
+ * sign of a zero result and the result of a power in the last place, but otherwise the rewritten tree has the same
+ * value as the original tree.
+ * </p>
+ */
+
+class ExpressionOptimiser
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The largest magnitude of an integer exponent for which a power is replaced by a chain of multiplications. */
+	private static final	int		MAX_MULTIPLICATION_EXPONENT	= 4;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private ExpressionOptimiser()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns a tree that is equivalent to the specified abstract syntax tree but that is cheaper to evaluate.
+	 *
+	 * @param  tree
+	 *           the tree that will be optimised.
+	 * @return an optimised copy of {@code tree}, or {@code null} if {@code tree} is {@code null}.
+	 */
+
+	public static Expression.Node optimise(
+		Expression.Node	tree)
+	{
+		if (tree == null)
+			return null;
+
+		Expression.Node node = rewrite(tree);
+		node.parent = null;
+		return node;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node rewrite(
+		Expression.Node	node)
+	{
+		if (node instanceof Expression.Node.ConstantNode constantNode)
+			return constant(constantNode.value);
+
+		if (node instanceof Expression.Node.VariableNode)
+			return new Expression.Node.VariableNode(null);
+
+		if (node instanceof Expression.Node.ParameterNode parameterNode)
+			return new Expression.Node.ParameterNode(null, parameterNode.name);
+
+		if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+			return rewriteUnary(unaryNode.unaryOperation, rewrite(unaryNode.leftChild));
+
+		if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+			return rewriteBinary(binaryNode.binaryOperation, rewrite(binaryNode.leftChild),
+								 rewrite(binaryNode.rightChild));
+
+		return constant(Double.NaN);
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node rewriteUnary(
+		Expression.UnaryOperation	operation,
+		Expression.Node				operand)
+	{
+		// Fold constant
+		if (operand instanceof Expression.Node.ConstantNode constantNode)
+			return constant(operation.evaluate(constantNode.value));
+
+		// Remove unary plus
+		if (operation == Expression.UnaryOperation.PLUS)
+			return operand;
+
+		// Remove double negation
+		if ((operation == Expression.UnaryOperation.MINUS)
+				&& (operand instanceof Expression.Node.UnaryOperationNode node)
+				&& (node.unaryOperation == Expression.UnaryOperation.MINUS))
+			return node.leftChild;
+
+		return unary(operation, operand);
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node rewriteBinary(
+		Expression.BinaryOperation	operation,
+		Expression.Node				operand1,
+		Expression.Node				operand2)
+	{
+		// Fold constant
+		if ((operand1 instanceof Expression.Node.ConstantNode constantNode1)
+				&& (operand2 instanceof Expression.Node.ConstantNode constantNode2))
+			return constant(operation.evaluate(constantNode1.value, constantNode2.value));
+
+		// Remove identity operations and reduce the strength of powers
+		switch (operation)
+		{
+			case ADD:
+				if (isConstant(operand2, 0.0))
+					return operand1;
+				if (isConstant(operand1, 0.0))
+					return operand2;
+				break;
+
+			case SUBTRACT:
+				if (isConstant(operand2, 0.0))
+					return operand1;
+				break;
+
+			case MULTIPLY:
+				if (isConstant(operand2, 1.0))
+					return operand1;
+				if (isConstant(operand1, 1.0))
+					return operand2;
+				break;
+
+			case DIVIDE:
+				if (isConstant(operand2, 1.0))
+					return operand1;
+				break;
+
+			case POWER:
+				if (operand2 instanceof Expression.Node.ConstantNode exponentNode)
+				{
+					double exponent = exponentNode.value;
+					if (exponent == 0.0)
+						return constant(1.0);
+					if ((exponent == 0.5) && !canBeNegativeInfinity(operand1))
+						return unary(Expression.UnaryOperation.SQRT, operand1);
+					int n = (int)Math.abs(exponent);
+					if ((exponent == Math.rint(exponent)) && (n <= MAX_MULTIPLICATION_EXPONENT))
+					{
+						Expression.Node node = operand1;
+						for (int i = 1; i < n; i++)
+							node = binary(Expression.BinaryOperation.MULTIPLY, node, copy(operand1));
+						return (exponent < 0.0) ? binary(Expression.BinaryOperation.DIVIDE, constant(1.0), node) : node;
+					}
+				}
+				break;
+
+			default:
+				break;
+		}
+
+		return binary(operation, operand1, operand2);
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean isConstant(
+		Expression.Node	node,
+		double			value)
+	{
+		return (node instanceof Expression.Node.ConstantNode constantNode) && (constantNode.value == value);
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean canBeNegativeInfinity(
+		Expression.Node	node)
+	{
+		// The variable is always finite, and the functions below are bounded below or undefined at -infinity
+		if (node instanceof Expression.Node.VariableNode)
+			return false;
+		if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+		{
+			return switch (unaryNode.unaryOperation)
+			{
+				case ABS, ACOS, ASIN, ATAN, COS, COSH, EXP, SIN, SQRT, TANH -> false;
+				default                                                   -> true;
+			};
+		}
+		return true;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node copy(
+		Expression.Node	node)
+	{
+		if (node instanceof Expression.Node.ConstantNode constantNode)
+			return constant(constantNode.value);
+
+		if (node instanceof Expression.Node.ParameterNode parameterNode)
+			return new Expression.Node.ParameterNode(null, parameterNode.name);
+
+		if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+			return unary(unaryNode.unaryOperation, copy(unaryNode.leftChild));
+
+		if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+			return binary(binaryNode.binaryOperation, copy(binaryNode.leftChild), copy(binaryNode.rightChild));
+
+		return new Expression.Node.VariableNode(null);
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node constant(
+		double	value)
+	{
+		return new Expression.Node.ConstantNode(null, value);
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node unary(
+		Expression.UnaryOperation	operation,
+		Expression.Node				operand)
+	{
+		Expression.Node node = new Expression.Node.UnaryOperationNode(null, operation);
+		node.leftChild = operand;
+		operand.parent = node;
+		return node;
+	}
+
+	//------------------------------------------------------------------
+
+	private static Expression.Node binary(
+		Expression.BinaryOperation	operation,
+		Expression.Node				operand1,
+		Expression.Node				operand2)
+	{
+		Expression.Node node = new Expression.Node.BinaryOperationNode(null, operation);
+		node.leftChild = operand1;
+		node.rightChild = operand2;
+		operand1.parent = node;
+		operand2.parent = node;
+		return node;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
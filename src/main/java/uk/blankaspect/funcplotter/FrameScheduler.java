@@ -0,0 +1,216 @@
+/*====================================================================*\
+
+FrameScheduler.java
+
+Class: scheduler of the resolution of the functions of a frame.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Map;
+import java.util.WeakHashMap;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: SCHEDULER OF THE RESOLUTION OF THE FUNCTIONS OF A FRAME
+
+
+/**
+ * This class schedules the resolution at which the functions of a plot are sampled in a render, so that the render
+ * stays within a budget of time for a frame.
+ * <p>
+ * The time that it takes to sample a function is predicted from a cost model.  Before a function has been sampled, the
+ * time per sample point is estimated from the cost of its expression (see {@link Expression#getCost()}), which is
+ * multiplied by the time per unit of cost.  Each time that the renderer samples a function in full, it reports the
+ * time that sampling took; the measured time per point then replaces the estimate for the function, and it calibrates
+ * the time per unit of cost for functions that have not been measured.  Both are smoothed exponentially, so that a
+ * single slow render (for example, one that is delayed by garbage collection) has only a small effect.
+ * </p>
+ * <p>
+ * The resolution of a function is expressed as a <i>column step</i>: a function is sampled in every <i>n</i>th column
+ * of the plot.  Initially, every function is scheduled at the least column step of the render.  While the predicted
+ * time of the render exceeds the budget, the column step of the function whose predicted time is greatest is doubled,
+ * up to a maximum; so cheap functions stay at full resolution and the resolution of expensive ones degrades gracefully.
+ * A function that is degraded is expected to be sampled again at full resolution once the frame has been shown.
+ * </p>
+ * <p>
+ * This class is not thread-safe; it is intended to be accessed only on the thread of the renderer.
+ * </p>
+ */
+
+class FrameScheduler
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	// The weight of a new measurement in the exponentially smoothed times
+	private static final	double	SMOOTHING_FACTOR	= 0.25;
+
+	// The initial estimate of the time, in nanoseconds, to evaluate one unit of the cost of an expression
+	private static final	double	INITIAL_TIME_PER_COST_UNIT	= 2.0;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	long					frameBudget;
+	private	int						maxColumnStep;
+	private	double					timePerCostUnit;
+	private	Map<Expression, Double>	timesPerPoint;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a scheduler.
+	 *
+	 * @param frameBudget
+	 *          the time, in nanoseconds, within which the functions of a frame should be sampled.
+	 * @param maxColumnStep
+	 *          the greatest column step at which a function may be scheduled.
+	 */
+
+	public FrameScheduler(
+		long	frameBudget,
+		int		maxColumnStep)
+	{
+		// Initialise instance variables
+		this.frameBudget = frameBudget;
+		this.maxColumnStep = maxColumnStep;
+		timePerCostUnit = INITIAL_TIME_PER_COST_UNIT;
+		timesPerPoint = new WeakHashMap<>();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the predicted time to sample the specified function at one point.
+	 *
+	 * @param  expression
+	 *           the expression of the function.
+	 * @param  specialisedExpression
+	 *           the specialisation of {@code expression} to the current values of its parameters.
+	 * @return the time, in nanoseconds, that it is predicted to take to sample the function at one point: the smoothed
+	 *         measured time if the function has been measured, or an estimate from the cost of {@code
+	 *         specialisedExpression} otherwise.
+	 */
+
+	public double getTimePerPoint(
+		Expression	expression,
+		Expression	specialisedExpression)
+	{
+		Double time = timesPerPoint.get(expression);
+		return (time == null) ? (double)specialisedExpression.getCost() * timePerCostUnit : time;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds a measurement of the time that it took to sample the specified function to the cost model.
+	 *
+	 * @param expression
+	 *          the expression of the function.
+	 * @param specialisedExpression
+	 *          the specialisation of {@code expression} that was sampled.
+	 * @param time
+	 *          the time, in nanoseconds, that it took to sample the function.
+	 * @param numPoints
+	 *          the number of points at which the function was sampled.
+	 */
+
+	public void addMeasurement(
+		Expression	expression,
+		Expression	specialisedExpression,
+		long		time,
+		int			numPoints)
+	{
+		if ((time > 0) && (numPoints > 0))
+		{
+			double timePerPoint = (double)time / (double)numPoints;
+			timesPerPoint.merge(expression, timePerPoint, (prevTime, newTime) -> smooth(prevTime, newTime));
+			timePerCostUnit = smooth(timePerCostUnit,
+									 timePerPoint / (double)Math.max(1, specialisedExpression.getCost()));
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the column steps at which the functions of a frame should be sampled so that the frame stays within the
+	 * budget.  The column step of each function is the least column step multiplied by a power of 2.
+	 *
+	 * @param  times
+	 *           the predicted time, in nanoseconds, to sample each function at the least column step.
+	 * @param  minColumnStep
+	 *           the least column step.
+	 * @return the column step at which each function should be sampled, in the order of {@code times}.
+	 */
+
+	public int[] getColumnSteps(
+		double[]	times,
+		int			minColumnStep)
+	{
+		// Start with every function at the least column step
+		int[] columnSteps = new int[times.length];
+		double totalTime = 0.0;
+		for (int i = 0; i < times.length; i++)
+		{
+			columnSteps[i] = minColumnStep;
+			totalTime += times[i];
+		}
+
+		// Halve the resolution of the most expensive function that can be degraded until the frame is within budget
+		while (totalTime > (double)frameBudget)
+		{
+			int index = -1;
+			double maxTime = 0.0;
+			for (int i = 0; i < times.length; i++)
+			{
+				double time = times[i] * (double)minColumnStep / (double)columnSteps[i];
+				if ((2 * columnSteps[i] <= maxColumnStep) && (time > maxTime))
+				{
+					index = i;
+					maxTime = time;
+				}
+			}
+			if (index < 0)
+				break;
+			columnSteps[index] *= 2;
+			totalTime -= 0.5 * maxTime;
+		}
+		return columnSteps;
+	}
+
+	//------------------------------------------------------------------
+
+	private double smooth(
+		double	prevValue,
+		double	value)
+	{
+		return prevValue + SMOOTHING_FACTOR * (value - prevValue);
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
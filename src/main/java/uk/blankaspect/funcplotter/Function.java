@@ -82,14 +82,8 @@ class Function
 		{
 			Function copy = (Function)super.clone();
 			copy.colour = ColourUtils.copy(colour);
-			try
-			{
-				copy.expression = new Expression(expression.toString());
-			}
-			catch (Expression.Exception e)
-			{
-				// no exception is thrown
-			}
+
+			// The expression is immutable, so it is shared by the copy
 			return copy;
 		}
 		catch (CloneNotSupportedException e)
@@ -50,6 +50,9 @@ import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.KeyStroke;
 
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
 import uk.blankaspect.common.exception.AppException;
 
 import uk.blankaspect.common.string.StringUtils;
@@ -77,7 +80,7 @@ import uk.blankaspect.ui.swing.workaround.LinuxWorkarounds;
 
 class FunctionDialog
 	extends JDialog
-	implements ActionListener, FlavorListener
+	implements ActionListener, DocumentListener, FlavorListener
 {
 
 ////////////////////////////////////////////////////////////////////////
@@ -90,16 +93,21 @@ class FunctionDialog
 
 	private static final	int		EXPRESSION_FIELD_LENGTH	= 512;
 
-	private static final	String	COLOUR_STR			= "Colour";
-	private static final	String	EXPRESSION_STR		= "Expression";
-	private static final	String	COPY_STR			= "Copy";
-	private static final	String	PASTE_STR			= "Paste";
-	private static final	String	CLEAR_STR			= "Clear";
-	private static final	String	COLOUR_TITLE_STR	= "Colour of plotted function";
-	private static final	String	COPY_TOOLTIP_STR	= "Copy expression to clipboard";
-	private static final	String	PASTE_TOOLTIP_STR	= "Replace expression with text from clipboard";
-	private static final	String	CLEAR_TOOLTIP_STR	= "Clear expression (Ctrl+Delete)";
-	private static final	String	SYNTAX_ERROR_STR	= "Syntax error";
+	private static final	String	COLOUR_STR				= "Colour";
+	private static final	String	EXPRESSION_STR			= "Expression";
+	private static final	String	PARAMETERS_STR			= "Parameters";
+	private static final	String	NO_PARAMETERS_STR		= "None";
+	private static final	String	NEW_PARAMETER_STR		= " (new)";
+	private static final	String	SEPARATOR_STR			= ", ";
+	private static final	String	COPY_STR				= "Copy";
+	private static final	String	PASTE_STR				= "Paste";
+	private static final	String	CLEAR_STR				= "Clear";
+	private static final	String	COLOUR_TITLE_STR		= "Colour of plotted function";
+	private static final	String	COPY_TOOLTIP_STR		= "Copy expression to clipboard";
+	private static final	String	PASTE_TOOLTIP_STR		= "Replace expression with text from clipboard";
+	private static final	String	CLEAR_TOOLTIP_STR		= "Clear expression (Ctrl+Delete)";
+	private static final	String	SYNTAX_ERROR_STR		= "Syntax error";
+	private static final	String	ELIMINATED_NODES_STR	= "Nodes eliminated by common subexpressions: ";
 
 	// Commands
 	private interface Command
@@ -132,6 +140,7 @@ class FunctionDialog
 ////////////////////////////////////////////////////////////////////////
 
 	private	ExpressionField	expressionField;
+	private	JLabel			parametersLabel;
 	private	JButton			colourButton;
 	private	ColourButton[]	functionColourButtons;
 	private	JButton			pasteButton;
@@ -279,6 +288,38 @@ class FunctionDialog
 		gridBag.setConstraints(expressionField, gbc);
 		controlPanel.add(expressionField);
 
+		// Label: parameters
+		JLabel parametersTitleLabel = new FLabel(PARAMETERS_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(parametersTitleLabel, gbc);
+		controlPanel.add(parametersTitleLabel);
+
+		// Label: names of parameters
+		parametersLabel = new FLabel(NO_PARAMETERS_STR);
+		updateExpressionDetails();
+		expressionField.getDocument().addDocumentListener(this);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(parametersLabel, gbc);
+		controlPanel.add(parametersLabel);
+
 
 		//----  Button panel: copy, paste, clear
 
@@ -496,6 +537,34 @@ class FunctionDialog
 
 	//------------------------------------------------------------------
 
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : DocumentListener interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void changedUpdate(DocumentEvent event)
+	{
+		// do nothing
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public void insertUpdate(DocumentEvent event)
+	{
+		updateExpressionDetails();
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public void removeUpdate(DocumentEvent event)
+	{
+		updateExpressionDetails();
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : FlavourListener interface
 ////////////////////////////////////////////////////////////////////////
@@ -549,6 +618,48 @@ class FunctionDialog
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Updates the label that shows the parameters of the expression and the tooltip of the expression field.  Any
+	 * single letter other than <i>x</i> and <i>e</i> in an expression is a parameter, so the parameters are shown as
+	 * the expression is edited, and those that are not already parameters of the functions of the document are marked
+	 * as new, so that a mistyped variable is not mistaken for <i>x</i>.  The tooltip shows the number of nodes of the
+	 * expression that are not evaluated because they belong to a repeated subexpression.  If the expression is not
+	 * valid, the label and the tooltip are left unchanged.
+	 */
+
+	private void updateExpressionDetails()
+	{
+		try
+		{
+			Expression expression = expressionField.getExpression();
+			String names = expression.getParameterNames();
+			FunctionDocument document = FuncPlotterApp.INSTANCE.getDocument();
+			String documentNames = (document == null) ? "" : document.getParameterNames();
+			StringBuilder buffer = new StringBuilder();
+			for (int i = 0; i < names.length(); i++)
+			{
+				char name = names.charAt(i);
+				if (!buffer.isEmpty())
+					buffer.append(SEPARATOR_STR);
+				buffer.append(name);
+				if (documentNames.indexOf(name) < 0)
+					buffer.append(NEW_PARAMETER_STR);
+			}
+			parametersLabel.setText(buffer.isEmpty() ? NO_PARAMETERS_STR : buffer.toString());
+
+			// Show the number of nodes that are eliminated by common subexpressions
+			int numEliminatedNodes = expression.getNumEliminatedNodes();
+			expressionField.setToolTipText((numEliminatedNodes == 0) ? null
+																	 : ELIMINATED_NODES_STR + numEliminatedNodes);
+		}
+		catch (Expression.Exception e)
+		{
+			// ignore
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	private void validateUserInput()
 		throws AppException
 	{
@@ -808,7 +919,7 @@ class FunctionDialog
 		public Expression getExpression()
 			throws Expression.Exception
 		{
-			return new Expression(getText());
+			return Expression.valueOf(getText());
 		}
 
 		//--------------------------------------------------------------
@@ -26,6 +26,7 @@ import java.awt.event.ActionEvent;
 import java.awt.event.KeyEvent;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 
 import java.beans.PropertyChangeListener;
 
@@ -142,7 +143,8 @@ class FunctionDocument
 		X_INTERVAL,
 		Y_INTERVAL,
 		INTERVALS,
-		FUNCTION_LIST
+		FUNCTION_LIST,
+		PARAMETERS
 	}
 
 	private enum TextState
@@ -159,12 +161,17 @@ class FunctionDocument
 	{
 		String	FUNCTION		= "function";
 		String	FUNCTION_LIST	= "functionList";
+		String	PARAMETER		= "parameter";
 	}
 
 	private interface AttrName
 	{
 		String	COLOUR		= "colour";
 		String	EXPRESSION	= "expression";
+		String	LOWER		= "lower";
+		String	NAME		= "name";
+		String	UPPER		= "upper";
+		String	VALUE		= "value";
 		String	VERSION		= "version";
 		String	XMLNS		= "xmlns";
 		String	X_INTERVAL	= "xInterval";
@@ -181,6 +188,8 @@ class FunctionDocument
 	private	int				unnamedIndex;
 	private	boolean			executingCommand;
 	private	List<Function>	functions;
+	private	ParameterSet	parameters;
+	private	Double			parameterStartValue;
 	private	PlotInterval	xInterval;
 	private	PlotInterval	yInterval;
 	private	PlotInterval	xStartInterval;
@@ -197,6 +206,7 @@ class FunctionDocument
 	{
 		fileKind = AppConfig.INSTANCE.getDefaultFileKind();
 		functions = new ArrayList<>();
+		parameters = new ParameterSet();
 		xInterval = new PlotInterval();
 		yInterval = new PlotInterval();
 		comment = new Comment();
@@ -404,6 +414,39 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
+	public ParameterSet getParameters()
+	{
+		return parameters;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the names of the parameters of the functions of this document.
+	 *
+	 * @return a string that contains the name of each parameter of the functions of this document once, in
+	 *         alphabetical order.
+	 */
+
+	public String getParameterNames()
+	{
+		StringBuilder buffer = new StringBuilder();
+		for (char name = 'a'; name <= 'z'; name++)
+		{
+			for (Function function : functions)
+			{
+				if (function.getExpression().getParameterNames().indexOf(name) >= 0)
+				{
+					buffer.append(name);
+					break;
+				}
+			}
+		}
+		return buffer.toString();
+	}
+
+	//------------------------------------------------------------------
+
 	public boolean isFull()
 	{
 		return (functions.size() >= MAX_NUM_FUNCTIONS);
@@ -559,7 +602,9 @@ class FunctionDocument
 		progressView.setProgress(0, -1.0);
 
 		// Write file
-		PngOutputFile imageFile = new PngOutputFile(file, getImage());
+		AppConfig config = AppConfig.INSTANCE;
+		PngOutputFile imageFile = new PngOutputFile(file, getImage(), config.getPngCompressionLevel(),
+													config.getPngFilterStrategy());
 		imageFile.addProgressListener(progressView);
 		imageFile.write(FileWritingMode.USE_TEMP_FILE);
 	}
@@ -621,6 +666,8 @@ class FunctionDocument
 		Command.REVERSE_FUNCTIONS.setEnabled(getNumFunctions() > 1);
 		Command.TOGGLE_SHOW_GRID.setEnabled(isView);
 		Command.TOGGLE_SHOW_GRID.setSelected(isView && getView().getPlotPanel().isGridVisible());
+		Command.TOGGLE_ENVELOPE_MODE.setEnabled(isView);
+		Command.TOGGLE_ENVELOPE_MODE.setSelected(isView && getView().getPlotPanel().isEnvelopeMode());
 	}
 
 	//------------------------------------------------------------------
@@ -665,7 +712,10 @@ class FunctionDocument
 					case SET_X_INTERVAL            -> onSetXInterval();
 					case SET_Y_INTERVAL            -> onSetYInterval();
 					case SET_INTERVALS             -> onSetIntervals();
+					case SET_PARAMETER             -> onSetParameter();
+					case EDIT_PARAMETER_RANGE      -> onEditParameterRange();
 					case TOGGLE_SHOW_GRID          -> onToggleShowGrid();
+					case TOGGLE_ENVELOPE_MODE      -> onToggleEnvelopeMode();
 				};
 			}
 			catch (OutOfMemoryError e)
@@ -803,6 +853,55 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
+	private void setParameterValue(
+		char	name,
+		double	value)
+	{
+		parameters.setValue(name, value);
+		updateView(ViewComponent.PLOT, ViewComponent.PARAMETERS);
+	}
+
+	//------------------------------------------------------------------
+
+	private void setParameter(
+		char					name,
+		ParameterSet.Parameter	parameter)
+	{
+		parameters.set(name, parameter);
+		updateView(ViewComponent.PLOT, ViewComponent.PARAMETERS);
+	}
+
+	//------------------------------------------------------------------
+
+	private ParameterEdit setParameter(
+		char	name,
+		double	value,
+		boolean	end)
+	{
+		ParameterEdit edit = null;
+
+		if (parameterStartValue == null)
+			parameterStartValue = parameters.getValue(name);
+
+		if (end && (value != parameterStartValue))
+		{
+			ParameterSet.Parameter parameter = parameters.get(name);
+			edit = new ParameterEdit(name,
+									 new ParameterSet.Parameter(parameterStartValue, parameter.lowerBound(),
+																parameter.upperBound()),
+									 new ParameterSet.Parameter(value, parameter.lowerBound(),
+																parameter.upperBound()));
+		}
+		setParameterValue(name, value);
+
+		if (end)
+			parameterStartValue = null;
+
+		return edit;
+	}
+
+	//------------------------------------------------------------------
+
 	private boolean setHighlight(int     index,
 								 boolean highlighted)
 	{
@@ -941,6 +1040,9 @@ class FunctionDocument
 						hasComment = true;
 					}
 
+					else if (elementName.equals(ElementName.PARAMETER))
+						parseParameter((Element)node);
+
 					else if (elementName.equals(ElementName.FUNCTION))
 					{
 						if (isFull())
@@ -977,7 +1079,7 @@ class FunctionDocument
 		Expression expression = null;
 		try
 		{
-			expression = new Expression(attrValue);
+			expression = Expression.valueOf(attrValue);
 		}
 		catch (Expression.Exception e)
 		{
@@ -1010,6 +1112,61 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
+	private void parseParameter(Element element)
+		throws XmlParseException
+	{
+		String elementPath = XmlUtils.getElementPath(element);
+
+		// Attribute: name
+		String attrName = AttrName.NAME;
+		String attrKey = XmlUtils.appendAttributeName(elementPath, attrName);
+		String attrValue = XmlUtils.getAttribute(element, attrName);
+		if (attrValue == null)
+			throw new XmlParseException(ErrorId.NO_ATTRIBUTE, attrKey);
+		if ((attrValue.length() != 1) || !ParameterSet.isValidName(attrValue.charAt(0)))
+			throw new XmlParseException(ErrorId.INVALID_ATTRIBUTE, attrKey, attrValue);
+		char name = attrValue.charAt(0);
+
+		// Attributes: value, lower bound and upper bound
+		double value = parseDouble(element, elementPath, AttrName.VALUE, ParameterSet.DEFAULT_VALUE);
+		double lowerBound = parseDouble(element, elementPath, AttrName.LOWER, ParameterSet.DEFAULT_LOWER_BOUND);
+		double upperBound = parseDouble(element, elementPath, AttrName.UPPER, ParameterSet.DEFAULT_UPPER_BOUND);
+		if (lowerBound >= upperBound)
+		{
+			attrKey = XmlUtils.appendAttributeName(elementPath, AttrName.UPPER);
+			throw new XmlParseException(ErrorId.ATTRIBUTE_OUT_OF_BOUNDS, attrKey, Double.toString(upperBound));
+		}
+
+		parameters.set(name, new ParameterSet.Parameter(value, lowerBound, upperBound));
+	}
+
+	//------------------------------------------------------------------
+
+	private double parseDouble(Element element,
+							   String  elementPath,
+							   String  attrName,
+							   double  defaultValue)
+		throws XmlParseException
+	{
+		String attrKey = XmlUtils.appendAttributeName(elementPath, attrName);
+		String attrValue = XmlUtils.getAttribute(element, attrName);
+		if (attrValue == null)
+			return defaultValue;
+		try
+		{
+			double value = Double.parseDouble(attrValue);
+			if (Double.isFinite(value))
+				return value;
+		}
+		catch (NumberFormatException e)
+		{
+			// do nothing
+		}
+		throw new XmlParseException(ErrorId.INVALID_ATTRIBUTE, attrKey, attrValue);
+	}
+
+	//------------------------------------------------------------------
+
 	private void parseText(StringBuilder text,
 						   List<String>  errorStrs)
 		throws AppException
@@ -1230,7 +1387,7 @@ class FunctionDocument
 		String[] functionParts = StringUtils.splitAtFirst(str, Function.SEPARATOR_CHAR);
 
 		// Parse expression
-		Expression expression = new Expression(functionParts[0]);
+		Expression expression = Expression.valueOf(functionParts[0]);
 
 		// Parse colour
 		if (functionParts[1] != null)
@@ -1281,6 +1438,20 @@ class FunctionDocument
 			if (!comment.isEmpty())
 				comment.write(writer, 2, 4);
 
+			// Write parameter elements
+			String parameterNames = getParameterNames();
+			for (int i = 0; i < parameterNames.length(); i++)
+			{
+				char name = parameterNames.charAt(i);
+				ParameterSet.Parameter parameter = parameters.get(name);
+				attributes.clear();
+				attributes.add(AttrName.NAME, Character.toString(name));
+				attributes.add(AttrName.VALUE, parameter.value());
+				attributes.add(AttrName.LOWER, parameter.lowerBound());
+				attributes.add(AttrName.UPPER, parameter.upperBound());
+				writer.writeEmptyElement(ElementName.PARAMETER, attributes, 2, true);
+			}
+
 			// Write function elements
 			for (Function function : functions)
 			{
@@ -1361,10 +1532,16 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
-	private BufferedImage getImage()
+	private RenderedImage getImage()
 		throws AppException
 	{
+		// If the image is larger than the plot, render it in bands as it is written
 		PlotPanel plotPanel = getView().getPlotPanel();
+		int scale = AppConfig.INSTANCE.getImageScale();
+		if (scale > 1)
+			return plotPanel.createImage(scale);
+
+		// Draw the plot in an image of its own size
 		Dimension size = plotPanel.getPreferredSize();
 		BufferedImage image = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_RGB);
 		plotPanel.drawPanel(image.createGraphics());
@@ -1388,6 +1565,7 @@ class FunctionDocument
 					case Y_INTERVAL    -> view.updateYInterval();
 					case INTERVALS     -> view.updateIntervals();
 					case FUNCTION_LIST -> view.updateFunctionList();
+					case PARAMETERS    -> view.updateParameters();
 				}
 			}
 		}
@@ -1767,6 +1945,33 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
+	private ParameterEdit onSetParameter()
+	{
+		Command command = Command.SET_PARAMETER;
+		char name = (Character)command.getValue(Command.Property.NAME);
+		double value = (Double)command.getValue(Command.Property.VALUE);
+		boolean end = (Boolean)command.getValue(Command.Property.END);
+		return setParameter(name, value, end);
+	}
+
+	//------------------------------------------------------------------
+
+	private ParameterEdit onEditParameterRange()
+	{
+		ParameterEdit edit = null;
+		char name = (Character)Command.EDIT_PARAMETER_RANGE.getValue(Command.Property.NAME);
+		ParameterSet.Parameter oldParameter = parameters.get(name);
+		ParameterSet.Parameter newParameter = ParameterRangeDialog.showDialog(getWindow(), name, oldParameter);
+		if ((newParameter != null) && !newParameter.equals(oldParameter))
+		{
+			edit = new ParameterEdit(name, oldParameter, newParameter);
+			setParameter(name, newParameter);
+		}
+		return edit;
+	}
+
+	//------------------------------------------------------------------
+
 	private EditList.IEdit onToggleShowGrid()
 	{
 		PlotPanel plotPanel = getView().getPlotPanel();
@@ -1776,6 +1981,15 @@ class FunctionDocument
 
 	//------------------------------------------------------------------
 
+	private EditList.IEdit onToggleEnvelopeMode()
+	{
+		PlotPanel plotPanel = getView().getPlotPanel();
+		plotPanel.setEnvelopeMode(!plotPanel.isEnvelopeMode());
+		return null;
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Enumerated types
 ////////////////////////////////////////////////////////////////////////
@@ -1968,11 +2182,28 @@ class FunctionDocument
 			"setIntervals"
 		),
 
+		SET_PARAMETER
+		(
+			"setParameter"
+		),
+
+		EDIT_PARAMETER_RANGE
+		(
+			"editParameterRange"
+		),
+
 		TOGGLE_SHOW_GRID
 		(
 			"toggleShowGrid",
 			"Grid",
 			KeyStroke.getKeyStroke(KeyEvent.VK_G, KeyEvent.CTRL_DOWN_MASK)
+		),
+
+		TOGGLE_ENVELOPE_MODE
+		(
+			"toggleEnvelopeMode",
+			"Min/max envelope",
+			KeyStroke.getKeyStroke(KeyEvent.VK_E, KeyEvent.CTRL_DOWN_MASK | KeyEvent.SHIFT_DOWN_MASK)
 		);
 
 		//--------------------------------------------------------------
@@ -1982,6 +2213,8 @@ class FunctionDocument
 		{
 			String	END			= "end";
 			String	INDEX		= "index";
+			String	NAME		= "name";
+			String	VALUE		= "value";
 			String	X_INTERVAL	= "xInterval";
 			String	Y_INTERVAL	= "yInterval";
 		}
@@ -2517,6 +2750,62 @@ class FunctionDocument
 	//==================================================================
 
 
+	// CLASS: PARAMETER EDIT
+
+
+	private class ParameterEdit
+		implements EditList.IEdit
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	char					name;
+		private	ParameterSet.Parameter	oldParameter;
+		private	ParameterSet.Parameter	newParameter;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ParameterEdit(
+			char					name,
+			ParameterSet.Parameter	oldParameter,
+			ParameterSet.Parameter	newParameter)
+		{
+			this.name = name;
+			this.oldParameter = oldParameter;
+			this.newParameter = newParameter;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : EditList.IEdit interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public void undo()
+		{
+			setParameter(name, oldParameter);
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		public void redo()
+		{
+			setParameter(name, newParameter);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
 	// CLASS: COMMENT EDIT
 
 
@@ -0,0 +1,304 @@
+/*====================================================================*\
+
+FunctionEnvelope.java
+
+Class: envelope of a function.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.concurrent.CancellationException;
+
+import java.util.function.BooleanSupplier;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: ENVELOPE OF A FUNCTION
+
+
+/**
+ * This class holds the <i>envelope</i> of a function over a sequence of equally spaced <i>columns</i>: the least and
+ * greatest values of the function at several sub-samples in each column.  An envelope is drawn as a vertical span in
+ * each column, like the display of a waveform, so that a function that oscillates faster than the columns shows the
+ * range of values that it covers rather than an aliased curve.
+ * <p>
+ * The column at index <i>i</i> is centred on the abscissa ({@code firstIndex} + <i>i</i>) * {@code delta} and is
+ * {@code delta} wide.  The function is evaluated at {@link #NUM_SUBSAMPLES} + 1 equally spaced sub-samples from the
+ * start of each column to its end; the sub-samples at the boundary between two columns are shared by them, so the spans
+ * of adjacent columns meet wherever the function is continuous.  The sub-samples of all the columns are evaluated in a
+ * single batch, which the {@link PostfixProgram} of the function evaluates in parallel.
+ * </p>
+ * <p>
+ * An envelope does not depend on the range of ordinates of a plot.  An envelope may be created from an existing
+ * envelope of the same expression with the same spacing for a sequence of columns that is shifted by a whole number of
+ * columns; the values at the sub-samples that the two sequences share are reused.
+ * </p>
+ * <p>
+ * The creation of an envelope may be cancelled between the blocks of the batch evaluation, in which case the
+ * constructor throws a {@link CancellationException}.
+ * </p>
+ */
+
+class FunctionEnvelope
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The number of intervals between the sub-samples of a column.  The number must be even. */
+	public static final		int		NUM_SUBSAMPLES	= 8;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Expression							expression;
+	private	double								delta;
+	private	long								firstIndex;
+	private	int									numColumns;
+	private	ApproximateMathFunctions.Accuracy	accuracy;
+	private	double[]							values;
+	private	double[]							minYs;
+	private	double[]							maxYs;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of the envelope of the specified expression.
+	 *
+	 * @param  expression
+	 *           the expression whose envelope will be created.
+	 * @param  delta
+	 *           the width of the columns.
+	 * @param  firstIndex
+	 *           the index of the first column relative to the origin of the abscissae.
+	 * @param  numColumns
+	 *           the number of columns.
+	 * @param  accuracy
+	 *           the accuracy of the approximations with which the function will be evaluated, or {@code null} if
+	 *           it will be evaluated exactly.
+	 * @param  cancelled
+	 *           the test of whether the creation of the envelope has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the envelope is created.
+	 */
+
+	public FunctionEnvelope(
+		Expression							expression,
+		double								delta,
+		long								firstIndex,
+		int									numColumns,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		BooleanSupplier						cancelled)
+	{
+		this(expression, delta, firstIndex, numColumns, accuracy, null, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of the envelope of the expression of the specified envelope over a sequence of columns
+	 * that has the same width and number of columns as the specified envelope.  The values of the specified envelope at
+	 * the sub-samples that the two sequences share are reused.
+	 *
+	 * @param  envelope
+	 *           the envelope whose expression will be sampled and whose values will be reused.
+	 * @param  firstIndex
+	 *           the index of the first column relative to the origin of the abscissae.
+	 * @param  cancelled
+	 *           the test of whether the creation of the envelope has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the envelope is created.
+	 */
+
+	public FunctionEnvelope(
+		FunctionEnvelope	envelope,
+		long				firstIndex,
+		BooleanSupplier		cancelled)
+	{
+		this(envelope.expression, envelope.delta, firstIndex, envelope.numColumns, envelope.accuracy, envelope,
+			 cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	private FunctionEnvelope(
+		Expression							expression,
+		double								delta,
+		long								firstIndex,
+		int									numColumns,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		FunctionEnvelope					previous,
+		BooleanSupplier						cancelled)
+	{
+		// Initialise instance variables
+		this.expression = expression;
+		this.delta = delta;
+		this.firstIndex = firstIndex;
+		this.numColumns = numColumns;
+		this.accuracy = accuracy;
+		values = new double[numColumns * NUM_SUBSAMPLES + 1];
+		minYs = new double[numColumns];
+		maxYs = new double[numColumns];
+
+		// Get the offset of the previous envelope, in sub-samples
+		long offset = (previous == null) ? 0 : (firstIndex - previous.firstIndex) * NUM_SUBSAMPLES;
+
+		// Evaluate the function at the sub-samples whose values are not known from the previous envelope, in a single
+		// batch
+		double[] xs = new double[values.length];
+		int[] indices = new int[values.length];
+		int numXs = 0;
+		double subsampleDelta = delta / (double)NUM_SUBSAMPLES;
+		long firstSubsampleIndex = firstIndex * NUM_SUBSAMPLES - NUM_SUBSAMPLES / 2;
+		for (int i = 0; i < values.length; i++)
+		{
+			long previousIndex = i + offset;
+			if ((previous != null) && (previousIndex >= 0) && (previousIndex < previous.values.length))
+				values[i] = previous.values[(int)previousIndex];
+			else
+			{
+				xs[numXs] = (double)(firstSubsampleIndex + i) * subsampleDelta;
+				indices[numXs++] = i;
+			}
+		}
+		double[] ys = new double[numXs];
+		if (accuracy == null)
+			expression.evaluate(xs, ys, numXs, cancelled);
+		else
+			expression.evaluateApproximately(xs, ys, numXs, accuracy, cancelled);
+		for (int i = 0; i < numXs; i++)
+			values[indices[i]] = ys[i];
+
+		// Find the least and greatest finite values in each column
+		for (int i = 0; i < numColumns; i++)
+		{
+			double minY = Double.POSITIVE_INFINITY;
+			double maxY = Double.NEGATIVE_INFINITY;
+			int j0 = i * NUM_SUBSAMPLES;
+			for (int j = j0; j <= j0 + NUM_SUBSAMPLES; j++)
+			{
+				double y = values[j];
+				if (Double.isFinite(y))
+				{
+					minY = Math.min(minY, y);
+					maxY = Math.max(maxY, y);
+				}
+			}
+			minYs[i] = (minY > maxY) ? Double.NaN : minY;
+			maxYs[i] = (minY > maxY) ? Double.NaN : maxY;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the expression whose envelope this is.
+	 *
+	 * @return the expression whose envelope this is.
+	 */
+
+	public Expression getExpression()
+	{
+		return expression;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the width of the columns.
+	 *
+	 * @return the width of the columns.
+	 */
+
+	public double getDelta()
+	{
+		return delta;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first column relative to the origin of the abscissae.
+	 *
+	 * @return the index of the first column relative to the origin of the abscissae.
+	 */
+
+	public long getFirstIndex()
+	{
+		return firstIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of columns.
+	 *
+	 * @return the number of columns.
+	 */
+
+	public int getNumColumns()
+	{
+		return numColumns;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the least finite value of the function in the specified column.
+	 *
+	 * @param  index
+	 *           the index of the column.
+	 * @return the least finite value of the function at the sub-samples of the column at {@code index}, or NaN if the
+	 *         function has no finite value at those sub-samples.
+	 */
+
+	public double getMinY(
+		int	index)
+	{
+		return minYs[index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the greatest finite value of the function in the specified column.
+	 *
+	 * @param  index
+	 *           the index of the column.
+	 * @return the greatest finite value of the function at the sub-samples of the column at {@code index}, or NaN if
+	 *         the function has no finite value at those sub-samples.
+	 */
+
+	public double getMaxY(
+		int	index)
+	{
+		return maxYs[index];
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,703 @@
+/*====================================================================*\
+
+FunctionSamples.java
+
+Class: samples of a function.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+import java.util.function.BooleanSupplier;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: SAMPLES OF A FUNCTION
+
+
+/**
+ * This class holds the values of a function at a sequence of equally spaced <i>points</i> and at the midpoints of the
+ * <i>segments</i> between adjacent points, together with the decision whether each segment is drawn as a line.  The
+ * abscissa of a point is an integer multiple of the spacing of the points, so the samples of a function over two
+ * overlapping sequences of points with the same spacing coincide.
+ * <p>
+ * The samples form a single buffer with twice the resolution of the points, which is evaluated in one batch when the
+ * samples are created.  The function is evaluated only where it is needed:
+ * </p>
+ * <ul>
+ *   <li>A segment over which an enclosure of the function lies outside the range of ordinates of interest is
+ *       <i>hidden</i>: it is not drawn, and the function is not evaluated at its ends or its midpoint.</li>
+ *   <li>A segment over which the function is known to be continuous is always drawn, and the function is not evaluated
+ *       at its midpoint.</li>
+ *   <li>Any other segment is drawn only if the value of the function at its midpoint lies between the values at its
+ *       ends.  This test rejects most segments that span a discontinuity of the function.</li>
+ * </ul>
+ * <p>
+ * The samples may be evaluated with the approximations of {@link ApproximateMathFunctions} when they are used only for
+ * drawing.  The enclosures from which the segments are classified are always exact.
+ * </p>
+ * <p>
+ * The samples of a specialisation of an expression with parameters may be created with a {@link ColumnCache}, from
+ * which the values of the subexpressions that do not depend on the parameters that have changed are loaded.
+ * </p>
+ * <p>
+ * Samples may be created from existing samples of the same expression with the same spacing, for a sequence of points
+ * that is shifted by a whole number of points or for a different range of ordinates of interest.  The values at the
+ * points that the two sequences share are reused, so only the function at the points that are exposed by the shift,
+ * and at the points of the segments that are no longer hidden, is evaluated.
+ * </p>
+ * <p>
+ * The segments of a long sequence of points are classified in parallel in the common fork/join pool, and the function is
+ * evaluated in parallel by its {@link PostfixProgram}.  Each segment is classified and each sample is evaluated in the
+ * same way whichever thread does the work, so the samples are identical to those of a sequential evaluation.
+ * </p>
+ * <p>
+ * The creation of samples may be cancelled.  Whether it has been cancelled is tested before each block of segments is
+ * classified and before each block of samples is evaluated; if it has, the constructor throws a {@link
+ * CancellationException}, and any cache from which the samples were being created is left unchanged.
+ * </p>
+ */
+
+class FunctionSamples
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The number of adjacent segments that are culled together by evaluating one enclosure of the function. */
+	private static final	int		CULLING_BLOCK_LENGTH	= 16;
+
+	/** The number of blocks of segments that are classified by a single task. */
+	private static final	int		CLASSIFICATION_TASK_LENGTH	= 8;
+
+	// Kinds of segment between adjacent points
+	private enum SegmentKind
+	{
+		HIDDEN,
+		CONTINUOUS,
+		UNRESOLVED
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Expression		expression;
+	private	double			delta;
+	private	long			firstIndex;
+	private	int				numPoints;
+	private	double			minY;
+	private	double			maxY;
+	private	double[]		values;
+	private	boolean[]		connected;
+	private	SegmentKind[]	segmentKinds;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of the samples of the specified expression.  The abscissa of the point at index <i>i</i>
+	 * is ({@code firstIndex} + <i>i</i>) * {@code delta}.
+	 *
+	 * @param  expression
+	 *           the expression that will be sampled.
+	 * @param  delta
+	 *           the spacing of the points.
+	 * @param  firstIndex
+	 *           the index of the first point relative to the origin of the abscissae.
+	 * @param  numPoints
+	 *           the number of points.
+	 * @param  minY
+	 *           the lower bound of the range of ordinates of interest.
+	 * @param  maxY
+	 *           the upper bound of the range of ordinates of interest.
+	 * @param  accuracy
+	 *           the accuracy of the approximations with which the function will be evaluated, or {@code null} if
+	 *           it will be evaluated exactly.
+	 * @param  cancelled
+	 *           the test of whether the creation of the samples has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the samples are created.
+	 */
+
+	public FunctionSamples(
+		Expression							expression,
+		double								delta,
+		long								firstIndex,
+		int									numPoints,
+		double								minY,
+		double								maxY,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		BooleanSupplier						cancelled)
+	{
+		this(expression, delta, firstIndex, numPoints, minY, maxY, accuracy, null, null, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of the samples of the specified expression at the points of the specified column cache.
+	 * The values of the column subexpressions of the expression are loaded from the cache.
+	 *
+	 * @param  expression
+	 *           the expression that will be sampled.
+	 * @param  columns
+	 *           the cache of the values of the column subexpressions of {@code expression}, whose points will be the
+	 *           points of the samples.
+	 * @param  minY
+	 *           the lower bound of the range of ordinates of interest.
+	 * @param  maxY
+	 *           the upper bound of the range of ordinates of interest.
+	 * @param  cancelled
+	 *           the test of whether the creation of the samples has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the samples are created.
+	 * @see    Expression#specialise(ParameterSet)
+	 */
+
+	public FunctionSamples(
+		Expression		expression,
+		ColumnCache		columns,
+		double			minY,
+		double			maxY,
+		BooleanSupplier	cancelled)
+	{
+		this(expression, columns.getDelta(), columns.getFirstIndex(), columns.getNumPoints(), minY, maxY,
+			 columns.getAccuracy(), columns, null, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of the samples of the expression of the specified samples at a sequence of points that
+	 * has the same spacing and number of points as the specified samples.  The values of the specified samples at the
+	 * points that the two sequences share are reused.
+	 *
+	 * @param  samples
+	 *           the samples whose expression will be sampled and whose values will be reused.
+	 * @param  firstIndex
+	 *           the index of the first point relative to the origin of the abscissae.
+	 * @param  minY
+	 *           the lower bound of the range of ordinates of interest.
+	 * @param  maxY
+	 *           the upper bound of the range of ordinates of interest.
+	 * @param  accuracy
+	 *           the accuracy of the approximations with which the function will be evaluated, or {@code null} if
+	 *           it will be evaluated exactly.  The specified samples must have been evaluated with the same accuracy.
+	 * @param  cancelled
+	 *           the test of whether the creation of the samples has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the samples are created.
+	 */
+
+	public FunctionSamples(
+		FunctionSamples						samples,
+		long								firstIndex,
+		double								minY,
+		double								maxY,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		BooleanSupplier						cancelled)
+	{
+		this(samples.expression, samples.delta, firstIndex, samples.numPoints, minY, maxY, accuracy, null, samples,
+			 cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of the samples of the expression of the specified samples at the points of the specified
+	 * column cache, which must have the same spacing and number of points as the specified samples.  The values of the
+	 * specified samples at the points that the two sequences share are reused, and the values of the column
+	 * subexpressions of the expression at the other points are loaded from the cache.
+	 *
+	 * @param  samples
+	 *           the samples whose expression will be sampled and whose values will be reused.
+	 * @param  columns
+	 *           the cache of the values of the column subexpressions of the expression of {@code samples}, whose points
+	 *           will be the points of the samples.
+	 * @param  minY
+	 *           the lower bound of the range of ordinates of interest.
+	 * @param  maxY
+	 *           the upper bound of the range of ordinates of interest.
+	 * @param  cancelled
+	 *           the test of whether the creation of the samples has been cancelled, or {@code null} if it cannot be
+	 *           cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the samples are created.
+	 */
+
+	public FunctionSamples(
+		FunctionSamples	samples,
+		ColumnCache		columns,
+		double			minY,
+		double			maxY,
+		BooleanSupplier	cancelled)
+	{
+		this(samples.expression, columns.getDelta(), columns.getFirstIndex(), columns.getNumPoints(), minY, maxY,
+			 columns.getAccuracy(), columns, samples, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	private FunctionSamples(
+		Expression							expression,
+		double								delta,
+		long								firstIndex,
+		int									numPoints,
+		double								minY,
+		double								maxY,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		ColumnCache							columns,
+		FunctionSamples						previous,
+		BooleanSupplier						cancelled)
+	{
+		// Initialise instance variables
+		this.expression = expression;
+		this.delta = delta;
+		this.firstIndex = firstIndex;
+		this.numPoints = numPoints;
+		this.minY = minY;
+		this.maxY = maxY;
+		int numSegments = Math.max(0, numPoints - 1);
+		values = new double[numPoints + numSegments];
+		connected = new boolean[numSegments];
+		segmentKinds = new SegmentKind[numSegments];
+
+		// Get the offset of the previous samples, in points
+		long offset = (previous == null) ? 0 : firstIndex - previous.firstIndex;
+
+		// Classify the segments
+		int numBlocks = (numSegments + CULLING_BLOCK_LENGTH - 1) / CULLING_BLOCK_LENGTH;
+		if (numBlocks <= CLASSIFICATION_TASK_LENGTH)
+			classifySegments(previous, offset, 0, numBlocks, cancelled);
+		else
+			new ClassificationTask(previous, offset, 0, numBlocks, cancelled).invoke();
+
+		// Evaluate the function at the ends of the segments that are not hidden and at the midpoints of the segments
+		// that are unresolved, in a single batch, except where the values of the previous samples are known
+		double[] xs = new double[values.length];
+		int[] indices = new int[values.length];
+		int numXs = 0;
+		for (int i = 0; i < values.length; i++)
+		{
+			if (isSampleRequired(segmentKinds, i) && !isPreviousSampleKnown(previous, offset, i))
+			{
+				xs[numXs] = getHalfX(i);
+				indices[numXs++] = i;
+			}
+		}
+		double[] ys = new double[numXs];
+		if (columns != null)
+			expression.evaluate(xs, indices, columns, ys, numXs, cancelled);
+		else if (accuracy != null)
+			expression.evaluateApproximately(xs, ys, numXs, accuracy, cancelled);
+		else
+			expression.evaluate(xs, ys, numXs, cancelled);
+		for (int i = 0, j = 0; i < values.length; i++)
+		{
+			if (!isSampleRequired(segmentKinds, i))
+				values[i] = Double.NaN;
+			else if (isPreviousSampleKnown(previous, offset, i))
+				values[i] = previous.values[(int)(i + 2 * offset)];
+			else
+				values[i] = ys[j++];
+		}
+
+		// Decide which segments are drawn
+		for (int i = 0; i < numSegments; i++)
+		{
+			double y0 = values[2 * i];
+			double midY = values[2 * i + 1];
+			double y1 = values[2 * i + 2];
+			connected[i] = (segmentKinds[i] != SegmentKind.HIDDEN) && !Double.isNaN(y0) && !Double.isNaN(y1)
+							&& ((segmentKinds[i] == SegmentKind.CONTINUOUS)
+								|| ((midY >= y0) && (midY <= y1)) || ((midY >= y1) && (midY <= y0)) || (y0 == y1));
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static SegmentKind getSegmentKind(
+		Interval	bounds,
+		double		minY,
+		double		maxY)
+	{
+		if (bounds.isEmpty() || (bounds.getUpper() < minY) || (bounds.getLower() > maxY))
+			return SegmentKind.HIDDEN;
+		return bounds.isContinuous() ? SegmentKind.CONTINUOUS : SegmentKind.UNRESOLVED;
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean isSampleRequired(
+		SegmentKind[]	segmentKinds,
+		int				index)
+	{
+		int segmentIndex = index >> 1;
+
+		// Midpoint of segment
+		if ((index & 1) != 0)
+			return (segmentKinds[segmentIndex] == SegmentKind.UNRESOLVED);
+
+		// End of segment
+		return ((segmentIndex > 0) && (segmentKinds[segmentIndex - 1] != SegmentKind.HIDDEN))
+				|| ((segmentIndex < segmentKinds.length) && (segmentKinds[segmentIndex] != SegmentKind.HIDDEN));
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean isPreviousSampleKnown(
+		FunctionSamples	previous,
+		long			offset,
+		int				index)
+	{
+		if (previous == null)
+			return false;
+		long previousIndex = index + 2 * offset;
+		return (previousIndex >= 0) && (previousIndex < previous.values.length)
+				&& isSampleRequired(previous.segmentKinds, (int)previousIndex);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the expression whose samples these are.
+	 *
+	 * @return the expression whose samples these are.
+	 */
+
+	public Expression getExpression()
+	{
+		return expression;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the spacing of the points.
+	 *
+	 * @return the spacing of the points.
+	 */
+
+	public double getDelta()
+	{
+		return delta;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first point relative to the origin of the abscissae.
+	 *
+	 * @return the index of the first point relative to the origin of the abscissae.
+	 */
+
+	public long getFirstIndex()
+	{
+		return firstIndex;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of points.
+	 *
+	 * @return the number of points.
+	 */
+
+	public int getNumPoints()
+	{
+		return numPoints;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the lower bound of the range of ordinates of interest.
+	 *
+	 * @return the lower bound of the range of ordinates of interest.
+	 */
+
+	public double getMinY()
+	{
+		return minY;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the upper bound of the range of ordinates of interest.
+	 *
+	 * @return the upper bound of the range of ordinates of interest.
+	 */
+
+	public double getMaxY()
+	{
+		return maxY;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the abscissa of the specified point.
+	 *
+	 * @param  index
+	 *           the index of the point.
+	 * @return the abscissa of the point at {@code index}.
+	 */
+
+	public double getX(
+		int	index)
+	{
+		return (double)(firstIndex + index) * delta;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the value of the function at the specified point.
+	 *
+	 * @param  index
+	 *           the index of the point.
+	 * @return the value of the function at the point at {@code index}, or NaN if the function was not evaluated at the
+	 *         point because the segments on either side of it are hidden.
+	 */
+
+	public double getY(
+		int	index)
+	{
+		return values[2 * index];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the value of the function at the midpoint of the specified segment.
+	 *
+	 * @param  index
+	 *           the index of the segment.
+	 * @return the value of the function at the midpoint of the segment at {@code index}, or NaN if the function was not
+	 *         evaluated at the midpoint because the segment is hidden or known to be continuous.
+	 */
+
+	public double getMidY(
+		int	index)
+	{
+		return values[2 * index + 1];
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified segment is hidden because an enclosure of the function over the segment lies
+	 * outside the range of ordinates of interest.
+	 *
+	 * @param  index
+	 *           the index of the segment.
+	 * @return {@code true} if the segment at {@code index} is hidden.
+	 */
+
+	public boolean isHidden(
+		int	index)
+	{
+		return (segmentKinds[index] == SegmentKind.HIDDEN);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the function is known to be continuous over the specified segment.
+	 *
+	 * @param  index
+	 *           the index of the segment.
+	 * @return {@code true} if the function is known to be continuous over the segment at {@code index}.
+	 */
+
+	public boolean isContinuous(
+		int	index)
+	{
+		return (segmentKinds[index] == SegmentKind.CONTINUOUS);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified segment is drawn as a line between the points at its ends.
+	 *
+	 * @param  index
+	 *           the index of the segment.  The segment at index <i>i</i> lies between the points at indices <i>i</i> and
+	 *           <i>i</i> + 1.
+	 * @return {@code true} if the segment at {@code index} is drawn.
+	 */
+
+	public boolean isConnected(
+		int	index)
+	{
+		return connected[index];
+	}
+
+	//------------------------------------------------------------------
+
+	private double getHalfX(
+		int	index)
+	{
+		return (double)(2 * firstIndex + index) * (0.5 * delta);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Classifies the segments in the specified range of blocks.  A segment of the previous samples is reused unless it
+	 * was hidden for a different range of ordinates.  A block of other segments is classified from an enclosure of the
+	 * function over the block; if the classification of the block is unresolved, each segment in the block is
+	 * classified from an enclosure of the function over the segment.  Whether the classification has been cancelled is
+	 * tested before each block.
+	 */
+
+	private void classifySegments(
+		FunctionSamples	previous,
+		long			offset,
+		int				startBlock,
+		int				endBlock,
+		BooleanSupplier	cancelled)
+	{
+		for (int block = startBlock; block < endBlock; block++)
+		{
+			if ((cancelled != null) && cancelled.getAsBoolean())
+				throw new CancellationException();
+			int i0 = block * CULLING_BLOCK_LENGTH;
+			int i1 = Math.min(i0 + CULLING_BLOCK_LENGTH, segmentKinds.length);
+			SegmentKind kind = null;
+			for (int i = i0; i < i1; i++)
+			{
+				segmentKinds[i] = getPreviousSegmentKind(previous, offset, i);
+				if (segmentKinds[i] == null)
+				{
+					if (kind == null)
+						kind = getSegmentKind(expression.evaluateInterval(getX(i0), getX(i1)), minY, maxY);
+					segmentKinds[i] = (kind == SegmentKind.UNRESOLVED)
+										? getSegmentKind(expression.evaluateInterval(getX(i), getX(i + 1)), minY, maxY)
+										: kind;
+				}
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private SegmentKind getPreviousSegmentKind(
+		FunctionSamples	previous,
+		long			offset,
+		int				index)
+	{
+		if (previous == null)
+			return null;
+		long previousIndex = index + offset;
+		if ((previousIndex < 0) || (previousIndex >= previous.segmentKinds.length))
+			return null;
+		SegmentKind kind = previous.segmentKinds[(int)previousIndex];
+		return ((kind == SegmentKind.HIDDEN) && ((previous.minY != minY) || (previous.maxY != maxY))) ? null : kind;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: CLASSIFICATION TASK
+
+
+	/**
+	 * This class implements a task that classifies the segments in a range of blocks.  The task divides the range in
+	 * two until it contains no more than {@link #CLASSIFICATION_TASK_LENGTH} blocks.
+	 */
+
+	private class ClassificationTask
+		extends RecursiveAction
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	FunctionSamples	previous;
+		private	long			offset;
+		private	int				startBlock;
+		private	int				endBlock;
+		private	BooleanSupplier	cancelled;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ClassificationTask(
+			FunctionSamples	previous,
+			long			offset,
+			int				startBlock,
+			int				endBlock,
+			BooleanSupplier	cancelled)
+		{
+			this.previous = previous;
+			this.offset = offset;
+			this.startBlock = startBlock;
+			this.endBlock = endBlock;
+			this.cancelled = cancelled;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected void compute()
+		{
+			if (endBlock - startBlock <= CLASSIFICATION_TASK_LENGTH)
+				classifySegments(previous, offset, startBlock, endBlock, cancelled);
+			else
+			{
+				int midBlock = (startBlock + endBlock) >>> 1;
+				invokeAll(new ClassificationTask(previous, offset, startBlock, midBlock, cancelled),
+						  new ClassificationTask(previous, offset, midBlock, endBlock, cancelled));
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -44,6 +44,7 @@ import java.awt.geom.Point2D;
 import java.awt.image.BufferedImage;
 
 import java.math.BigDecimal;
+import java.math.MathContext;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -58,8 +59,10 @@ import javax.swing.JMenu;
 import javax.swing.JPanel;
 import javax.swing.JPopupMenu;
 import javax.swing.JScrollPane;
+import javax.swing.JSlider;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 
 import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
@@ -68,6 +71,8 @@ import javax.swing.event.ListSelectionListener;
 
 import uk.blankaspect.common.exception.AppException;
 
+import uk.blankaspect.common.string.StringUtils;
+
 import uk.blankaspect.ui.swing.action.KeyAction;
 
 import uk.blankaspect.ui.swing.button.FButton;
@@ -116,12 +121,25 @@ class FunctionView
 
 	private static final	int		INTERVAL_EP_NUM_COLUMNS	= 22;
 
+	private static final	int		PARAMETER_VALUE_NUM_DIGITS	= 4;
+
+	// The maximum number of integer digits of a parameter value that is displayed in plain notation rather than in
+	// scientific notation
+	private static final	int		PARAMETER_VALUE_MAX_NUM_PLAIN_DIGITS	= 8;
+
+	// The time (in milliseconds) after the last mouse-wheel event at which a mouse-wheel gesture is deemed to have
+	// ended
+	private static final	int		WHEEL_GESTURE_DELAY	= 250;
+
 	private static final	String	CURSOR_STR		= "Cursor";
 	private static final	String	X_INTERVAL_STR	= "x";
 	private static final	String	Y_INTERVAL_STR	= "y";
 	private static final	String	TO_STR			= "to";
 	private static final	String	X_ZOOM_STR		= "x zoom";
 	private static final	String	Y_ZOOM_STR		= "y zoom";
+	private static final	String	RANGE_STR		= "Range" + AppConstants.ELLIPSIS_STR;
+
+	private static final	String	RANGE_TOOLTIP_STR	= "Edit the range of the parameter";
 
 	private static final	String[]	ZOOM_FACTOR_STRS	=
 	{
@@ -143,6 +161,7 @@ class FunctionView
 		String	SELECT_X_ZOOM_FACTOR	= "selectXZoomFactor";
 		String	SELECT_Y_ZOOM_FACTOR	= "selectYZoomFactor";
 		String	SHOW_CONTEXT_MENU		= "showContextMenu";
+		String	EDIT_PARAMETER_RANGE	= "editParameterRange";
 	}
 
 	private static final	Map<String, String>	COMMAND_MAP	= Map.of
@@ -191,22 +210,27 @@ class FunctionView
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	FunctionDocument	document;
-	private	PlotPanel			plotPanel;
-	private	FunctionList		functionList;
-	private	JScrollPane			functionListScrollPane;
-	private	CoordinatesField	coordinatesField;
-	private	EndpointField		xLowerEndpointField;
-	private	EndpointField		xUpperEndpointField;
-	private	EndpointField		yLowerEndpointField;
-	private	EndpointField		yUpperEndpointField;
-	private	JButton				addButton;
-	private	JButton				viewButton;
-	private	JButton				deleteButton;
-	private	FComboBox<String>	xZoomFactorComboBox;
-	private	FComboBox<String>	yZoomFactorComboBox;
-	private	Point				mouseCursorLocation;
-	private	DragStart			dragStart;
+	private	FunctionDocument		document;
+	private	PlotPanel				plotPanel;
+	private	FunctionList			functionList;
+	private	JScrollPane				functionListScrollPane;
+	private	CoordinatesField		coordinatesField;
+	private	EndpointField			xLowerEndpointField;
+	private	EndpointField			xUpperEndpointField;
+	private	EndpointField			yLowerEndpointField;
+	private	EndpointField			yUpperEndpointField;
+	private	JButton					addButton;
+	private	JButton					viewButton;
+	private	JButton					deleteButton;
+	private	FComboBox<String>		xZoomFactorComboBox;
+	private	FComboBox<String>		yZoomFactorComboBox;
+	private	JPanel					parameterPanel;
+	private	List<ParameterSlider>	parameterSliders;
+	private	String					parameterNames;
+	private	boolean					updatingParameters;
+	private	Point					mouseCursorLocation;
+	private	DragStart				dragStart;
+	private	Timer					wheelGestureTimer;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -234,6 +258,14 @@ class FunctionView
 		plotPanel.addMouseWheelListener(this);
 		KeyAction.create(plotPanel, JComponent.WHEN_FOCUSED, PLOT_PANEL_KEY_ACTIONS);
 
+		// Timer: end of mouse-wheel gesture
+		wheelGestureTimer = new Timer(WHEEL_GESTURE_DELAY, event ->
+		{
+			if (dragStart == null)
+				plotPanel.setInteractive(false);
+		});
+		wheelGestureTimer.setRepeats(false);
+
 
 		//----  Function list
 
@@ -854,6 +886,22 @@ class FunctionView
 		gridBag.setConstraints(scrollZoomPanel, gbc);
 		controlPanel.add(scrollZoomPanel);
 
+		parameterPanel = new JPanel(new GridBagLayout());
+		GuiUtils.setPaddedLineBorder(parameterPanel, 4, 6);
+		parameterSliders = new ArrayList<>();
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 0, 0, 0);
+		gridBag.setConstraints(parameterPanel, gbc);
+		controlPanel.add(parameterPanel);
+
 
 		//----  Outer panel
 
@@ -887,6 +935,9 @@ class FunctionView
 		// Add listener
 		addMouseListener(this);
 
+		// Update parameter sliders
+		updateParameters();
+
 		// Add key actions
 		KeyAction.create(this, JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT,
 						 KeyStroke.getKeyStroke(KeyEvent.VK_CONTEXT_MENU, 0), Command.SHOW_CONTEXT_MENU, this);
@@ -925,19 +976,24 @@ class FunctionView
 			if (COMMAND_MAP.containsKey(command))
 				command = COMMAND_MAP.get(command);
 
-			switch (command)
+			if (command.startsWith(Command.EDIT_PARAMETER_RANGE))
+				onEditParameterRange(StringUtils.removePrefix(command, Command.EDIT_PARAMETER_RANGE).charAt(0));
+			else
 			{
-				case Command.EDIT_FUNCTION           -> onEditFunction();
-				case Command.DELETE_FUNCTION         -> onDeleteFunction();
-				case Command.CONFIRM_DELETE_FUNCTION -> onConfirmDeleteFunction();
-				case Command.MOVE_FUNCTION_UP        -> onMoveFunctionUp();
-				case Command.MOVE_FUNCTION_DOWN      -> onMoveFunctionDown();
-				case Command.MOVE_FUNCTION           -> onMoveFunction();
-				case Command.SET_X_INTERVAL          -> onSetXInterval();
-				case Command.SET_Y_INTERVAL          -> onSetYInterval();
-				case Command.SELECT_X_ZOOM_FACTOR    -> onSelectXZoomFactor();
-				case Command.SELECT_Y_ZOOM_FACTOR    -> onSelectYZoomFactor();
-				case Command.SHOW_CONTEXT_MENU       -> onShowContextMenu();
+				switch (command)
+				{
+					case Command.EDIT_FUNCTION           -> onEditFunction();
+					case Command.DELETE_FUNCTION         -> onDeleteFunction();
+					case Command.CONFIRM_DELETE_FUNCTION -> onConfirmDeleteFunction();
+					case Command.MOVE_FUNCTION_UP        -> onMoveFunctionUp();
+					case Command.MOVE_FUNCTION_DOWN      -> onMoveFunctionDown();
+					case Command.MOVE_FUNCTION           -> onMoveFunction();
+					case Command.SET_X_INTERVAL          -> onSetXInterval();
+					case Command.SET_Y_INTERVAL          -> onSetYInterval();
+					case Command.SELECT_X_ZOOM_FACTOR    -> onSelectXZoomFactor();
+					case Command.SELECT_Y_ZOOM_FACTOR    -> onSelectYZoomFactor();
+					case Command.SHOW_CONTEXT_MENU       -> onShowContextMenu();
+				}
 			}
 		}
 		catch (AppException e)
@@ -969,6 +1025,18 @@ class FunctionView
 				 !functionList.isDragging())
 				functionList.snapViewPosition();
 		}
+
+		else if (eventSource instanceof ParameterSlider slider)
+		{
+			if (!updatingParameters)
+			{
+				FunctionDocument.Command command = FunctionDocument.Command.SET_PARAMETER;
+				command.putValue(FunctionDocument.Command.Property.NAME, slider.name);
+				command.putValue(FunctionDocument.Command.Property.VALUE, slider.getParameterValue());
+				command.putValue(FunctionDocument.Command.Property.END, !slider.getValueIsAdjusting());
+				command.execute();
+			}
+		}
 	}
 
 	//------------------------------------------------------------------
@@ -1026,6 +1094,7 @@ class FunctionView
 				dragStart = new DragStart(event.getX(), event.getY(), document.getXInterval(),
 										  document.getYInterval());
 				plotPanel.setCursor(true);
+				plotPanel.setInteractive(true);
 			}
 		}
 
@@ -1044,6 +1113,7 @@ class FunctionView
 				setIntervals(event, true);
 				dragStart = null;
 				plotPanel.setCursor(false);
+				plotPanel.setInteractive(false);
 			}
 		}
 
@@ -1122,6 +1192,8 @@ class FunctionView
 		}
 		if (command != null)
 		{
+			plotPanel.setInteractive(true);
+			wheelGestureTimer.restart();
 			while (--numUnits >= 0)
 				command.execute();
 		}
@@ -1136,6 +1208,7 @@ class FunctionView
 	@Override
 	public void modelChanged(SingleSelectionList.ModelEvent event)
 	{
+		updateParameters();
 		updatePlot();
 	}
 
@@ -1193,6 +1266,103 @@ class FunctionView
 
 	//------------------------------------------------------------------
 
+	public void updateParameters()
+	{
+		updatingParameters = true;
+		try
+		{
+			// If the set of parameters has changed, create a slider for each parameter
+			ParameterSet parameters = document.getParameters();
+			String names = document.getParameterNames();
+			if (!names.equals(parameterNames))
+			{
+				parameterNames = names;
+				parameterPanel.removeAll();
+				parameterSliders.clear();
+
+				GridBagLayout gridBag = (GridBagLayout)parameterPanel.getLayout();
+				GridBagConstraints gbc = new GridBagConstraints();
+
+				for (int i = 0; i < names.length(); i++)
+				{
+					char name = names.charAt(i);
+					ParameterSlider slider = new ParameterSlider(name, parameters.get(name));
+					slider.addChangeListener(this);
+					parameterSliders.add(slider);
+
+					JLabel nameLabel = new FLabel(Character.toString(name));
+
+					gbc.gridx = 0;
+					gbc.gridy = i;
+					gbc.gridwidth = 1;
+					gbc.gridheight = 1;
+					gbc.weightx = 0.0;
+					gbc.weighty = 0.0;
+					gbc.anchor = GridBagConstraints.LINE_END;
+					gbc.fill = GridBagConstraints.NONE;
+					gbc.insets = new Insets((i == 0) ? 0 : 2, 0, 0, 0);
+					gridBag.setConstraints(nameLabel, gbc);
+					parameterPanel.add(nameLabel);
+
+					gbc.gridx = 1;
+					gbc.gridy = i;
+					gbc.gridwidth = 1;
+					gbc.gridheight = 1;
+					gbc.weightx = 1.0;
+					gbc.weighty = 0.0;
+					gbc.anchor = GridBagConstraints.LINE_START;
+					gbc.fill = GridBagConstraints.HORIZONTAL;
+					gbc.insets = new Insets((i == 0) ? 0 : 2, 6, 0, 0);
+					gridBag.setConstraints(slider, gbc);
+					parameterPanel.add(slider);
+
+					gbc.gridx = 2;
+					gbc.gridy = i;
+					gbc.gridwidth = 1;
+					gbc.gridheight = 1;
+					gbc.weightx = 0.0;
+					gbc.weighty = 0.0;
+					gbc.anchor = GridBagConstraints.LINE_START;
+					gbc.fill = GridBagConstraints.NONE;
+					gbc.insets = new Insets((i == 0) ? 0 : 2, 6, 0, 0);
+					gridBag.setConstraints(slider.valueLabel, gbc);
+					parameterPanel.add(slider.valueLabel);
+
+					JButton rangeButton = new FButton(RANGE_STR);
+					rangeButton.setToolTipText(RANGE_TOOLTIP_STR);
+					rangeButton.setActionCommand(Command.EDIT_PARAMETER_RANGE + name);
+					rangeButton.addActionListener(this);
+
+					gbc.gridx = 3;
+					gbc.gridy = i;
+					gbc.gridwidth = 1;
+					gbc.gridheight = 1;
+					gbc.weightx = 0.0;
+					gbc.weighty = 0.0;
+					gbc.anchor = GridBagConstraints.LINE_START;
+					gbc.fill = GridBagConstraints.NONE;
+					gbc.insets = new Insets((i == 0) ? 0 : 2, 6, 0, 0);
+					gridBag.setConstraints(rangeButton, gbc);
+					parameterPanel.add(rangeButton);
+				}
+
+				parameterPanel.setVisible(!names.isEmpty());
+				revalidate();
+				repaint();
+			}
+
+			// Update sliders from parameters
+			for (ParameterSlider slider : parameterSliders)
+				slider.setParameter(parameters.get(slider.name));
+		}
+		finally
+		{
+			updatingParameters = false;
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	public void updateButtons()
 	{
 		document.updateCommands();
@@ -1357,6 +1527,7 @@ class FunctionView
 			menu.addSeparator();
 
 			menu.add(new FCheckBoxMenuItem(FunctionDocument.Command.TOGGLE_SHOW_GRID));
+			menu.add(new FCheckBoxMenuItem(FunctionDocument.Command.TOGGLE_ENVELOPE_MODE));
 
 			// Update commands for menu items
 			document.updateCommands();
@@ -1561,6 +1732,15 @@ class FunctionView
 
 	//------------------------------------------------------------------
 
+	private void onEditParameterRange(char name)
+	{
+		FunctionDocument.Command command = FunctionDocument.Command.EDIT_PARAMETER_RANGE;
+		command.putValue(FunctionDocument.Command.Property.NAME, name);
+		command.execute();
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Enumerated types
 ////////////////////////////////////////////////////////////////////////
@@ -2142,6 +2322,109 @@ class FunctionView
 	//==================================================================
 
 
+	// PARAMETER SLIDER CLASS
+
+
+	/**
+	 * This class implements a slider that varies the value of a parameter over its range.  The positions of the slider
+	 * are mapped linearly onto the range of the parameter.
+	 */
+
+	private static class ParameterSlider
+		extends JSlider
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int		NUM_STEPS	= 1000;
+
+		private static final	String	PROTOTYPE_VALUE_STR	= "-0.0000e-000";
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	char		name;
+		private	double		lowerBound;
+		private	double		upperBound;
+		private	JLabel		valueLabel;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ParameterSlider(
+			char					name,
+			ParameterSet.Parameter	parameter)
+		{
+			super(0, NUM_STEPS);
+			this.name = name;
+			setFocusable(false);
+
+			valueLabel = new FLabel(PROTOTYPE_VALUE_STR);
+			valueLabel.setPreferredSize(valueLabel.getPreferredSize());
+
+			setParameter(parameter);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected void fireStateChanged()
+		{
+			valueLabel.setText(valueToString(getParameterValue()));
+			super.fireStateChanged();
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private double getParameterValue()
+		{
+			return lowerBound + (double)getValue() * (upperBound - lowerBound) / (double)NUM_STEPS;
+		}
+
+		//--------------------------------------------------------------
+
+		private void setParameter(
+			ParameterSet.Parameter	parameter)
+		{
+			lowerBound = parameter.lowerBound();
+			upperBound = parameter.upperBound();
+			double position = (parameter.value() - lowerBound) / (upperBound - lowerBound) * (double)NUM_STEPS;
+			setValue((int)Math.round(Math.min(Math.max(0.0, position), (double)NUM_STEPS)));
+			valueLabel.setText(valueToString(parameter.value()));
+		}
+
+		//--------------------------------------------------------------
+
+		private String valueToString(
+			double	value)
+		{
+			BigDecimal number =
+					new BigDecimal(value).round(new MathContext(PARAMETER_VALUE_NUM_DIGITS)).stripTrailingZeros();
+			return ((number.scale() < 0)
+						&& (number.precision() - number.scale() <= PARAMETER_VALUE_MAX_NUM_PLAIN_DIGITS))
+					? number.toPlainString()
+					: number.toString();
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
 	// DRAG START CLASS
 
 
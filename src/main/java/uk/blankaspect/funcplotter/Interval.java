@@ -0,0 +1,666 @@
+/*====================================================================*\
+
+Interval.java
+
+Class: interval.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.function.DoubleUnaryOperator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: INTERVAL
+
+
+/**
+ * This class implements an immutable closed interval of real numbers that is used to compute an enclosure of the
+ * values of an {@link Expression} over an interval of the variable.  The rules of interval arithmetic that are
+ * implemented by this class enclose the values that are computed by the evaluators of expressions, rather than the
+ * exact mathematical values, so an enclosure is guaranteed to contain every non-NaN value that the expression takes in
+ * the interval of the variable.
+ * <p>
+ * The arithmetic operations and the square root are correctly rounded, and the functions of {@link Math} are
+ * semi-monotonic, so the bounds of the result of an operation or a function over an interval on which the
+ * mathematical function is monotonic are the results of the operation or function at the bounds of the interval.  The
+ * functions of {@link MathFunctions} are enclosed by applying the rules of their constituent operations.
+ * </p>
+ * <p>
+ * An interval is also decorated with a flag that indicates whether the function that produced it is known to be
+ * <i>continuous</i>: that is, whether the function is defined, finite and continuous at every point of the interval of
+ * the variable.  The flag is conservative: a function that is not known to be continuous may nevertheless be
+ * continuous.
+ * </p>
+ * <p>
+ * An interval that contains no values is <i>empty</i>.  The result of a function over an interval that lies entirely
+ * outside the domain of the function is empty.  The result of an operation on an empty interval is empty, with one
+ * exception: NaN to the power of zero is 1, so the power of an empty base contains 1 if the exponent contains zero.
+ * </p>
+ */
+
+class Interval
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** An interval that contains no values. */
+	public static final	Interval	EMPTY	= new Interval(Double.NaN, Double.NaN, false);
+
+	/** An interval that contains all values and that is not known to be continuous. */
+	public static final	Interval	ENTIRE	= new Interval(Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY, false);
+
+	private static final	Interval	ONE					= new Interval(1.0, 1.0, true);
+	private static final	Interval	ONE_NOT_CONTINUOUS	= new Interval(1.0, 1.0, false);
+	private static final	Interval	TWO					= new Interval(2.0, 2.0, true);
+	private static final	Interval	HALF				= new Interval(0.5, 0.5, true);
+
+	// The relative tolerance that is applied when testing whether an interval contains an extremum or a pole of a
+	// periodic function
+	private static final	double	CRITICAL_POINT_TOLERANCE	= 1.0e-12;
+
+	// The largest magnitude of the argument of a periodic function for which the extrema and poles of the function are
+	// located
+	private static final	double	MAX_PERIODIC_ARGUMENT	= 1.0e9;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	double	lower;
+	private	double	upper;
+	private	boolean	continuous;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private Interval(
+		double	lower,
+		double	upper,
+		boolean	continuous)
+	{
+		this.lower = lower;
+		this.upper = upper;
+		this.continuous = continuous;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the interval of the identity function over the specified bounds.
+	 *
+	 * @param  lower
+	 *           the lower bound of the interval.
+	 * @param  upper
+	 *           the upper bound of the interval.
+	 * @return the interval [{@code lower}, {@code upper}], which is continuous if both bounds are finite.
+	 */
+
+	public static Interval of(
+		double	lower,
+		double	upper)
+	{
+		if (Double.isNaN(lower) || Double.isNaN(upper) || (lower > upper))
+			return EMPTY;
+		return create(lower, upper, true);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the interval of a constant function.
+	 *
+	 * @param  value
+	 *           the value of the function.
+	 * @return the interval that contains only {@code value}, or an empty interval if {@code value} is NaN.
+	 */
+
+	public static Interval of(
+		double	value)
+	{
+		return Double.isNaN(value) ? EMPTY : create(value, value, true);
+	}
+
+	//------------------------------------------------------------------
+
+	private static Interval create(
+		double	lower,
+		double	upper,
+		boolean	continuous)
+	{
+		return new Interval(lower, upper, continuous && Double.isFinite(lower) && Double.isFinite(upper));
+	}
+
+	//------------------------------------------------------------------
+
+	private static double product(
+		double	value1,
+		double	value2)
+	{
+		// The product of zero and infinity is NaN, but its limit as a bound of an interval is zero
+		double product = value1 * value2;
+		return Double.isNaN(product) ? 0.0 : product;
+	}
+
+	//------------------------------------------------------------------
+
+	private static boolean containsCriticalPoint(
+		double	u1,
+		double	u2)
+	{
+		double tolerance = CRITICAL_POINT_TOLERANCE * Math.max(1.0, Math.max(Math.abs(u1), Math.abs(u2)));
+		return (Math.ceil(u1 - tolerance) <= Math.floor(u2 + tolerance));
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : overriding methods
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public String toString()
+	{
+		return isEmpty() ? "[]" : "[" + lower + ", " + upper + "]" + (continuous ? "" : "?");
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	public double getLower()
+	{
+		return lower;
+	}
+
+	//------------------------------------------------------------------
+
+	public double getUpper()
+	{
+		return upper;
+	}
+
+	//------------------------------------------------------------------
+
+	public boolean isEmpty()
+	{
+		return Double.isNaN(lower);
+	}
+
+	//------------------------------------------------------------------
+
+	public boolean isContinuous()
+	{
+		return continuous;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified value is NaN or lies within this interval.  A value of a function that
+	 * this interval encloses must satisfy this test.
+	 *
+	 * @param  value
+	 *           the value that will be tested.
+	 * @return {@code true} if {@code value} is NaN or lies within this interval; {@code false} otherwise.
+	 */
+
+	public boolean encloses(
+		double	value)
+	{
+		return Double.isNaN(value) || ((value >= lower) && (value <= upper));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an enclosure of the result of applying the specified unary operation to the values of this interval.
+	 *
+	 * @param  operation
+	 *           the operation that will be applied.
+	 * @return an enclosure of the result of applying {@code operation} to the values of this interval.
+	 */
+
+	public Interval apply(
+		Expression.UnaryOperation	operation)
+	{
+		if (isEmpty())
+			return EMPTY;
+
+		return switch (operation)
+		{
+			case ABS   -> abs();
+			case ACOS  -> restrict(-1.0, 1.0).decreasing(Math::acos);
+			case ACOSH -> acosh();
+			case ACOT  -> ONE.divide(this).increasing(Math::atan);
+			case ACSC  -> ONE.divide(this).restrict(-1.0, 1.0).increasing(Math::asin);
+			case ASEC  -> ONE.divide(this).restrict(-1.0, 1.0).decreasing(Math::acos);
+			case ASIN  -> restrict(-1.0, 1.0).increasing(Math::asin);
+			case ASINH -> asinh();
+			case ATAN  -> increasing(Math::atan);
+			case ATANH -> atanh();
+			case CEIL  -> step(Math::ceil);
+			case COS   -> periodic(0.0, Math::cos);
+			case COSH  -> HALF.multiply(exp().add(negate().exp()));
+			case COT   -> ONE.divide(tan());
+			case CSC   -> ONE.divide(periodic(0.5, Math::sin));
+			case EXP   -> exp();
+			case FLOOR -> step(Math::floor);
+			case LG    -> restrict(0.0, Double.POSITIVE_INFINITY).increasing(Math::log10);
+			case LN    -> restrict(0.0, Double.POSITIVE_INFINITY).increasing(Math::log);
+			case ROUND -> step(Math::rint);
+			case SEC   -> ONE.divide(periodic(0.0, Math::cos));
+			case SIN   -> periodic(0.5, Math::sin);
+			case SINH  -> HALF.multiply(exp().subtract(negate().exp()));
+			case SQRT  -> sqrt();
+			case TAN   -> tan();
+			case TANH  -> tanh();
+			case PLUS  -> this;
+			case MINUS -> negate();
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an enclosure of the result of applying the specified binary operation to the values of this interval and
+	 * the values of another interval.
+	 *
+	 * @param  operation
+	 *           the operation that will be applied.
+	 * @param  operand
+	 *           the interval of the second operand of {@code operation}.
+	 * @return an enclosure of the result of applying {@code operation} to the values of this interval and the values of
+	 *         {@code operand}.
+	 */
+
+	public Interval apply(
+		Expression.BinaryOperation	operation,
+		Interval					operand)
+	{
+		// The power of an empty base is not necessarily empty
+		if ((isEmpty() && (operation != Expression.BinaryOperation.POWER)) || operand.isEmpty())
+			return EMPTY;
+
+		return switch (operation)
+		{
+			case ADD            -> add(operand);
+			case SUBTRACT       -> subtract(operand);
+			case MULTIPLY       -> multiply(operand);
+			case DIVIDE         -> divide(operand);
+			case REMAINDER      -> remainder(operand);
+			case IEEE_REMAINDER -> ieeeRemainder(operand);
+			case POWER          -> pow(operand);
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an enclosure of the product of each value of this interval with itself.  The enclosure is tighter than the
+	 * enclosure of the product of this interval and another interval with the same bounds.
+	 *
+	 * @return an enclosure of the squares of the values of this interval.
+	 */
+
+	public Interval square()
+	{
+		if (isEmpty())
+			return EMPTY;
+
+		if (lower >= 0.0)
+			return create(lower * lower, upper * upper, continuous);
+		if (upper <= 0.0)
+			return create(upper * upper, lower * lower, continuous);
+		return create(0.0, Math.max(lower * lower, upper * upper), continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval increasing(
+		DoubleUnaryOperator	function)
+	{
+		return isEmpty()
+					? EMPTY
+					: create(function.applyAsDouble(lower), function.applyAsDouble(upper), continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval decreasing(
+		DoubleUnaryOperator	function)
+	{
+		return isEmpty()
+					? EMPTY
+					: create(function.applyAsDouble(upper), function.applyAsDouble(lower), continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval step(
+		DoubleUnaryOperator	function)
+	{
+		double value1 = function.applyAsDouble(lower);
+		double value2 = function.applyAsDouble(upper);
+		return create(value1, value2, continuous && (value1 == value2));
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval restrict(
+		double	min,
+		double	max)
+	{
+		if (isEmpty() || (upper < min) || (lower > max))
+			return EMPTY;
+
+		return ((lower >= min) && (upper <= max))
+					? this
+					: new Interval(Math.max(lower, min), Math.min(upper, max), false);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval abs()
+	{
+		if (lower >= 0.0)
+			return this;
+		if (upper <= 0.0)
+			return negate();
+		return create(0.0, Math.max(-lower, upper), continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval negate()
+	{
+		return create(-upper, -lower, continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval exp()
+	{
+		return increasing(Math::exp);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval sqrt()
+	{
+		return restrict(0.0, Double.POSITIVE_INFINITY).increasing(Math::sqrt);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval acosh()
+	{
+		Interval x = restrict(1.0, Double.POSITIVE_INFINITY);
+		return x.square().subtract(ONE).sqrt().add(x).increasing(Math::log);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval asinh()
+	{
+		return square().add(ONE).sqrt().add(this).restrict(0.0, Double.POSITIVE_INFINITY).increasing(Math::log);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval atanh()
+	{
+		Interval x = restrict(-1.0, 1.0);
+		return HALF.multiply(ONE.add(x).divide(ONE.subtract(x)).restrict(0.0, Double.POSITIVE_INFINITY)
+																					.increasing(Math::log));
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval tanh()
+	{
+		Interval exp2X = TWO.multiply(this).exp();
+		return exp2X.subtract(ONE).divide(exp2X.add(ONE));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an enclosure of a periodic function whose period is 2&pi; and whose range is [-1, 1], such as sine and
+	 * cosine.  The function has a maximum at (2<i>k</i> + {@code offset})&pi; and a minimum at (2<i>k</i> + 1 +
+	 * {@code offset})&pi; for all integers <i>k</i>, and is monotonic between an extremum and the next.
+	 */
+
+	private Interval periodic(
+		double				offset,
+		DoubleUnaryOperator	function)
+	{
+		if (isEmpty())
+			return EMPTY;
+		if (!Double.isFinite(lower) || !Double.isFinite(upper))
+			return new Interval(-1.0, 1.0, false);
+		if ((upper - lower >= 2.0 * Math.PI) || (Math.max(-lower, upper) > MAX_PERIODIC_ARGUMENT))
+			return new Interval(-1.0, 1.0, continuous);
+
+		// Get values at bounds
+		double value1 = function.applyAsDouble(lower);
+		double value2 = function.applyAsDouble(upper);
+		double min = Math.min(value1, value2);
+		double max = Math.max(value1, value2);
+
+		// Include the extrema that lie in the interval
+		double u1 = lower / Math.PI - offset;
+		double u2 = upper / Math.PI - offset;
+		if (containsCriticalPoint(u1, u2))
+		{
+			double tolerance = CRITICAL_POINT_TOLERANCE * Math.max(1.0, Math.max(Math.abs(u1), Math.abs(u2)));
+			long kMax = (long)Math.floor(u2 + tolerance);
+			for (long k = (long)Math.ceil(u1 - tolerance); k <= kMax; k++)
+			{
+				if (k % 2 == 0)
+					max = 1.0;
+				else
+					min = -1.0;
+			}
+		}
+
+		return create(min, max, continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval tan()
+	{
+		// Test whether the interval might contain a pole, which lies at (k + 1/2)pi for all integers k
+		if (!Double.isFinite(lower) || !Double.isFinite(upper) || (upper - lower >= Math.PI)
+				|| (Math.max(-lower, upper) > MAX_PERIODIC_ARGUMENT)
+				|| containsCriticalPoint(lower / Math.PI - 0.5, upper / Math.PI - 0.5))
+			return ENTIRE;
+
+		// Tangent is increasing between poles
+		return increasing(Math::tan);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval add(
+		Interval	operand)
+	{
+		if (isEmpty() || operand.isEmpty())
+			return EMPTY;
+
+		double min = lower + operand.lower;
+		double max = upper + operand.upper;
+		return create(Double.isNaN(min) ? Double.NEGATIVE_INFINITY : min,
+					  Double.isNaN(max) ? Double.POSITIVE_INFINITY : max, continuous && operand.continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval subtract(
+		Interval	operand)
+	{
+		if (isEmpty() || operand.isEmpty())
+			return EMPTY;
+
+		double min = lower - operand.upper;
+		double max = upper - operand.lower;
+		return create(Double.isNaN(min) ? Double.NEGATIVE_INFINITY : min,
+					  Double.isNaN(max) ? Double.POSITIVE_INFINITY : max, continuous && operand.continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval multiply(
+		Interval	operand)
+	{
+		if (isEmpty() || operand.isEmpty())
+			return EMPTY;
+
+		double p1 = product(lower, operand.lower);
+		double p2 = product(lower, operand.upper);
+		double p3 = product(upper, operand.lower);
+		double p4 = product(upper, operand.upper);
+		return create(Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4)),
+					  continuous && operand.continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval divide(
+		Interval	operand)
+	{
+		if (isEmpty() || operand.isEmpty())
+			return EMPTY;
+
+		// If the divisor might be zero, the quotient is unbounded
+		if ((operand.lower <= 0.0) && (operand.upper >= 0.0))
+			return ENTIRE;
+
+		double q1 = lower / operand.lower;
+		double q2 = lower / operand.upper;
+		double q3 = upper / operand.lower;
+		double q4 = upper / operand.upper;
+		if (Double.isNaN(q1) || Double.isNaN(q2) || Double.isNaN(q3) || Double.isNaN(q4))
+			return ENTIRE;
+		return create(Math.min(Math.min(q1, q2), Math.min(q3, q4)), Math.max(Math.max(q1, q2), Math.max(q3, q4)),
+					  continuous && operand.continuous);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval remainder(
+		Interval	operand)
+	{
+		// If the divisor is constant and the dividend lies between zero or a multiple of the divisor and the next
+		// multiple, the remainder is a translation of the dividend
+		double divisor = operand.lower;
+		if ((divisor == operand.upper) && (divisor != 0.0) && Double.isFinite(divisor) && Double.isFinite(lower)
+				&& Double.isFinite(upper) && ((lower >= 0.0) || (upper <= 0.0)) && (upper - lower < Math.abs(divisor)))
+		{
+			double value1 = lower % divisor;
+			double value2 = upper % divisor;
+			if (value1 <= value2)
+				return create(value1, value2, continuous && operand.continuous);
+		}
+
+		// The remainder has the sign of the dividend and is smaller in magnitude than the divisor
+		double max = Math.max(Math.abs(operand.lower), Math.abs(operand.upper));
+		return create((lower >= 0.0) ? 0.0 : Math.max(lower, -max), (upper <= 0.0) ? 0.0 : Math.min(upper, max),
+					  false);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval ieeeRemainder(
+		Interval	operand)
+	{
+		// If the divisor is constant and the dividend does not cross a discontinuity of the remainder, the remainder
+		// is a translation of the dividend
+		double divisor = operand.lower;
+		if ((divisor == operand.upper) && (divisor != 0.0) && Double.isFinite(divisor) && Double.isFinite(lower)
+				&& Double.isFinite(upper) && (upper - lower < Math.abs(divisor)))
+		{
+			double value1 = Math.IEEEremainder(lower, divisor);
+			double value2 = Math.IEEEremainder(upper, divisor);
+			if (value1 <= value2)
+				return create(value1, value2, continuous && operand.continuous);
+		}
+
+		// The magnitude of the remainder is no greater than half the divisor or the dividend
+		double max = Math.min(0.5 * Math.max(Math.abs(operand.lower), Math.abs(operand.upper)),
+							  Math.max(Math.abs(lower), Math.abs(upper)));
+		return create(-max, max, false);
+	}
+
+	//------------------------------------------------------------------
+
+	private Interval pow(
+		Interval	exponent)
+	{
+		if (exponent.isEmpty())
+			return EMPTY;
+
+		// NaN to the power of zero is 1, so the power of an empty base is 1 wherever the exponent is zero
+		if (isEmpty())
+			return ((exponent.lower <= 0.0) && (exponent.upper >= 0.0)) ? ONE_NOT_CONTINUOUS : EMPTY;
+
+		// Constant integer exponent
+		double n = exponent.lower;
+		boolean constantExponent = (n == exponent.upper);
+		boolean bothContinuous = continuous && exponent.continuous;
+		if (constantExponent && (n == Math.rint(n)))
+		{
+			if (n == 0.0)
+				return create(1.0, 1.0, bothContinuous);
+
+			boolean even = (n % 2.0 == 0.0);
+			Interval base = even ? abs() : this;
+			if (n > 0.0)
+				return create(Math.pow(base.lower, n), Math.pow(base.upper, n), bothContinuous);
+
+			// Negative exponent: the power has a pole at zero
+			if ((base.lower <= 0.0) && (base.upper >= 0.0))
+				return even ? create(Math.pow(base.upper, n), Double.POSITIVE_INFINITY, false) : ENTIRE;
+			return create(Math.pow(base.upper, n), Math.pow(base.lower, n), bothContinuous);
+		}
+
+		// A non-integer power of a negative base is NaN
+		if (lower < 0.0)
+			return constantExponent ? restrict(0.0, Double.POSITIVE_INFINITY).pow(exponent) : ENTIRE;
+
+		// A power of a non-negative base is monotonic in each argument, so its extrema lie at the corners
+		double p1 = Math.pow(lower, exponent.lower);
+		double p2 = Math.pow(lower, exponent.upper);
+		double p3 = Math.pow(upper, exponent.lower);
+		double p4 = Math.pow(upper, exponent.upper);
+		return create(Math.min(Math.min(p1, p2), Math.min(p3, p4)), Math.max(Math.max(p1, p2), Math.max(p3, p4)),
+					  bothContinuous && ((lower > 0.0) || (exponent.lower > 0.0)));
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
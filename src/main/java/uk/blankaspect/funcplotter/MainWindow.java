@@ -144,6 +144,7 @@ class MainWindow
 		menu.addMenuListener(this);
 
 		menu.add(new FCheckBoxMenuItem(FunctionDocument.Command.TOGGLE_SHOW_GRID, KeyEvent.VK_G));
+		menu.add(new FCheckBoxMenuItem(FunctionDocument.Command.TOGGLE_ENVELOPE_MODE, KeyEvent.VK_E));
 
 		menuBar.add(menu);
 
@@ -0,0 +1,143 @@
+/*====================================================================*\
+
+MathFunctions.java
+
+Class: mathematical functions.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: MATHEMATICAL FUNCTIONS
+
+
+/**
+ * This class provides the functions of {@link Expression} that are not provided directly by {@link Math}.  The
+ * interpreter and the bytecode compiler of expressions both call these methods, so that the two forms of an expression
+ * produce identical results.
+ */
+
+class MathFunctions
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private MathFunctions()
+	{
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	public static double acosh(
+		double	x)
+	{
+		return (x < 1.0) ? Double.NaN : Math.log(x + Math.sqrt(x * x - 1.0));
+	}
+
+	//------------------------------------------------------------------
+
+	public static double acot(
+		double	x)
+	{
+		return Math.atan(1.0 / x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double acsc(
+		double	x)
+	{
+		return Math.asin(1.0 / x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double asec(
+		double	x)
+	{
+		return Math.acos(1.0 / x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double asinh(
+		double	x)
+	{
+		return Math.log(x + Math.sqrt(x * x + 1.0));
+	}
+
+	//------------------------------------------------------------------
+
+	public static double atanh(
+		double	x)
+	{
+		return ((x >= -1.0) && (x <= 1.0)) ? 0.5 * Math.log((1.0 + x) / (1.0 - x)) : Double.NaN;
+	}
+
+	//------------------------------------------------------------------
+
+	public static double cosh(
+		double	x)
+	{
+		return 0.5 * (Math.exp(x) + Math.exp(-x));
+	}
+
+	//------------------------------------------------------------------
+
+	public static double cot(
+		double	x)
+	{
+		return 1.0 / Math.tan(x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double csc(
+		double	x)
+	{
+		return 1.0 / Math.sin(x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double sec(
+		double	x)
+	{
+		return 1.0 / Math.cos(x);
+	}
+
+	//------------------------------------------------------------------
+
+	public static double sinh(
+		double	x)
+	{
+		return 0.5 * (Math.exp(x) - Math.exp(-x));
+	}
+
+	//------------------------------------------------------------------
+
+	public static double tanh(
+		double	x)
+	{
+		double exp2X = Math.exp(2.0 * x);
+		return (exp2X - 1) / (exp2X + 1);
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
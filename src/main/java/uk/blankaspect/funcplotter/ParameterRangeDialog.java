@@ -0,0 +1,590 @@
+/*====================================================================*\
+
+ParameterRangeDialog.java
+
+Parameter range dialog class.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.awt.Component;
+import java.awt.GridBagConstraints;
+import java.awt.GridBagLayout;
+import java.awt.GridLayout;
+import java.awt.Insets;
+import java.awt.Point;
+import java.awt.Window;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import java.math.BigDecimal;
+
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JComponent;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JOptionPane;
+import javax.swing.JPanel;
+import javax.swing.KeyStroke;
+
+import uk.blankaspect.common.exception.AppException;
+
+import uk.blankaspect.ui.swing.action.KeyAction;
+
+import uk.blankaspect.ui.swing.button.FButton;
+
+import uk.blankaspect.ui.swing.font.FontUtils;
+
+import uk.blankaspect.ui.swing.label.FLabel;
+
+import uk.blankaspect.ui.swing.misc.GuiUtils;
+
+import uk.blankaspect.ui.swing.workaround.LinuxWorkarounds;
+
+//----------------------------------------------------------------------
+
+
+// PARAMETER RANGE DIALOG CLASS
+
+
+/**
+ * This class implements a dialog in which the lower and upper bounds of the range of a parameter are edited.  The
+ * range is the interval over which the slider of the parameter varies its value.
+ */
+
+class ParameterRangeDialog
+	extends JDialog
+	implements ActionListener
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	private static final	int		BOUND_FIELD_LENGTH		= 24;
+	private static final	int		BOUND_FIELD_NUM_COLUMNS	= 16;
+
+	private static final	String	TITLE_STR		= "Range of parameter ";
+	private static final	String	LOWER_BOUND_STR	= "Lower bound";
+	private static final	String	UPPER_BOUND_STR	= "Upper bound";
+
+	// Commands
+	private interface Command
+	{
+		String	ACCEPT	= "accept";
+		String	CLOSE	= "close";
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Class variables
+////////////////////////////////////////////////////////////////////////
+
+	private static	Point	location;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	ParameterSet.Parameter	parameter;
+	private	BoundField				lowerBoundField;
+	private	BoundField				upperBoundField;
+	private	boolean					accepted;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private ParameterRangeDialog(Window                 owner,
+								 char                   name,
+								 ParameterSet.Parameter parameter)
+	{
+		// Call superclass constructor
+		super(owner, TITLE_STR + name, ModalityType.APPLICATION_MODAL);
+
+		// Set icons
+		setIconImages(owner.getIconImages());
+
+		// Initialise instance variables
+		this.parameter = parameter;
+
+
+		//----  Control panel
+
+		GridBagLayout gridBag = new GridBagLayout();
+		GridBagConstraints gbc = new GridBagConstraints();
+
+		JPanel controlPanel = new JPanel(gridBag);
+		GuiUtils.setPaddedLineBorder(controlPanel);
+
+		int gridY = 0;
+
+		// Label: lower bound
+		JLabel lowerBoundLabel = new FLabel(LOWER_BOUND_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(lowerBoundLabel, gbc);
+		controlPanel.add(lowerBoundLabel);
+
+		// Field: lower bound
+		lowerBoundField = new BoundField(parameter.lowerBound());
+
+		lowerBoundLabel.setDisplayedMnemonic(KeyEvent.VK_L);
+		lowerBoundLabel.setLabelFor(lowerBoundField);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(lowerBoundField, gbc);
+		controlPanel.add(lowerBoundField);
+
+		// Label: upper bound
+		JLabel upperBoundLabel = new FLabel(UPPER_BOUND_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(upperBoundLabel, gbc);
+		controlPanel.add(upperBoundLabel);
+
+		// Field: upper bound
+		upperBoundField = new BoundField(parameter.upperBound());
+
+		upperBoundLabel.setDisplayedMnemonic(KeyEvent.VK_U);
+		upperBoundLabel.setLabelFor(upperBoundField);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(upperBoundField, gbc);
+		controlPanel.add(upperBoundField);
+
+
+		//----  Button panel
+
+		JPanel buttonPanel = new JPanel(new GridLayout(1, 0, 8, 0));
+		buttonPanel.setBorder(BorderFactory.createEmptyBorder(3, 8, 3, 8));
+
+		// Button: OK
+		JButton okButton = new FButton(AppConstants.OK_STR);
+		okButton.setActionCommand(Command.ACCEPT);
+		okButton.addActionListener(this);
+		buttonPanel.add(okButton);
+
+		// Button: cancel
+		JButton cancelButton = new FButton(AppConstants.CANCEL_STR);
+		cancelButton.setActionCommand(Command.CLOSE);
+		cancelButton.addActionListener(this);
+		buttonPanel.add(cancelButton);
+
+
+		//----  Main panel
+
+		JPanel mainPanel = new JPanel(gridBag);
+		mainPanel.setBorder(BorderFactory.createEmptyBorder(2, 2, 2, 2));
+
+		gridY = 0;
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(0, 0, 0, 0);
+		gridBag.setConstraints(controlPanel, gbc);
+		mainPanel.add(controlPanel);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = new Insets(3, 0, 0, 0);
+		gridBag.setConstraints(buttonPanel, gbc);
+		mainPanel.add(buttonPanel);
+
+		// Add commands to action map
+		KeyAction.create(mainPanel, JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT,
+						 KeyStroke.getKeyStroke(KeyEvent.VK_ESCAPE, 0), Command.CLOSE, this);
+
+
+		//----  Window
+
+		// Set content pane
+		setContentPane(mainPanel);
+
+		// Dispose of window explicitly
+		setDefaultCloseOperation(DO_NOTHING_ON_CLOSE);
+
+		// Handle window events
+		addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowOpened(
+				WindowEvent	event)
+			{
+				// WORKAROUND for a bug that has been observed on Linux/GNOME whereby a window is displaced downwards
+				// when its location is set.  The error in the y coordinate is the height of the title bar of the
+				// window.  The workaround is to set the location of the window again with an adjustment for the error.
+				LinuxWorkarounds.fixWindowYCoord(event.getWindow(), location);
+			}
+
+			@Override
+			public void windowClosing(
+				WindowEvent	event)
+			{
+				onClose();
+			}
+		});
+
+		// Prevent dialog from being resized
+		setResizable(false);
+
+		// Resize dialog to its preferred size
+		pack();
+
+		// Set location of dialog
+		if (location == null)
+			location = GuiUtils.getComponentLocation(this, owner);
+		setLocation(location);
+
+		// Set default button
+		getRootPane().setDefaultButton(okButton);
+
+		// Set focus
+		lowerBoundField.requestFocusInWindow();
+
+		// Show dialog
+		setVisible(true);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Displays a dialog in which the range of the specified parameter is edited, and returns the parameter with the
+	 * edited range.  If the value of the parameter lies outside the edited range, it is moved to the nearer bound.
+	 *
+	 * @param  parent
+	 *           the component that determines the owner of the dialog.
+	 * @param  name
+	 *           the name of the parameter.
+	 * @param  parameter
+	 *           the parameter whose range will be edited.
+	 * @return the parameter with the edited range, or {@code null} if the dialog was cancelled.
+	 */
+
+	public static ParameterSet.Parameter showDialog(Component              parent,
+													char                   name,
+													ParameterSet.Parameter parameter)
+	{
+		return new ParameterRangeDialog(GuiUtils.getWindow(parent), name, parameter).getParameter();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : ActionListener interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public void actionPerformed(ActionEvent event)
+	{
+		switch (event.getActionCommand())
+		{
+			case Command.ACCEPT -> onAccept();
+			case Command.CLOSE  -> onClose();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	private ParameterSet.Parameter getParameter()
+	{
+		if (!accepted)
+			return null;
+
+		double lowerBound = lowerBoundField.getValue().doubleValue();
+		double upperBound = upperBoundField.getValue().doubleValue();
+		double value = Math.min(Math.max(lowerBound, parameter.value()), upperBound);
+		return new ParameterSet.Parameter(value, lowerBound, upperBound);
+	}
+
+	//------------------------------------------------------------------
+
+	private void validateUserInput()
+		throws AppException
+	{
+		// Validate lower bound
+		try
+		{
+			try
+			{
+				double value = lowerBoundField.getValue().doubleValue();
+				if ((value < PlotInterval.MIN_VALUE) || (value > PlotInterval.MAX_VALUE))
+					throw new AppException(ErrorId.LOWER_BOUND_OUT_OF_BOUNDS);
+			}
+			catch (NumberFormatException e)
+			{
+				throw new AppException(ErrorId.INVALID_LOWER_BOUND);
+			}
+		}
+		catch (AppException e)
+		{
+			GuiUtils.setFocus(lowerBoundField);
+			throw e;
+		}
+
+		// Validate upper bound
+		try
+		{
+			try
+			{
+				double value = upperBoundField.getValue().doubleValue();
+				if ((value < PlotInterval.MIN_VALUE) || (value > PlotInterval.MAX_VALUE))
+					throw new AppException(ErrorId.UPPER_BOUND_OUT_OF_BOUNDS);
+			}
+			catch (NumberFormatException e)
+			{
+				throw new AppException(ErrorId.INVALID_UPPER_BOUND);
+			}
+
+			if (lowerBoundField.getValue().doubleValue() >= upperBoundField.getValue().doubleValue())
+				throw new AppException(ErrorId.BOUNDS_OUT_OF_ORDER);
+		}
+		catch (AppException e)
+		{
+			GuiUtils.setFocus(upperBoundField);
+			throw e;
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void onAccept()
+	{
+		try
+		{
+			validateUserInput();
+			accepted = true;
+			onClose();
+		}
+		catch (AppException e)
+		{
+			JOptionPane.showMessageDialog(this, e, FuncPlotterApp.SHORT_NAME, JOptionPane.ERROR_MESSAGE);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void onClose()
+	{
+		location = getLocation();
+		setVisible(false);
+		dispose();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ERROR IDENTIFIERS
+
+
+	private enum ErrorId
+		implements AppException.IId
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		INVALID_LOWER_BOUND
+		("The lower bound of the range is invalid."),
+
+		LOWER_BOUND_OUT_OF_BOUNDS
+		("The lower bound of the range must be between " + PlotInterval.MIN_VALUE + " and " +
+			PlotInterval.MAX_VALUE + "."),
+
+		INVALID_UPPER_BOUND
+		("The upper bound of the range is invalid."),
+
+		UPPER_BOUND_OUT_OF_BOUNDS
+		("The upper bound of the range must be between " + PlotInterval.MIN_VALUE + " and " +
+			PlotInterval.MAX_VALUE + "."),
+
+		BOUNDS_OUT_OF_ORDER
+		("The upper bound of the range is less than or equal to the lower bound.");
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	message;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ErrorId(String message)
+		{
+			this.message = message;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : AppException.IId interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getMessage()
+		{
+			return message;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// BOUND FIELD CLASS
+
+
+	private static class BoundField
+		extends SurrogateMinus.Field
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	String	VALID_CHARS	= "+.0123456789E";
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private BoundField(double value)
+		{
+			super(BOUND_FIELD_LENGTH, BOUND_FIELD_NUM_COLUMNS);
+			setText(Double.toString(value).toUpperCase());
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected int getColumnWidth()
+		{
+			return FontUtils.getCharWidth('0', getFontMetrics(getFont())) + 1;
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		protected String translateInsertString(String str,
+											   int    offset)
+		{
+			return super.translateInsertString(str, offset).toUpperCase();
+		}
+
+		//--------------------------------------------------------------
+
+		@Override
+		protected boolean acceptCharacter(char ch,
+										  int  index)
+		{
+			return isMinusCharacter(ch) || (VALID_CHARS.indexOf(ch) >= 0);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * @throws NumberFormatException
+		 */
+
+		public BigDecimal getValue()
+		{
+			return new BigDecimal(getText());
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,238 @@
+/*====================================================================*\
+
+ParameterSet.java
+
+Class: set of parameters.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Map;
+import java.util.TreeMap;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: SET OF PARAMETERS
+
+
+/**
+ * This class holds the parameters of the functions of a {@link FunctionDocument}.  A parameter is a single lower-case
+ * letter, other than the variable <i>x</i> and the constant <i>e</i>, that appears in the expression of a function.
+ * Each parameter has a value and a range of values between a lower bound and an upper bound, over which the parameter
+ * is varied with a slider.  A parameter that has not been set explicitly has a default value and range.
+ * <p>
+ * A function whose expression has parameters is plotted by specialising the expression to the values of its parameters
+ * (see {@link Expression#specialise(ParameterSet)}).
+ * </p>
+ */
+
+class ParameterSet
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	public static final		double	DEFAULT_VALUE		= 1.0;
+	public static final		double	DEFAULT_LOWER_BOUND	= -10.0;
+	public static final		double	DEFAULT_UPPER_BOUND	= 10.0;
+
+	private static final	Parameter	DEFAULT_PARAMETER	=
+			new Parameter(DEFAULT_VALUE, DEFAULT_LOWER_BOUND, DEFAULT_UPPER_BOUND);
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Map<Character, Parameter>	parameters;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an empty set of parameters.
+	 */
+
+	public ParameterSet()
+	{
+		parameters = new TreeMap<>();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of a set of parameters that is a copy of the specified set.
+	 *
+	 * @param parameters
+	 *          the set of parameters that will be copied.
+	 */
+
+	public ParameterSet(
+		ParameterSet	parameters)
+	{
+		this.parameters = new TreeMap<>(parameters.parameters);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns {@code true} if the specified character is a valid name of a parameter.
+	 *
+	 * @param  name
+	 *           the character that will be tested.
+	 * @return {@code true} if {@code name} is a valid name of a parameter.
+	 */
+
+	public static boolean isValidName(
+		char	name)
+	{
+		return (name >= 'a') && (name <= 'z') && (name != 'e') && (name != 'x');
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : overriding methods
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public boolean equals(
+		Object	obj)
+	{
+		if (this == obj)
+			return true;
+
+		return (obj instanceof ParameterSet other) && parameters.equals(other.parameters);
+	}
+
+	//------------------------------------------------------------------
+
+	@Override
+	public int hashCode()
+	{
+		return parameters.hashCode();
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the parameter with the specified name.
+	 *
+	 * @param  name
+	 *           the name of the parameter.
+	 * @return the parameter whose name is {@code name}, or a parameter with the default value and range if the
+	 *         parameter has not been set.
+	 */
+
+	public Parameter get(
+		char	name)
+	{
+		return parameters.getOrDefault(name, DEFAULT_PARAMETER);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the value of the parameter with the specified name.
+	 *
+	 * @param  name
+	 *           the name of the parameter.
+	 * @return the value of the parameter whose name is {@code name}.
+	 */
+
+	public double getValue(
+		char	name)
+	{
+		return get(name).value();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the value of the parameter with the specified name.  The range of the parameter is not changed.
+	 *
+	 * @param name
+	 *          the name of the parameter.
+	 * @param value
+	 *          the value to which the parameter will be set.
+	 */
+
+	public void setValue(
+		char	name,
+		double	value)
+	{
+		Parameter parameter = get(name);
+		parameters.put(name, new Parameter(value, parameter.lowerBound(), parameter.upperBound()));
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the parameter with the specified name.
+	 *
+	 * @param name
+	 *          the name of the parameter.
+	 * @param parameter
+	 *          the value and range to which the parameter will be set.
+	 */
+
+	public void set(
+		char		name,
+		Parameter	parameter)
+	{
+		parameters.put(name, parameter);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: PARAMETER
+
+
+	/**
+	 * This record holds the value of a parameter and the range of values over which it is varied.
+	 *
+	 * @param value
+	 *          the value of the parameter.
+	 * @param lowerBound
+	 *          the lower bound of the range of the parameter.
+	 * @param upperBound
+	 *          the upper bound of the range of the parameter.
+	 */
+
+	record Parameter(
+		double	value,
+		double	lowerBound,
+		double	upperBound)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
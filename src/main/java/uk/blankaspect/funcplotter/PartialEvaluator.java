@@ -0,0 +1,225 @@
+/*====================================================================*\
+
+PartialEvaluator.java
+
+Class: partial evaluator of expressions.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: PARTIAL EVALUATOR OF EXPRESSIONS
+
+
+/**
+ * This class specialises the abstract syntax tree of an {@link Expression} that has parameters to particular values of
+ * the parameters.  Each parameter is replaced by its value, and each subtree that depends on parameters but not on the
+ * variable is evaluated and replaced by a constant, so that it is evaluated once for each set of values of the
+ * parameters rather than once for each value of the variable.  The subtrees that do not depend on any parameter are
+ * not copied: they are shared by the specialised tree and the tree from which it is derived.
+ * <p>
+ * The partial evaluator also identifies the <i>column subexpressions</i> of the specialised tree.  A column
+ * subexpression is a subtree that depends on the variable, that is not a terminal node and that depends on fewer
+ * parameters than its parent.  The values of a column subexpression at the samples of a plot depend only on the
+ * parameters on which the subexpression itself depends, so they can be cached (see {@link ColumnCache}) and reused
+ * while any other parameter varies.  In particular, the values of a subtree that depends only on the variable are
+ * computed once for each set of samples, whatever the values of the parameters.
+ * </p>
+ * <p>
+ * The column subexpressions are listed in the order in which a depth-first traversal of the tree leaves them, so a
+ * column subexpression follows every column subexpression that it contains.
+ * </p>
+ */
+
+class PartialEvaluator
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	// The bit of a dependency mask that denotes the variable.  The bits below it denote the parameters 'a' to 'z'.
+	private static final	int		VARIABLE_MASK	= 1 << 26;
+
+	// The bits of a dependency mask that denote the parameters
+	private static final	int		PARAMETER_MASK	= VARIABLE_MASK - 1;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	ParameterSet					parameters;
+	private	Map<Expression.Node, Integer>	dependencies;
+	private	List<Expression.Node>			columnSubexpressions;
+	private	Expression.Node					tree;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a partial evaluator that specialises the specified abstract syntax tree to the values
+	 * of the specified parameters.
+	 *
+	 * @param tree
+	 *          the tree that will be specialised.  The tree is not modified.
+	 * @param parameters
+	 *          the parameters whose values will replace the parameters of {@code tree}.
+	 */
+
+	public PartialEvaluator(
+		Expression.Node	tree,
+		ParameterSet	parameters)
+	{
+		// Initialise instance variables
+		this.parameters = parameters;
+		dependencies = new IdentityHashMap<>();
+		columnSubexpressions = new ArrayList<>();
+
+		// Specialise tree
+		if (tree != null)
+		{
+			getDependencies(tree);
+			this.tree = specialise(tree);
+		}
+		dependencies = null;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the specialised tree.
+	 *
+	 * @return the specialised tree, which contains no parameters.
+	 */
+
+	public Expression.Node getTree()
+	{
+		return tree;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the column subexpressions of the specialised tree.
+	 *
+	 * @return an unmodifiable list of the column subexpressions of the specialised tree.
+	 */
+
+	public List<Expression.Node> getColumnSubexpressions()
+	{
+		return Collections.unmodifiableList(columnSubexpressions);
+	}
+
+	//------------------------------------------------------------------
+
+	private int getDependencies(
+		Expression.Node	node)
+	{
+		int dependency = 0;
+		if (node instanceof Expression.Node.VariableNode)
+			dependency = VARIABLE_MASK;
+		else if (node instanceof Expression.Node.ParameterNode parameterNode)
+			dependency = 1 << (parameterNode.name - 'a');
+		if (node.leftChild != null)
+			dependency |= getDependencies(node.leftChild);
+		if (node.rightChild != null)
+			dependency |= getDependencies(node.rightChild);
+		dependencies.put(node, dependency);
+		return dependency;
+	}
+
+	//------------------------------------------------------------------
+
+	private Expression.Node specialise(
+		Expression.Node	node)
+	{
+		int dependency = dependencies.get(node);
+
+		// Subtree that does not depend on any parameter
+		if ((dependency & PARAMETER_MASK) == 0)
+			return node;
+
+		// Parameter
+		if (node instanceof Expression.Node.ParameterNode parameterNode)
+			return new Expression.Node.ConstantNode(null, parameters.getValue(parameterNode.name));
+
+		// Unary operation
+		if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+		{
+			Expression.Node operand = specialiseOperand(unaryNode.leftChild, dependency);
+			if (operand instanceof Expression.Node.ConstantNode constantNode)
+				return new Expression.Node.ConstantNode(null, unaryNode.unaryOperation.evaluate(constantNode.value));
+
+			Expression.Node specialisedNode = new Expression.Node.UnaryOperationNode(null, unaryNode.unaryOperation);
+			specialisedNode.leftChild = operand;
+			return specialisedNode;
+		}
+
+		// Binary operation
+		if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+		{
+			Expression.Node operand1 = specialiseOperand(binaryNode.leftChild, dependency);
+			Expression.Node operand2 = specialiseOperand(binaryNode.rightChild, dependency);
+			if ((operand1 instanceof Expression.Node.ConstantNode constantNode1)
+					&& (operand2 instanceof Expression.Node.ConstantNode constantNode2))
+			{
+				return new Expression.Node.ConstantNode(null, binaryNode.binaryOperation.evaluate(constantNode1.value,
+																									constantNode2.value));
+			}
+
+			Expression.Node specialisedNode = new Expression.Node.BinaryOperationNode(null,
+																					  binaryNode.binaryOperation);
+			specialisedNode.leftChild = operand1;
+			specialisedNode.rightChild = operand2;
+			return specialisedNode;
+		}
+
+		// Unknown kind of node
+		return new Expression.Node.ConstantNode(null, Double.NaN);
+	}
+
+	//------------------------------------------------------------------
+
+	private Expression.Node specialiseOperand(
+		Expression.Node	node,
+		int				parentDependency)
+	{
+		Expression.Node specialisedNode = specialise(node);
+
+		// An operand that depends on the variable and on fewer parameters than its parent is a column subexpression
+		int dependency = dependencies.get(node);
+		if (((dependency & VARIABLE_MASK) != 0) && !node.isTerminal() && (dependency != parentDependency))
+			columnSubexpressions.add(specialisedNode);
+
+		return specialisedNode;
+	}
+
+	//------------------------------------------------------------------
+
+}
+
+//----------------------------------------------------------------------
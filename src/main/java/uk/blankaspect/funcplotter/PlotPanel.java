@@ -18,9 +18,11 @@ package uk.blankaspect.funcplotter;
 // IMPORTS
 
 
+import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Cursor;
 import java.awt.Dimension;
+import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -34,10 +36,31 @@ import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseMotionAdapter;
 
+import java.awt.font.FontRenderContext;
+
+import java.awt.geom.AffineTransform;
 import java.awt.geom.Point2D;
 
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.awt.image.RenderedImage;
+import java.awt.image.WritableRaster;
+
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinTask;
+
+import java.util.function.BooleanSupplier;
 
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
@@ -65,6 +88,31 @@ import uk.blankaspect.ui.swing.text.TextUtils;
 // CLASS: PLOT PANEL
 
 
+/**
+ * This class implements the panel on which the functions of a {@link FunctionDocument} are plotted.
+ * <p>
+ * The scales, grid and axes of the plot are drawn on the event-dispatch thread, but the functions are sampled and drawn
+ * into an image on a background thread.  Each time the panel is painted, it takes a snapshot of the state on which the
+ * image of the functions depends (the intervals, the functions, their colours and the values of the parameters); if
+ * the snapshot differs from that of the last render, a new render is started.  A render that is superseded by a newer
+ * one before it completes is abandoned.  The panel draws the newest image that has been completed, so the event-dispatch
+ * thread never waits for a function to be evaluated.  If that image was rendered for other intervals (for example,
+ * after a zoom), it is drawn scaled to the current intervals as a preview until the render for them is complete.
+ * </p>
+ * <p>
+ * A render is scheduled to fit within a budget of time for a frame: a function whose sampling is predicted to exceed
+ * its share of the budget is sampled in fewer columns, and the image is then rendered again with every function at
+ * full resolution (see {@link FrameScheduler}).
+ * </p>
+ * <p>
+ * Each function is drawn into a layer of its own, a bitmap of the pixels of its curve, which is cached between
+ * renders together with the samples from which it was drawn.  An image of the functions is composed from the layers,
+ * so a change to one function (for example, to the value of one of its parameters) causes only that function to be
+ * evaluated and drawn again, and a change to the colour, highlighting, visibility or order of the functions causes only
+ * the layers to be composed again.  The caches are accessed only on the thread of the renderer.
+ * </p>
+ */
+
 class PlotPanel
 	extends JComponent
 {
@@ -82,6 +130,15 @@ class PlotPanel
 	public static final		int		MIN_NUM_Y_SCALE_DIGITS	= 4;
 	public static final		int		MAX_NUM_Y_SCALE_DIGITS	= 20;
 
+	public static final		int		MIN_INTERACTION_COLUMN_STEP	= 1;
+	public static final		int		MAX_INTERACTION_COLUMN_STEP	= 16;
+
+	public static final		int		MIN_IMAGE_SCALE	= 1;
+	public static final		int		MAX_IMAGE_SCALE	= 16;
+
+	public static final		int		MIN_ADAPTIVE_SAMPLE_BUDGET	= 0;
+	public static final		int		MAX_ADAPTIVE_SAMPLE_BUDGET	= 16 * MAX_PLOT_WIDTH;
+
 	private static final	int		LEFT_MARGIN				= 4;
 	private static final	int		RIGHT_MARGIN			= 4;
 	private static final	int		TOP_MARGIN				= 8;
@@ -94,6 +151,15 @@ class PlotPanel
 
 	private static final	double	SCROLL_FACTOR	= 0.5;
 
+	// The time, in nanoseconds, within which the functions of a frame should be sampled
+	private static final	long	FRAME_TIME_BUDGET	= 16_000_000L;
+
+	// The greatest column step at which a function is sampled to meet the frame-time budget
+	private static final	int		MAX_SCHEDULED_COLUMN_STEP	= 8;
+
+	// The largest error of an approximate value of a function, as a fraction of the height of a pixel
+	private static final	double	MAX_APPROXIMATION_ERROR	= 1.0 / 64.0;
+
 	private static final	double	RECIP_LOG_10	= 1.0 / Math.log(10.0);
 
 	private static final	String	ZERO_STR	= "0";
@@ -101,6 +167,24 @@ class PlotPanel
 	private static final	Color	POP_UP_TEXT_COLOUR		= Color.BLACK;
 	private static final	Color	POP_UP_BORDER_COLOUR	= Colours.LINE_BORDER;
 
+	private static final	String	RENDERER_THREAD_NAME	= "plotRenderer";
+
+	// The buffers of the vertices of polylines of each thread that draws layers
+	private static final	ThreadLocal<PolylineBuffer>	POLYLINE_BUFFERS	=
+			ThreadLocal.withInitial(PolylineBuffer::new);
+
+	// The executor on whose thread the functions of all plots are rendered
+	private static final	ExecutorService	RENDERER	= Executors.newSingleThreadExecutor(runnable ->
+	{
+		Thread thread = new Thread(runnable, RENDERER_THREAD_NAME);
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	// The scheduler of the resolution of the functions that are rendered on the thread of the renderer
+	private static final	FrameScheduler	FRAME_SCHEDULER	=
+			new FrameScheduler(FRAME_TIME_BUDGET, MAX_SCHEDULED_COLUMN_STEP);
+
 ////////////////////////////////////////////////////////////////////////
 //  Class variables
 ////////////////////////////////////////////////////////////////////////
@@ -111,21 +195,36 @@ class PlotPanel
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	FunctionDocument		document;
-	private	int						panelWidth;
-	private	int						panelHeight;
-	private	int						maxYScaleStrWidth;
-	private	Insets					borderInsets;
-	private	Rectangle				plotRect;
-	private	PlotParams				xParams;
-	private	PlotParams				yParams;
-	private	List<ChangeListener>	changeListeners;
-	private	ChangeEvent				changeEvent;
-	private	char					minusChar;
-	private	boolean					gridVisible;
-	private	boolean					drawingImage;
-	private	List<ScaleText>			scaleTexts;
-	private	Popup					scalePopUp;
+	private	FunctionDocument					document;
+	private	int									panelWidth;
+	private	int									panelHeight;
+	private	int									maxYScaleStrWidth;
+	private	Insets								borderInsets;
+	private	Rectangle							plotRect;
+	private	PlotParams							xParams;
+	private	PlotParams							yParams;
+	private	List<ChangeListener>				changeListeners;
+	private	ChangeEvent							changeEvent;
+	private	char								minusChar;
+	private	boolean								gridVisible;
+	private	boolean								envelopeMode;
+	private	boolean								interactive;
+	private	ScaleLayout							scaleLayout;
+	private	BackgroundLayerKey					backgroundLayerKey;
+	private	BufferedImage						backgroundLayer;
+	private	Popup								scalePopUp;
+	private volatile	RenderRequest			renderRequest;
+	private	BufferedImage						functionImage;
+	private	RenderRequest						functionImageRequest;
+	private	Map<Expression, FunctionLayer>		functionLayers;
+	private	Map<Expression, FunctionSamples>	functionSamples;
+	private	Map<Expression, FunctionEnvelope>	functionEnvelopes;
+	private	Map<Expression, ColumnCache>		columnCaches;
+	private	PlotParams							samplesXParams;
+	private	PlotParams							samplesYParams;
+	private	ApproximateMathFunctions.Accuracy	samplesAccuracy;
+	private	boolean								samplesEnvelopeMode;
+	private	boolean								renderDegraded;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -163,7 +262,10 @@ class PlotPanel
 		xParams = new PlotParams(document.getXInterval(), plotWidth);
 		yParams = new PlotParams(document.getYInterval(), plotHeight);
 		changeListeners = new ArrayList<>();
-		scaleTexts = new ArrayList<>();
+		functionLayers = new IdentityHashMap<>();
+		functionSamples = new IdentityHashMap<>();
+		functionEnvelopes = new IdentityHashMap<>();
+		columnCaches = new IdentityHashMap<>();
 
 		// Set properties
 		setOpaque(true);
@@ -213,9 +315,10 @@ class PlotPanel
 			public void mouseMoved(
 				MouseEvent	event)
 			{
-				if (scalePopUp == null)
+				ScaleLayout layout = scaleLayout;
+				if ((scalePopUp == null) && (layout != null))
 				{
-					for (ScaleText scaleText : scaleTexts)
+					for (ScaleText scaleText : layout.scaleTexts())
 					{
 						String str = scaleText.getText(event.getPoint());
 						if (str != null)
@@ -267,150 +370,74 @@ class PlotPanel
 		// Create copy of graphics context
 		Graphics2D gr2d = GuiUtils.copyGraphicsContext(gr);
 
-		// Draw component background
-		Rectangle rect = gr2d.getClipBounds();
-		AppConfig config = AppConfig.INSTANCE;
-		gr2d.setColor(drawingImage ? config.getPlotColourImageMargin() : getBackground());
-		gr2d.fillRect(rect.x, rect.y, rect.width, rect.height);
-
-		// Draw plot background
-		gr2d.setColor(config.getPlotColourBackground());
-		gr2d.fillRect(plotRect.x, plotRect.y, plotRect.width, plotRect.height);
+		// Get the scale factors of the device
+		AffineTransform transform = gr2d.getTransform();
+		double scaleX = transform.getScaleX();
+		double scaleY = transform.getScaleY();
 
-		// Set rendering hints for text antialiasing and fractional metrics
+		// Draw background, grid, scales and axes in the background layer again if any of the state on which the layer
+		// depends has changed
+		AppConfig config = AppConfig.INSTANCE;
+		int width = Math.max(getWidth(), panelWidth);
+		int height = Math.max(getHeight(), panelHeight);
 		TextRendering.setHints(gr2d);
+		BackgroundLayerKey key =
+				new BackgroundLayerKey(createScaleLayoutKey(gr2d.getFontMetrics()), width, height, scaleX, scaleY,
+									   gridVisible, getBackground(), config.getPlotColourBackground(),
+									   config.getPlotColourGrid(), config.getPlotColourScale(),
+									   config.getPlotColourAxis());
+		if (!key.equals(backgroundLayerKey))
+		{
+			backgroundLayerKey = key;
+			backgroundLayer = new BufferedImage((int)Math.ceil((double)width * scaleX),
+												(int)Math.ceil((double)height * scaleY),
+												BufferedImage.TYPE_INT_RGB);
+			Graphics2D layerGr = backgroundLayer.createGraphics();
+			layerGr.scale(scaleX, scaleY);
+			layerGr.setFont(gr2d.getFont());
+			drawBackground(layerGr, getBackground(), width, height, getScaleLayout(layerGr));
+			layerGr.dispose();
+		}
 
-		// Initialise local variables
-		int numFractionDigits = config.getNumFractionDigits();
-		IntegerRange fixedPointExponentRange = config.getFixedPointExponentRange();
-		boolean applyFixedExponent = !config.isNormaliseScientificNotation();
+		// Draw background layer
+		gr2d.drawImage(backgroundLayer, 0, 0, width, height, null);
 
-		FontMetrics fontMetrics = gr2d.getFontMetrics();
-		int fontAscent = fontMetrics.getAscent();
-		int textHeight = fontMetrics.getAscent() + fontMetrics.getDescent();
+		// Create snapshot of the state on which the image of the functions depends
+		RenderRequest request = createRenderRequest(interactive ? config.getInteractionColumnStep() : 1);
 
-		// Draw x grid lines and scale markings
-		scaleTexts.clear();
-		int divisionOffset = xParams.divisionOffset;
-		int strEndX = 0;
-		int yAxisX = -1;
-		String prevStr = null;
-		while (divisionOffset < plotRect.width)
+		// Plot functions.  If the state has changed since the last render, start a new render, which supersedes the
+		// last one.  The functions are rendered within the frame-time budget; if the resolution of some of them was
+		// reduced to meet the budget, the image is shown and the functions are then rendered again at full resolution.
+		if (!request.equals(renderRequest))
 		{
-			int x = plotRect.x + divisionOffset;
-			double value = xParams.start + (double)divisionOffset * xParams.pixelDelta;
-			String str = PlotInterval.doubleToString(value, numFractionDigits, fixedPointExponentRange,
-													 applyFixedExponent, xParams.intervalExponent);
-			if (Math.abs(value) < 0.5 * xParams.pixelDelta)
-			{
-				str = ZERO_STR;
-				yAxisX = x;
-			}
-			else
-			{
-				if (gridVisible)
-				{
-					gr2d.setColor(config.getPlotColourGrid());
-					gr2d.drawLine(x, plotRect.y, x, plotRect.y + plotRect.height - 1);
-				}
-			}
-
-			gr2d.setColor(config.getPlotColourScale());
-			gr2d.drawLine(x, plotRect.y + plotRect.height, x, plotRect.y + plotRect.height + SCALE_LINE_LENGTH - 1);
-
-			if (!str.equals(prevStr))
+			renderRequest = request;
+			RENDERER.execute(() ->
 			{
-				String xStr = SurrogateMinus.minusToSurrogate(str, minusChar);
-				int strWidth = fontMetrics.stringWidth(xStr);
-				int strX = x - strWidth / 2;
-				int strY = plotRect.y + plotRect.height + SCALE_LINE_LENGTH + X_SCALE_TOP_MARGIN + fontAscent;
-				if (strX < strEndX)
+				BooleanSupplier cancelled = () -> (request != renderRequest);
+				BufferedImage image = renderFunctions(request, cancelled, true);
+				if (image != null)
 				{
-					String limXStr = null;
-					if (config.isTruncateXScaleText())
+					showFunctionImage(image, request);
+					if (renderDegraded)
 					{
-						limXStr = TextUtils.getLimitedWidthString(xStr, fontMetrics, 2 * (x - strEndX),
-																  TextUtils.RemovalMode.START);
-						strWidth = fontMetrics.stringWidth(limXStr);
+						image = renderFunctions(request, cancelled, false);
+						if (image != null)
+							showFunctionImage(image, request);
 					}
-					else
-						strWidth = 2 * (x - strEndX);
-					strX = x - strWidth / 2;
-					scaleTexts.add(new ScaleText(xStr, strX, strY - fontAscent, strWidth, textHeight, x));
-					xStr = limXStr;
-				}
-				if (xStr != null)
-				{
-					gr2d.drawString(xStr, strX, strY);
-					strEndX = strX + strWidth + X_SCALE_GAP;
 				}
-			}
-			prevStr = str;
-
-			divisionOffset += xParams.pixelsPerDivision;
+			});
 		}
 
-		// Draw y grid lines and scale markings
-		divisionOffset = yParams.divisionOffset;
-		int xAxisY = -1;
-		prevStr = null;
-		while (divisionOffset < plotRect.height)
+		// Draw the newest image of the functions.  If it was rendered for other intervals, draw it rescaled to the
+		// current intervals as a preview until the render for the current intervals is complete.
+		if (functionImage != null)
 		{
-			int y = plotRect.y + (plotRect.height - 1) - divisionOffset;
-			double value = yParams.start + (double)divisionOffset * yParams.pixelDelta;
-			String str = PlotInterval.doubleToString(value, numFractionDigits, fixedPointExponentRange,
-													 applyFixedExponent, yParams.intervalExponent);
-			if (Math.abs(value) < 0.5 * yParams.pixelDelta)
-			{
-				str = ZERO_STR;
-				xAxisY = y;
-			}
+			PlotParams imageXParams = functionImageRequest.xParams();
+			PlotParams imageYParams = functionImageRequest.yParams();
+			if ((imageXParams == xParams) && (imageYParams == yParams))
+				gr2d.drawImage(functionImage, plotRect.x, plotRect.y, null);
 			else
-			{
-				if (gridVisible)
-				{
-					gr2d.setColor(config.getPlotColourGrid());
-					gr2d.drawLine(plotRect.x, y, plotRect.x + plotRect.width - 1, y);
-				}
-			}
-
-			gr2d.setColor(config.getPlotColourScale());
-			gr2d.drawLine(plotRect.x - SCALE_LINE_LENGTH, y, plotRect.x - 1, y);
-
-			if (!str.equals(prevStr))
-			{
-				String yStr = SurrogateMinus.minusToSurrogate(str, minusChar);
-				String limYStr = TextUtils.getLimitedWidthString(yStr, fontMetrics, maxYScaleStrWidth,
-																 TextUtils.RemovalMode.START);
-				int strWidth = fontMetrics.stringWidth(limYStr);
-				int strX = plotRect.x - (strWidth + Y_SCALE_LEFT_MARGIN + SCALE_LINE_LENGTH);
-				int strY = y + fontAscent / 2;
-				if (limYStr != yStr)
-					scaleTexts.add(new ScaleText(yStr, strX, strY - fontAscent, strWidth, textHeight, 0));
-				gr2d.drawString(limYStr, strX, strY);
-			}
-			prevStr = str;
-
-			divisionOffset += yParams.pixelsPerDivision;
-		}
-
-		// Draw axes
-		gr2d.setColor(config.getPlotColourAxis());
-		if (yAxisX >= 0)
-			gr2d.drawLine(yAxisX, plotRect.y, yAxisX, plotRect.y + plotRect.height - 1);
-		if (xAxisY >= 0)
-			gr2d.drawLine(plotRect.x, xAxisY, plotRect.x + plotRect.width - 1, xAxisY);
-
-		// Plot functions
-		Graphics plotGr = gr2d.create(plotRect.x, plotRect.y, plotRect.width, plotRect.height);
-		for (int i = document.getNumFunctions() - 1; i >= 0; i--)
-		{
-			Function function = document.getFunction(i);
-			if (!function.isHidden() && (!function.isObscured() || config.isFunctionObscuredColour()))
-			{
-				plotGr.setColor(function.isObscured() ? config.getFunctionObscuredColour() : function.getColour());
-				drawExpression(plotGr, function.getExpression(), 0, plotRect.width);
-			}
+				drawPreview(gr2d, functionImage, imageXParams, imageYParams);
 		}
 	}
 
@@ -427,6 +454,13 @@ class PlotPanel
 
 	//------------------------------------------------------------------
 
+	public boolean isEnvelopeMode()
+	{
+		return envelopeMode;
+	}
+
+	//------------------------------------------------------------------
+
 	public Point2D.Double pointToCoords(
 		Point	point)
 	{
@@ -537,14 +571,115 @@ class PlotPanel
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Sets the mode in which the functions are drawn.  In envelope mode, the least and greatest values of each
+	 * function at several sub-samples in each column of the plot are drawn as a vertical span in the column (see {@link
+	 * FunctionEnvelope}); otherwise, each function is drawn as a curve through its samples.
+	 *
+	 * @param envelopeMode
+	 *          if {@code true}, the functions will be drawn as envelopes.
+	 */
+
+	public void setEnvelopeMode(
+		boolean	envelopeMode)
+	{
+		if (this.envelopeMode != envelopeMode)
+		{
+			this.envelopeMode = envelopeMode;
+			repaint();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	public boolean isInteractive()
+	{
+		return interactive;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Sets the interaction mode of the panel.  While a gesture such as a drag or a sequence of mouse-wheel scrolls is
+	 * in progress, the panel is interactive: the functions are sampled only in every <i>n</i>th column of the plot,
+	 * where <i>n</i> is the interaction column step of the application configuration, so that the plot keeps up with
+	 * the gesture.  The adaptive sampler still refines the segments between the sampled columns.  When the gesture
+	 * ends, the functions are drawn again at the full resolution of the plot.
+	 *
+	 * @param interactive
+	 *          if {@code true}, the functions will be drawn at the reduced resolution of a gesture.
+	 */
+
+	public void setInteractive(
+		boolean	interactive)
+	{
+		if (this.interactive != interactive)
+		{
+			this.interactive = interactive;
+			if (!interactive)
+				repaint();
+		}
+	}
+
+	//------------------------------------------------------------------
+
 	public void drawPanel(
 		Graphics	gr)
 	{
 		gr.setFont(getFont());
 		gr.setClip(0, 0, panelWidth, panelHeight);
-		drawingImage = true;
-		paintComponent(gr);
-		drawingImage = false;
+
+		// Create copy of graphics context
+		Graphics2D gr2d = GuiUtils.copyGraphicsContext(gr);
+
+		// Draw background, grid, scales and axes
+		drawBackground(gr2d, AppConfig.INSTANCE.getPlotColourImageMargin(), panelWidth, panelHeight,
+					   createScaleLayout(gr2d));
+
+		// Render functions synchronously at full resolution
+		RenderRequest request = createRenderRequest(1);
+		BufferedImage image = null;
+		try
+		{
+			image = RENDERER.submit(() -> renderFunctions(request, () -> false, false)).get();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		catch (ExecutionException e)
+		{
+			throw new RuntimeException(e.getCause());
+		}
+
+		// Plot functions
+		if (image != null)
+			gr2d.drawImage(image, plotRect.x, plotRect.y, null);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns an image of this panel that is larger than the panel by the specified factor.  The functions are not
+	 * drawn from the layers of the panel: they are sampled again at the resolution of the image, and their curves are
+	 * drawn with lines that are as wide as the scale factor, so the image has the detail of a plot of its own size and
+	 * the appearance of the panel.
+	 * <p>
+	 * The image is not held in memory: it is rendered in horizontal bands as it is read (see {@link BandedImage}), and
+	 * the functions are sampled when the first band is rendered.  The memory that the image occupies is therefore
+	 * proportional to its width rather than its area, so the image may be much larger than the panel.  The image should
+	 * be read from top to bottom, for example by an image writer, and it should be read only once.
+	 * </p>
+	 *
+	 * @param  scale
+	 *           the factor by which the image is larger than the panel.
+	 * @return an image of this panel that is larger than the panel by a factor of {@code scale}.
+	 */
+
+	public RenderedImage createImage(
+		int	scale)
+	{
+		return new BandedImage(panelWidth * scale, panelHeight * scale, new ImageRenderer(scale));
 	}
 
 	//------------------------------------------------------------------
@@ -569,114 +704,1297 @@ class PlotPanel
 
 	//------------------------------------------------------------------
 
-	private void drawExpression(
-		Graphics	gr,
-		Expression	expression,
-		int			startX,
-		int			endX)
+	/**
+	 * Creates a snapshot of the state on which the image of the functions depends, with the specified column step.
+	 */
+
+	private RenderRequest createRenderRequest(
+		int	columnStep)
 	{
-		final	long	Y_LOWER_BOUND	= Integer.MIN_VALUE >> 1;
-		final	long	Y_UPPER_BOUND	= Integer.MAX_VALUE >> 1;
+		AppConfig config = AppConfig.INSTANCE;
+		List<Expression> expressions = new ArrayList<>();
+		List<Color> colours = new ArrayList<>();
+		for (int i = 0; i < document.getNumFunctions(); i++)
+		{
+			Function function = document.getFunction(i);
+			expressions.add(function.getExpression());
+			colours.add((function.isHidden() || (function.isObscured() && !config.isFunctionObscuredColour()))
+								? null
+								: function.isObscured()
+										? config.getFunctionObscuredColour()
+										: function.getColour());
+		}
+		return new RenderRequest(xParams, yParams, getAccuracy(yParams), envelopeMode, columnStep, expressions,
+								 colours, new ParameterSet(document.getParameters()));
+	}
+
+	//------------------------------------------------------------------
 
-		double prevX = 0.0;
-		double prevY = Double.NaN;
-		int prevPlotY = 0;
-		for (int plotX = startX - 1; plotX <= endX; plotX++)
+	/**
+	 * Sets the newest image of the functions, which was rendered for the specified request, and repaints the plot.
+	 * This method may be called on any thread.
+	 */
+
+	private void showFunctionImage(
+		BufferedImage	image,
+		RenderRequest	request)
+	{
+		SwingUtilities.invokeLater(() ->
 		{
-			double x = xParams.start + (double)plotX * xParams.pixelDelta;
-			double y = expression.evaluate(x);
-			if (!Double.isNaN(y))
-			{
-				int plotY = (int)Math.min(Math.max(Y_LOWER_BOUND,
-												   Math.round((y - yParams.start) / yParams.pixelDelta)),
-										  Y_UPPER_BOUND);
-				if (!Double.isNaN(prevY))
-				{
-					double medianY = expression.evaluate(0.5 * (prevX + x));
-					if (((medianY >= prevY) && (medianY <= y)) || ((medianY >= y) && (medianY <= prevY))
-							|| (y == prevY))
-						gr.drawLine(plotX - 1, (plotRect.height - 1) - prevPlotY, plotX, (plotRect.height - 1) - plotY);
-				}
-				prevPlotY = plotY;
-			}
-			prevX = x;
-			prevY = y;
+			functionImage = image;
+			functionImageRequest = request;
+			repaint(plotRect);
+		});
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the samples of the specified expression over the columns of the plot for the x and y intervals of a render
+	 * request.  The samples are cached, so that they are evaluated only once for each pair of intervals, and they are
+	 * shared by the drawing of the plot on the screen and in an image.  The points of the samples lie in every
+	 * <i>n</i>th column of the plot, where <i>n</i> is the specified column step (see {@link #getFirstSampleIndex(
+	 * RenderRequest, int)}); at full resolution, the point at index <i>i</i> lies in column <i>i</i> - 1 of the plot.
+	 * <p>
+	 * When the plot is scrolled or the y interval changes, the cached samples are shifted to the new columns rather than
+	 * discarded, so that the function is evaluated only in the columns that have been exposed and in the segments that
+	 * are no longer hidden.
+	 * </p>
+	 * <p>
+	 * An expression that has parameters is sampled by specialising it to the current values of the parameters of the
+	 * document.  Its samples are evaluated again when the value of one of its parameters changes, but the values of its
+	 * subexpressions that do not depend on the changed parameter are loaded from a cache of columns of the plot.
+	 * </p>
+	 * <p>
+	 * This method does not access the caches of the panel, so it may be called concurrently for different expressions.
+	 * </p>
+	 *
+	 * @param  expression
+	 *           the expression whose samples are required.
+	 * @param  specialisedExpression
+	 *           the specialisation of {@code expression} to the values of the parameters of {@code request}.
+	 * @param  samples
+	 *           the cached samples of {@code expression}, or {@code null} if there are none.
+	 * @param  columns
+	 *           the cached columns of {@code expression}, or {@code null} if the expression has no parameters.
+	 * @param  request
+	 *           the render request that specifies the intervals, the mode of evaluation and the values of the
+	 *           parameters.
+	 * @param  columnStep
+	 *           the column step at which the expression is sampled.
+	 * @param  cancelled
+	 *           the test of whether the render has been superseded.
+	 * @return the samples of {@code expression} for the x and y intervals of {@code request}.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the samples are created.
+	 */
+
+	private FunctionSamples getSamples(
+		Expression		expression,
+		Expression		specialisedExpression,
+		FunctionSamples	samples,
+		ColumnCache		columns,
+		RenderRequest	request,
+		int				columnStep,
+		BooleanSupplier	cancelled)
+	{
+		long firstIndex = getFirstSampleIndex(request, columnStep);
+		double minY = getMinY(request.yParams());
+		double maxY = getMaxY(request.yParams());
+		ApproximateMathFunctions.Accuracy accuracy = request.accuracy();
+
+		// Create samples if they are not cached, if the values of the parameters have changed or if the column step has
+		// changed
+		if (!isShiftable(samples, specialisedExpression, request, columnStep))
+		{
+			return (columns == null)
+						? new FunctionSamples(expression, request.xParams().pixelDelta * (double)columnStep, firstIndex,
+											  getNumSamplePoints(columnStep), minY, maxY, accuracy, cancelled)
+						: new FunctionSamples(specialisedExpression, columns, minY, maxY, cancelled);
+		}
+
+		// Shift samples if the plot has been scrolled or the y interval has changed
+		if ((samples.getFirstIndex() != firstIndex) || (samples.getMinY() != minY) || (samples.getMaxY() != maxY))
+		{
+			return (columns == null)
+						? new FunctionSamples(samples, firstIndex, minY, maxY, accuracy, cancelled)
+						: new FunctionSamples(samples, columns, minY, maxY, cancelled);
 		}
+
+		return samples;
 	}
 
 	//------------------------------------------------------------------
 
-	private void setBorder(
-		boolean	focused)
+	/**
+	 * Returns the cached columns of the specified expression, shifted to the columns of the plot for the specified
+	 * render request.  If the cached columns have a different column step, they are replaced.  This method must be
+	 * called only on the thread of the renderer.
+	 *
+	 * @param  expression
+	 *           the expression whose columns are required.
+	 * @param  request
+	 *           the render request.
+	 * @param  columnStep
+	 *           the column step at which the expression is sampled.
+	 * @return the cached columns of {@code expression}, or {@code null} if the expression has no parameters.
+	 */
+
+	private ColumnCache getColumnCache(
+		Expression		expression,
+		RenderRequest	request,
+		int				columnStep)
 	{
-		if (focused)
+		if (!expression.hasParameters())
+			return null;
+
+		double delta = request.xParams().pixelDelta * (double)columnStep;
+		long firstIndex = getFirstSampleIndex(request, columnStep);
+		ColumnCache columns = columnCaches.get(expression);
+		if ((columns == null) || (columns.getDelta() != delta))
 		{
-			setBorder(BorderFactory
-					.createMatteBorder(borderInsets.top, borderInsets.left, borderInsets.bottom, borderInsets.right,
-									   AppConfig.INSTANCE.getPlotColourFocusedBorder()));
+			columns = new ColumnCache(delta, firstIndex, getNumSamplePoints(columnStep), request.accuracy());
+			columnCaches.put(expression, columns);
 		}
 		else
-			GuiUtils.setPaddedLineBorder(this, 1);
+			columns.setFirstIndex(firstIndex);
+		return columns;
 	}
 
 	//------------------------------------------------------------------
 
-////////////////////////////////////////////////////////////////////////
-//  Member classes : non-inner classes
-////////////////////////////////////////////////////////////////////////
+	/**
+	 * Returns the index of the first sample point of the functions for the specified render request and column step,
+	 * in units of the spacing of the points.  The points lie in every <i>n</i>th column of the plot, where <i>n</i> is
+	 * the column step; the first point lies in one of the <i>n</i> columns to the left of the plot, and the last point
+	 * lies in or to the right of the last column of the plot (see {@link #getNumSamplePoints(int)}).
+	 */
 
+	private long getFirstSampleIndex(
+		RenderRequest	request,
+		int				columnStep)
+	{
+		return Math.floorDiv(request.xParams().startIndex - 1, columnStep);
+	}
 
-	// CLASS: PLOT PARAMETERS
+	//------------------------------------------------------------------
 
+	private int getNumSamplePoints(
+		int	columnStep)
+	{
+		return (plotRect.width + columnStep - 2) / columnStep + 2;
+	}
 
-	private static class PlotParams
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the index of the first column of the envelopes of the functions for the specified render request and
+	 * column step, in units of the width of the columns.  The columns of an envelope are as wide as the column step;
+	 * the first one overlaps the first column of the plot, and the last one overlaps the last column of the plot (see
+	 * {@link #getNumEnvelopeColumns(int)}).
+	 */
+
+	private long getFirstEnvelopeIndex(
+		RenderRequest	request,
+		int				columnStep)
 	{
+		return Math.floorDiv(request.xParams().startIndex + columnStep / 2, columnStep);
+	}
 
-	////////////////////////////////////////////////////////////////////
-	//  Instance variables
-	////////////////////////////////////////////////////////////////////
+	//------------------------------------------------------------------
 
-		private	double	start;
-		private	double	pixelDelta;
-		private	int		pixelsPerDivision;
-		private	int		divisionOffset;
-		private	double	divisionDelta;
-		private	int		intervalExponent;
+	private int getNumEnvelopeColumns(
+		int	columnStep)
+	{
+		return (plotRect.width + columnStep - 2) / columnStep + 1;
+	}
 
-	////////////////////////////////////////////////////////////////////
-	//  Constructors
-	////////////////////////////////////////////////////////////////////
+	//------------------------------------------------------------------
 
-		private PlotParams(
-			PlotInterval	interval,
-			int				dimension)
-		{
-			final	double	TOLERANCE		= 0.25 / (double)MIN_PIXELS_PER_DIVISION;
-			final	double	UPPER_BOUND_1	= 1.0 + TOLERANCE;
-			final	double	UPPER_BOUND_2	= 2.0 + TOLERANCE;
-			final	double	UPPER_BOUND_5	= 5.0 + TOLERANCE;
+	/**
+	 * Returns {@code true} if the specified samples may be shifted to the columns of the plot for the specified render
+	 * request and column step: that is, if they are samples of the specified expression with the same spacing.
+	 */
 
-			pixelDelta = interval.getInterval() / (double)dimension;
-			divisionDelta = pixelDelta * MIN_PIXELS_PER_DIVISION;
-			int exponent = (int)Math.floor(Math.log(divisionDelta) * RECIP_LOG_10);
-			divisionDelta *= Math.pow(10.0, -exponent);
-			int divIncrement = 1;
-			if (divisionDelta > UPPER_BOUND_1)
-			{
-				if (divisionDelta <= UPPER_BOUND_2)
-					divIncrement = 2;
-				else if (divisionDelta <= UPPER_BOUND_5)
-					divIncrement = 5;
-				else
-					++exponent;
-			}
-			divisionDelta = (double)divIncrement * Math.pow(10.0, exponent);
-			pixelsPerDivision = (int)(divisionDelta / pixelDelta);
-			pixelDelta = divisionDelta / (double)pixelsPerDivision;
+	private boolean isShiftable(
+		FunctionSamples	samples,
+		Expression		specialisedExpression,
+		RenderRequest	request,
+		int				columnStep)
+	{
+		return (samples != null) && samples.getExpression().equals(specialisedExpression)
+				&& (samples.getDelta() == request.xParams().pixelDelta * (double)columnStep);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns {@code true} if the specified envelope may be shifted to the columns of the plot for the specified render
+	 * request and column step: that is, if it is an envelope of the specified expression with the same width of column.
+	 */
+
+	private boolean isShiftable(
+		FunctionEnvelope	envelope,
+		Expression			specialisedExpression,
+		RenderRequest		request,
+		int					columnStep)
+	{
+		return (envelope != null) && envelope.getExpression().equals(specialisedExpression)
+				&& (envelope.getDelta() == request.xParams().pixelDelta * (double)columnStep);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the predicted time to sample the specified expression for the specified render request at the column step
+	 * of the request.  The prediction is the number of points at which the expression must be evaluated, allowing for
+	 * the points that are reused when its cached samples or envelope are shifted, multiplied by the time per point of
+	 * the cost model of the renderer.  The points of samples include the evaluations of the adaptive sampler, which are
+	 * predicted from those of the cached layer of the expression, scaled to the column step, or, if there is no cached
+	 * layer, from the budget of the sampler.  This method must be called only on the thread of the renderer.
+	 */
+
+	private double predictSamplingTime(
+		Expression		expression,
+		Expression		specialisedExpression,
+		RenderRequest	request,
+		int				budget)
+	{
+		int columnStep = request.columnStep();
+		long numPoints = 0;
+		if (request.envelopeMode())
+		{
+			numPoints = (long)getNumEnvelopeColumns(columnStep) * FunctionEnvelope.NUM_SUBSAMPLES;
+			FunctionEnvelope envelope = functionEnvelopes.get(expression);
+			if (isShiftable(envelope, specialisedExpression, request, columnStep))
+			{
+				long shift = Math.abs(getFirstEnvelopeIndex(request, columnStep) - envelope.getFirstIndex());
+				numPoints = Math.min(numPoints, shift * FunctionEnvelope.NUM_SUBSAMPLES);
+			}
+		}
+		else
+		{
+			numPoints = getNumSamplePoints(columnStep);
+			FunctionSamples samples = functionSamples.get(expression);
+			if (isShiftable(samples, specialisedExpression, request, columnStep))
+			{
+				long shift = Math.abs(getFirstSampleIndex(request, columnStep) - samples.getFirstIndex());
+				numPoints = Math.min(numPoints, shift);
+			}
+			FunctionLayer layer = functionLayers.get(expression);
+			long numExtraSamples = (layer == null) || (layer.samples == null)
+										? budget
+										: (long)layer.numExtraSamples * layer.columnStep;
+			numPoints += Math.min(numExtraSamples, budget) / columnStep;
+		}
+		return (double)numPoints * FRAME_SCHEDULER.getTimePerPoint(expression, specialisedExpression);
+	}
+
+	//------------------------------------------------------------------
+
+	private ApproximateMathFunctions.Accuracy getAccuracy(
+		PlotParams	yParams)
+	{
+		// Evaluate functions approximately if approximations are enabled, with the coarsest accuracy that is fine
+		// enough for the y interval
+		return AppConfig.INSTANCE.isApproximateMath()
+					? ApproximateMathFunctions.getAccuracy(getMinY(yParams), getMaxY(yParams),
+														   MAX_APPROXIMATION_ERROR * yParams.pixelDelta)
+					: null;
+	}
+
+	//------------------------------------------------------------------
+
+	private double getMinY(
+		PlotParams	yParams)
+	{
+		return yParams.start - yParams.pixelDelta;
+	}
+
+	//------------------------------------------------------------------
+
+	private double getMaxY(
+		PlotParams	yParams)
+	{
+		return yParams.start + (double)plotRect.height * yParams.pixelDelta;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Draws the functions of the specified render request into a new image of the size of the plot.  This method must
+	 * be called only on the thread of the renderer.
+	 * <p>
+	 * The layers of the functions that are not cached are drawn concurrently in the common fork/join pool, one task for
+	 * each function; the samples of a single function are also evaluated in parallel over chunks of columns (see {@link
+	 * FunctionSamples}).  The new layers are then cached and composed in the order of the functions, so the image is
+	 * identical to one that is drawn sequentially.
+	 * </p>
+	 * <p>
+	 * If the render is budgeted, the column step at which each function is sampled is scheduled so that the render
+	 * stays within the frame-time budget (see {@link FrameScheduler}); otherwise, every function is sampled at the
+	 * column step of the request.  The time that it takes to sample each function in full is fed back to the cost model
+	 * of the scheduler.  If the resolution of a function was reduced to meet the budget, the render is marked as
+	 * degraded, and a render that is not budgeted should follow it.
+	 * </p>
+	 *
+	 * @param  request
+	 *           the render request.
+	 * @param  cancelled
+	 *           the test of whether the render has been superseded.  It is made before the layer of each function is
+	 *           drawn and between the blocks of the evaluations of each function, so that a superseded render is
+	 *           abandoned promptly.
+	 * @param  budgeted
+	 *           if {@code true}, the resolution of the functions will be reduced where necessary to meet the frame-time
+	 *           budget.
+	 * @return an image of the functions of {@code request}, or {@code null} if the render was cancelled.
+	 */
+
+	private BufferedImage renderFunctions(
+		RenderRequest	request,
+		BooleanSupplier	cancelled,
+		boolean			budgeted)
+	{
+		// Invalidate layers if intervals, mode of evaluation or mode of drawing have changed.  Invalidate samples and
+		// envelopes only if the spacing of the columns or the mode of evaluation has changed; otherwise, they are
+		// shifted when they are next used, or replaced if they were sampled at a different column step.
+		if ((samplesXParams != request.xParams()) || (samplesYParams != request.yParams())
+				|| (samplesAccuracy != request.accuracy()) || (samplesEnvelopeMode != request.envelopeMode()))
+		{
+			functionLayers.clear();
+			if ((samplesXParams == null) || (samplesXParams.pixelDelta != request.xParams().pixelDelta)
+					|| (samplesAccuracy != request.accuracy()))
+			{
+				functionSamples.clear();
+				functionEnvelopes.clear();
+				columnCaches.clear();
+			}
+			samplesXParams = request.xParams();
+			samplesYParams = request.yParams();
+			samplesAccuracy = request.accuracy();
+			samplesEnvelopeMode = request.envelopeMode();
+		}
+
+		// Discard layers, samples, envelopes and cached columns of functions that have been removed
+		Map<Expression, FunctionLayer> prevFunctionLayers = functionLayers;
+		Map<Expression, FunctionSamples> prevFunctionSamples = functionSamples;
+		Map<Expression, FunctionEnvelope> prevFunctionEnvelopes = functionEnvelopes;
+		Map<Expression, ColumnCache> prevColumnCaches = columnCaches;
+		functionLayers = new IdentityHashMap<>();
+		functionSamples = new IdentityHashMap<>();
+		functionEnvelopes = new IdentityHashMap<>();
+		columnCaches = new IdentityHashMap<>();
+		for (Expression expression : request.expressions())
+		{
+			FunctionLayer layer = prevFunctionLayers.get(expression);
+			if (layer != null)
+				functionLayers.put(expression, layer);
+			FunctionSamples samples = prevFunctionSamples.get(expression);
+			if (samples != null)
+				functionSamples.put(expression, samples);
+			FunctionEnvelope envelope = prevFunctionEnvelopes.get(expression);
+			if (envelope != null)
+				functionEnvelopes.put(expression, envelope);
+			ColumnCache columns = prevColumnCaches.get(expression);
+			if (columns != null)
+				columnCaches.put(expression, columns);
+		}
+
+		// Find the visible functions whose layers are not cached at the column step of the request or whose parameters
+		// have changed, and predict the time to sample each of them
+		List<Expression> layerExpressions = new ArrayList<>();
+		List<Expression> specialisedExpressions = new ArrayList<>();
+		Set<Expression> pendingExpressions = Collections.newSetFromMap(new IdentityHashMap<>());
+		for (int i = 0; i < request.expressions().size(); i++)
+		{
+			Expression expression = request.expressions().get(i);
+			if ((request.colours().get(i) != null) && pendingExpressions.add(expression))
+			{
+				Expression specialisedExpression = expression.specialise(request.parameters());
+				FunctionLayer layer = functionLayers.get(expression);
+				if ((layer == null) || !layer.expression.equals(specialisedExpression)
+						|| (layer.columnStep != request.columnStep()))
+				{
+					layerExpressions.add(expression);
+					specialisedExpressions.add(specialisedExpression);
+				}
+			}
+		}
+		int budget = AppConfig.INSTANCE.getAdaptiveSampleBudget() / Math.max(1, layerExpressions.size());
+		double[] times = new double[layerExpressions.size()];
+		for (int i = 0; i < times.length; i++)
+			times[i] = predictSamplingTime(layerExpressions.get(i), specialisedExpressions.get(i), request, budget);
+
+		// Schedule the column step of each function
+		int[] columnSteps = new int[times.length];
+		if (budgeted)
+			columnSteps = FRAME_SCHEDULER.getColumnSteps(times, request.columnStep());
+		else
+			Arrays.fill(columnSteps, request.columnStep());
+
+		// Create a task for each function whose cached layer, if any, is coarser than its scheduled column step.  The
+		// budget of the adaptive sampler is shared equally by the functions whose layers are not cached, and it is
+		// reduced in proportion to the resolution of each function.  The tasks are run after all of them are created.
+		List<Expression> taskExpressions = new ArrayList<>();
+		List<ForkJoinTask<FunctionLayer>> layerTasks = new ArrayList<>();
+		for (int i = 0; i < layerExpressions.size(); i++)
+		{
+			Expression expression = layerExpressions.get(i);
+			Expression specialisedExpression = specialisedExpressions.get(i);
+			int columnStep = columnSteps[i];
+			FunctionLayer layer = functionLayers.get(expression);
+			if ((layer == null) || !layer.expression.equals(specialisedExpression) || (layer.columnStep > columnStep))
+			{
+				taskExpressions.add(expression);
+				if (request.envelopeMode())
+				{
+					FunctionEnvelope envelope = functionEnvelopes.get(expression);
+					layerTasks.add(ForkJoinTask.adapt(() -> cancelled.getAsBoolean()
+							? null
+							: createEnvelopeLayer(specialisedExpression, envelope, request, columnStep, cancelled)));
+				}
+				else
+				{
+					FunctionSamples samples = functionSamples.get(expression);
+					ColumnCache columns = getColumnCache(expression, request, columnStep);
+					layerTasks.add(ForkJoinTask.adapt(() -> cancelled.getAsBoolean()
+							? null
+							: createLayer(expression, specialisedExpression, samples, columns, request, columnStep,
+										  budget / columnStep, cancelled)));
+				}
+			}
+		}
+
+		// Draw the layers concurrently.  If the render is cancelled, wait for the other layers to be abandoned too, so
+		// that none of them is still using a cache when the next render starts.
+		try
+		{
+			ForkJoinTask.invokeAll(layerTasks);
+		}
+		catch (CancellationException e)
+		{
+			for (ForkJoinTask<FunctionLayer> task : layerTasks)
+				task.quietlyJoin();
+			return null;
+		}
+		if (cancelled.getAsBoolean())
+			return null;
+
+		// Cache the new layers and their samples or envelopes, and add the measured times of sampling to the cost
+		// model.  The evaluations that the adaptive sampler spent on a layer are counted with its samples.
+		for (int i = 0; i < layerTasks.size(); i++)
+		{
+			Expression expression = taskExpressions.get(i);
+			FunctionLayer layer = layerTasks.get(i).join();
+			functionLayers.put(expression, layer);
+			if (layer.samples != null)
+			{
+				functionSamples.put(expression, layer.samples);
+				if (layer.samplingTime >= 0)
+				{
+					FRAME_SCHEDULER.addMeasurement(expression, layer.expression, layer.samplingTime,
+												   layer.samples.getNumPoints() + layer.numExtraSamples);
+				}
+			}
+			if (layer.envelope != null)
+			{
+				functionEnvelopes.put(expression, layer.envelope);
+				if (layer.samplingTime >= 0)
+				{
+					FRAME_SCHEDULER.addMeasurement(expression, layer.expression, layer.samplingTime,
+												   layer.envelope.getNumColumns() * FunctionEnvelope.NUM_SUBSAMPLES);
+				}
+			}
+		}
+
+		// Compose layers of functions in reverse order, so that the first function is on top.  Note whether any of them
+		// was drawn at a lower resolution than that of the request.
+		renderDegraded = false;
+		BufferedImage image = new BufferedImage(plotRect.width, plotRect.height, BufferedImage.TYPE_INT_ARGB);
+		Graphics gr = image.createGraphics();
+		try
+		{
+			for (int i = request.expressions().size() - 1; i >= 0; i--)
+			{
+				Color colour = request.colours().get(i);
+				if (colour != null)
+				{
+					FunctionLayer layer = functionLayers.get(request.expressions().get(i));
+					if (layer.columnStep > request.columnStep())
+						renderDegraded = true;
+					gr.drawImage(layer.getImage(colour), 0, 0, null);
+				}
+			}
+		}
+		finally
+		{
+			gr.dispose();
+		}
+		return image;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates the layer of the specified expression for the specified render request.  This method does not access the
+	 * caches of the panel, so it may be called concurrently for different expressions.
+	 *
+	 * @param  expression
+	 *           the expression whose layer will be created.
+	 * @param  specialisedExpression
+	 *           the specialisation of {@code expression} to the values of the parameters of {@code request}.
+	 * @param  samples
+	 *           the cached samples of {@code expression}, or {@code null} if there are none.
+	 * @param  columns
+	 *           the cached columns of {@code expression}, or {@code null} if the expression has no parameters.
+	 * @param  request
+	 *           the render request.
+	 * @param  columnStep
+	 *           the column step at which the expression is sampled.
+	 * @param  budget
+	 *           the maximum number of extra samples that the adaptive sampler may spend on the layer.
+	 * @param  cancelled
+	 *           the test of whether the render has been superseded.
+	 * @return the layer of {@code expression} for {@code request}.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the layer is created.
+	 */
+
+	private FunctionLayer createLayer(
+		Expression		expression,
+		Expression		specialisedExpression,
+		FunctionSamples	samples,
+		ColumnCache		columns,
+		RenderRequest	request,
+		int				columnStep,
+		int				budget,
+		BooleanSupplier	cancelled)
+	{
+		// Sample the expression and refine the samples.  The time that this takes is measured only if the samples are
+		// created in full rather than shifted.
+		boolean measured = !isShiftable(samples, specialisedExpression, request, columnStep);
+		long startTime = System.nanoTime();
+		FunctionSamples layerSamples = getSamples(expression, specialisedExpression, samples, columns, request,
+												  columnStep, cancelled);
+		AdaptiveSampler sampler = new AdaptiveSampler(layerSamples, request.yParams().pixelDelta, budget, cancelled);
+		long samplingTime = measured ? System.nanoTime() - startTime : -1;
+
+		// Draw samples
+		FunctionLayer layer = new FunctionLayer(specialisedExpression, layerSamples, null, columnStep,
+												sampler.getNumExtraSamples(), samplingTime, plotRect.width,
+												plotRect.height);
+		Graphics gr = layer.createGraphics();
+		try
+		{
+			int firstX = (int)(layerSamples.getFirstIndex() * columnStep - request.xParams().startIndex);
+			drawSamples(gr, layerSamples, sampler, request.yParams(), firstX, columnStep, plotRect.height);
+		}
+		finally
+		{
+			gr.dispose();
+		}
+		return layer;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates the layer of the envelope of the specified expression for the specified render request.  The envelope is
+	 * created if it is not cached or if the values of the parameters have changed, and it is shifted if the plot has
+	 * been scrolled; it does not depend on the y interval.  This method does not access the caches of the panel, so it
+	 * may be called concurrently for different expressions.
+	 *
+	 * @param  specialisedExpression
+	 *           the specialisation of the expression to the values of the parameters of {@code request}.
+	 * @param  envelope
+	 *           the cached envelope of the expression, or {@code null} if there is none.
+	 * @param  request
+	 *           the render request.
+	 * @param  columnStep
+	 *           the column step at which the expression is sampled, which is the width of the columns of the envelope.
+	 * @param  cancelled
+	 *           the test of whether the render has been superseded.
+	 * @return the layer of the envelope of the expression for {@code request}.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the layer is created.
+	 */
+
+	private FunctionLayer createEnvelopeLayer(
+		Expression			specialisedExpression,
+		FunctionEnvelope	envelope,
+		RenderRequest		request,
+		int					columnStep,
+		BooleanSupplier		cancelled)
+	{
+		// Get envelope.  The time that this takes is measured only if the envelope is created in full rather than
+		// shifted.
+		PlotParams xParams = request.xParams();
+		long firstIndex = getFirstEnvelopeIndex(request, columnStep);
+		long samplingTime = -1;
+		if (!isShiftable(envelope, specialisedExpression, request, columnStep))
+		{
+			long startTime = System.nanoTime();
+			envelope = new FunctionEnvelope(specialisedExpression, xParams.pixelDelta * (double)columnStep, firstIndex,
+											getNumEnvelopeColumns(columnStep), request.accuracy(), cancelled);
+			samplingTime = System.nanoTime() - startTime;
+		}
+		else if (envelope.getFirstIndex() != firstIndex)
+			envelope = new FunctionEnvelope(envelope, firstIndex, cancelled);
+
+		// Draw a span in each column between the least and greatest values of the function in the column
+		FunctionLayer layer = new FunctionLayer(specialisedExpression, null, envelope, columnStep, 0, samplingTime,
+												plotRect.width, plotRect.height);
+		Graphics gr = layer.createGraphics();
+		try
+		{
+			int firstX = (int)(envelope.getFirstIndex() * columnStep - xParams.startIndex) - columnStep / 2;
+			drawEnvelope(gr, envelope, request.yParams(), firstX, columnStep, plotRect.height);
+		}
+		finally
+		{
+			gr.dispose();
+		}
+		return layer;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Draws the specified image of the functions, which was rendered for the specified intervals, scaled and translated
+	 * so that its coordinates match those of the current intervals.  The image is clipped to the plot.
+	 */
+
+	private void drawPreview(
+		Graphics2D		gr2d,
+		BufferedImage	image,
+		PlotParams		imageXParams,
+		PlotParams		imageYParams)
+	{
+		// Map the columns of the image to columns of the plot
+		double scaleX = imageXParams.pixelDelta / xParams.pixelDelta;
+		double translateX = (imageXParams.start - xParams.start) / xParams.pixelDelta;
+
+		// Map the rows of the image to rows of the plot; rows are numbered from the top of the plot
+		double scaleY = imageYParams.pixelDelta / yParams.pixelDelta;
+		double translateY = (double)(plotRect.height - 1) * (1.0 - scaleY)
+								- (imageYParams.start - yParams.start) / yParams.pixelDelta;
+
+		// Draw the image
+		Graphics2D gr = (Graphics2D)gr2d.create(plotRect.x, plotRect.y, plotRect.width, plotRect.height);
+		try
+		{
+			gr.drawImage(image, new AffineTransform(scaleX, 0.0, 0.0, scaleY, translateX, translateY), null);
+		}
+		finally
+		{
+			gr.dispose();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Draws the background of this plot, its grid, its scales and its axes with the specified layout of the scales.
+	 */
+
+	private void drawBackground(
+		Graphics2D	gr2d,
+		Color		backgroundColour,
+		int			width,
+		int			height,
+		ScaleLayout	scaleLayout)
+	{
+		// Draw component background
+		AppConfig config = AppConfig.INSTANCE;
+		gr2d.setColor(backgroundColour);
+		gr2d.fillRect(0, 0, width, height);
+
+		// Draw plot background
+		gr2d.setColor(config.getPlotColourBackground());
+		gr2d.fillRect(plotRect.x, plotRect.y, plotRect.width, plotRect.height);
+
+		// Set rendering hints for text antialiasing and fractional metrics
+		TextRendering.setHints(gr2d);
+
+		// Draw grid lines
+		int yAxisX = scaleLayout.yAxisX();
+		int xAxisY = scaleLayout.xAxisY();
+		if (gridVisible)
+		{
+			gr2d.setColor(config.getPlotColourGrid());
+			for (int x : scaleLayout.xMarks())
+			{
+				if (x != yAxisX)
+					gr2d.drawLine(x, plotRect.y, x, plotRect.y + plotRect.height - 1);
+			}
+			for (int y : scaleLayout.yMarks())
+			{
+				if (y != xAxisY)
+					gr2d.drawLine(plotRect.x, y, plotRect.x + plotRect.width - 1, y);
+			}
+		}
+
+		// Draw scale markings
+		gr2d.setColor(config.getPlotColourScale());
+		for (int x : scaleLayout.xMarks())
+			gr2d.drawLine(x, plotRect.y + plotRect.height, x, plotRect.y + plotRect.height + SCALE_LINE_LENGTH - 1);
+		for (int y : scaleLayout.yMarks())
+			gr2d.drawLine(plotRect.x - SCALE_LINE_LENGTH, y, plotRect.x - 1, y);
+		for (ScaleLabel label : scaleLayout.labels())
+			gr2d.drawString(label.text(), label.x(), label.y());
+
+		// Draw axes
+		gr2d.setColor(config.getPlotColourAxis());
+		if (yAxisX >= 0)
+			gr2d.drawLine(yAxisX, plotRect.y, yAxisX, plotRect.y + plotRect.height - 1);
+		if (xAxisY >= 0)
+			gr2d.drawLine(plotRect.x, xAxisY, plotRect.x + plotRect.width - 1, xAxisY);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the layout of the scales of this plot for the font of the specified graphics context.  The layout is
+	 * cached by the panel, and the scales are laid out again only if the state on which their layout depends has
+	 * changed.  This method must be called only on the event-dispatching thread.
+	 */
+
+	private ScaleLayout getScaleLayout(
+		Graphics2D	gr2d)
+	{
+		TextRendering.setHints(gr2d);
+		FontMetrics fontMetrics = gr2d.getFontMetrics();
+		ScaleLayoutKey key = createScaleLayoutKey(fontMetrics);
+		ScaleLayout layout = scaleLayout;
+		if ((layout == null) || !layout.key().equals(key))
+		{
+			layout = layOutScales(key, fontMetrics);
+			scaleLayout = layout;
+		}
+		return layout;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Lays out the scales of this plot for the font of the specified graphics context, without using or replacing the
+	 * layout that is cached by the panel.  This method is used to draw images of the panel, which may be drawn on a
+	 * thread other than the event-dispatching thread.
+	 */
+
+	private ScaleLayout createScaleLayout(
+		Graphics2D	gr2d)
+	{
+		TextRendering.setHints(gr2d);
+		FontMetrics fontMetrics = gr2d.getFontMetrics();
+		return layOutScales(createScaleLayoutKey(fontMetrics), fontMetrics);
+	}
+
+	//------------------------------------------------------------------
+
+	private ScaleLayoutKey createScaleLayoutKey(
+		FontMetrics	fontMetrics)
+	{
+		AppConfig config = AppConfig.INSTANCE;
+		return new ScaleLayoutKey(xParams, yParams, fontMetrics.getFont(), fontMetrics.getFontRenderContext(),
+								  config.getNumFractionDigits(), config.getFixedPointExponentRange(),
+								  config.isNormaliseScientificNotation(), config.isTruncateXScaleText());
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Lays out the scales of this plot: the positions of the scale markings on the x and y axes, the labels of the
+	 * markings and the texts of the labels that are truncated to fit the space that is available to them.
+	 */
+
+	private ScaleLayout layOutScales(
+		ScaleLayoutKey	key,
+		FontMetrics		fontMetrics)
+	{
+		// Initialise local variables
+		PlotParams xParams = key.xParams();
+		PlotParams yParams = key.yParams();
+		int numFractionDigits = key.numFractionDigits();
+		IntegerRange fixedPointExponentRange = key.fixedPointExponentRange();
+		boolean applyFixedExponent = !key.normaliseScientificNotation();
+		int fontAscent = fontMetrics.getAscent();
+		int textHeight = fontMetrics.getAscent() + fontMetrics.getDescent();
+		List<ScaleLabel> labels = new ArrayList<>();
+		List<ScaleText> scaleTexts = new ArrayList<>();
+
+		// Lay out x scale markings
+		int[] xMarks = new int[Math.max(0, (plotRect.width - xParams.divisionOffset + xParams.pixelsPerDivision - 1)
+												/ xParams.pixelsPerDivision)];
+		int divisionOffset = xParams.divisionOffset;
+		int strEndX = 0;
+		int yAxisX = -1;
+		String prevStr = null;
+		for (int i = 0; i < xMarks.length; i++)
+		{
+			int x = plotRect.x + divisionOffset;
+			xMarks[i] = x;
+			double value = xParams.start + (double)divisionOffset * xParams.pixelDelta;
+			String str = PlotInterval.doubleToString(value, numFractionDigits, fixedPointExponentRange,
+													 applyFixedExponent, xParams.intervalExponent);
+			if (Math.abs(value) < 0.5 * xParams.pixelDelta)
+			{
+				str = ZERO_STR;
+				yAxisX = x;
+			}
+
+			if (!str.equals(prevStr))
+			{
+				String xStr = SurrogateMinus.minusToSurrogate(str, minusChar);
+				int strWidth = fontMetrics.stringWidth(xStr);
+				int strX = x - strWidth / 2;
+				int strY = plotRect.y + plotRect.height + SCALE_LINE_LENGTH + X_SCALE_TOP_MARGIN + fontAscent;
+				if (strX < strEndX)
+				{
+					String limXStr = null;
+					if (key.truncateXScaleText())
+					{
+						limXStr = TextUtils.getLimitedWidthString(xStr, fontMetrics, 2 * (x - strEndX),
+																  TextUtils.RemovalMode.START);
+						strWidth = fontMetrics.stringWidth(limXStr);
+					}
+					else
+						strWidth = 2 * (x - strEndX);
+					strX = x - strWidth / 2;
+					scaleTexts.add(new ScaleText(xStr, strX, strY - fontAscent, strWidth, textHeight, x));
+					xStr = limXStr;
+				}
+				if (xStr != null)
+				{
+					labels.add(new ScaleLabel(xStr, strX, strY));
+					strEndX = strX + strWidth + X_SCALE_GAP;
+				}
+			}
+			prevStr = str;
+
+			divisionOffset += xParams.pixelsPerDivision;
+		}
+
+		// Lay out y scale markings
+		int[] yMarks = new int[Math.max(0, (plotRect.height - yParams.divisionOffset + yParams.pixelsPerDivision - 1)
+												/ yParams.pixelsPerDivision)];
+		divisionOffset = yParams.divisionOffset;
+		int xAxisY = -1;
+		prevStr = null;
+		for (int i = 0; i < yMarks.length; i++)
+		{
+			int y = plotRect.y + (plotRect.height - 1) - divisionOffset;
+			yMarks[i] = y;
+			double value = yParams.start + (double)divisionOffset * yParams.pixelDelta;
+			String str = PlotInterval.doubleToString(value, numFractionDigits, fixedPointExponentRange,
+													 applyFixedExponent, yParams.intervalExponent);
+			if (Math.abs(value) < 0.5 * yParams.pixelDelta)
+			{
+				str = ZERO_STR;
+				xAxisY = y;
+			}
+
+			if (!str.equals(prevStr))
+			{
+				String yStr = SurrogateMinus.minusToSurrogate(str, minusChar);
+				String limYStr = TextUtils.getLimitedWidthString(yStr, fontMetrics, maxYScaleStrWidth,
+																 TextUtils.RemovalMode.START);
+				int strWidth = fontMetrics.stringWidth(limYStr);
+				int strX = plotRect.x - (strWidth + Y_SCALE_LEFT_MARGIN + SCALE_LINE_LENGTH);
+				int strY = y + fontAscent / 2;
+				if (limYStr != yStr)
+					scaleTexts.add(new ScaleText(yStr, strX, strY - fontAscent, strWidth, textHeight, 0));
+				labels.add(new ScaleLabel(limYStr, strX, strY));
+			}
+			prevStr = str;
+
+			divisionOffset += yParams.pixelsPerDivision;
+		}
+
+		return new ScaleLayout(key, xMarks, yAxisX, yMarks, xAxisY, labels, scaleTexts);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Draws the segments of the specified samples, replacing each segment that the specified adaptive sampler has
+	 * refined by its subsegments.  The points of the samples lie in every <i>n</i>th column of the plot, where <i>n</i>
+	 * is the specified column step, starting at the specified column.  The abscissa of a point of a refined segment is
+	 * rounded to the nearest column, so a narrow extremum is drawn as a vertical line.  Each run of connected segments
+	 * and subsegments is drawn as a single polyline, whose vertices are collected in a buffer that belongs to the
+	 * drawing thread and is reused by every layer that the thread draws.
+	 */
+
+	private void drawSamples(
+		Graphics		gr,
+		FunctionSamples	samples,
+		AdaptiveSampler	sampler,
+		PlotParams		yParams,
+		int				firstX,
+		int				columnStep,
+		int				plotHeight)
+	{
+		PolylineBuffer polyline = POLYLINE_BUFFERS.get();
+		for (int i = 0; i < samples.getNumPoints() - 1; i++)
+		{
+			int x = firstX + i * columnStep;
+			AdaptiveSampler.Refinement refinement = (sampler == null) ? null : sampler.getRefinement(i);
+			if (refinement == null)
+			{
+				addSegment(gr, polyline, x, samples.getY(i), x + columnStep, samples.getY(i + 1),
+						   samples.isConnected(i), yParams, plotHeight);
+			}
+			else
+			{
+				double[] ts = refinement.ts();
+				double[] ys = refinement.ys();
+				boolean[] connected = refinement.connected();
+				for (int j = 0; j < connected.length; j++)
+				{
+					addSegment(gr, polyline, x + (int)Math.round(ts[j] * (double)columnStep), ys[j],
+							   x + (int)Math.round(ts[j + 1] * (double)columnStep), ys[j + 1], connected[j], yParams,
+							   plotHeight);
+				}
+			}
+		}
+		polyline.flush(gr);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Draws a span in each column of the specified envelope between the least and greatest values of the function in
+	 * the column.  The columns of the envelope are as wide as the specified column step, and the first one starts at
+	 * the specified column.
+	 */
+
+	private void drawEnvelope(
+		Graphics			gr,
+		FunctionEnvelope	envelope,
+		PlotParams			yParams,
+		int					firstX,
+		int					columnStep,
+		int					plotHeight)
+	{
+		for (int i = 0; i < envelope.getNumColumns(); i++)
+		{
+			double minY = envelope.getMinY(i);
+			if (!Double.isNaN(minY))
+			{
+				int y0 = (plotHeight - 1) - yToPlotY(envelope.getMaxY(i), yParams);
+				int y1 = (plotHeight - 1) - yToPlotY(minY, yParams);
+				int x0 = firstX + i * columnStep;
+				for (int x = x0; x < x0 + columnStep; x++)
+					gr.drawLine(x, y0, x, y1);
+			}
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Adds the specified segment to the specified polyline if it is connected; otherwise, draws the polyline and empties
+	 * it.
+	 */
+
+	private void addSegment(
+		Graphics		gr,
+		PolylineBuffer	polyline,
+		int				x0,
+		double			y0,
+		int				x1,
+		double			y1,
+		boolean			connected,
+		PlotParams		yParams,
+		int				plotHeight)
+	{
+		if (connected)
+		{
+			if (polyline.numVertices == 0)
+				polyline.addVertex(x0, (plotHeight - 1) - yToPlotY(y0, yParams));
+			polyline.addVertex(x1, (plotHeight - 1) - yToPlotY(y1, yParams));
+		}
+		else
+			polyline.flush(gr);
+	}
+
+	//------------------------------------------------------------------
+
+	private int yToPlotY(
+		double		y,
+		PlotParams	yParams)
+	{
+		final	long	Y_LOWER_BOUND	= Integer.MIN_VALUE >> 1;
+		final	long	Y_UPPER_BOUND	= Integer.MAX_VALUE >> 1;
+
+		return (int)Math.min(Math.max(Y_LOWER_BOUND, Math.round((y - yParams.start) / yParams.pixelDelta)),
+							 Y_UPPER_BOUND);
+	}
+
+	//------------------------------------------------------------------
+
+	private void setBorder(
+		boolean	focused)
+	{
+		if (focused)
+		{
+			setBorder(BorderFactory
+					.createMatteBorder(borderInsets.top, borderInsets.left, borderInsets.bottom, borderInsets.right,
+									   AppConfig.INSTANCE.getPlotColourFocusedBorder()));
+		}
+		else
+			GuiUtils.setPaddedLineBorder(this, 1);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: RENDER REQUEST
+
+
+	/**
+	 * This record holds a snapshot of the state on which the image of the functions of a plot depends.
+	 *
+	 * @param xParams
+	 *          the parameters of the x interval.
+	 * @param yParams
+	 *          the parameters of the y interval.
+	 * @param accuracy
+	 *          the accuracy of the approximations with which the functions are evaluated, or {@code null} if they are
+	 *          evaluated exactly.
+	 * @param envelopeMode
+	 *          if {@code true}, the functions are drawn as envelopes.
+	 * @param columnStep
+	 *          the spacing, in columns of the plot, of the columns in which the functions are sampled: 1 at full
+	 *          resolution, or the interaction column step while a gesture is in progress.
+	 * @param expressions
+	 *          the expressions of the functions of the document.
+	 * @param colours
+	 *          the colours in which the functions are drawn; the colour of a function that is not drawn is {@code null}.
+	 * @param parameters
+	 *          a copy of the parameters of the document.
+	 */
+
+	private record RenderRequest(
+		PlotParams							xParams,
+		PlotParams							yParams,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		boolean								envelopeMode,
+		int									columnStep,
+		List<Expression>					expressions,
+		List<Color>							colours,
+		ParameterSet						parameters)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: KEY OF THE LAYOUT OF THE SCALES
+
+
+	/**
+	 * This record holds the state on which the layout of the scales of a plot depends.
+	 *
+	 * @param xParams
+	 *          the parameters of the x interval.
+	 * @param yParams
+	 *          the parameters of the y interval.
+	 * @param font
+	 *          the font of the labels.
+	 * @param fontRenderContext
+	 *          the context in which the labels are measured.
+	 * @param numFractionDigits
+	 *          the number of fraction digits of the labels.
+	 * @param fixedPointExponentRange
+	 *          the range of exponents of labels that are in fixed-point notation.
+	 * @param normaliseScientificNotation
+	 *          if {@code true}, labels in scientific notation are normalised.
+	 * @param truncateXScaleText
+	 *          if {@code true}, labels on the x scale are truncated to fit the space that is available to them.
+	 */
+
+	private record ScaleLayoutKey(
+		PlotParams			xParams,
+		PlotParams			yParams,
+		Font				font,
+		FontRenderContext	fontRenderContext,
+		int					numFractionDigits,
+		IntegerRange		fixedPointExponentRange,
+		boolean				normaliseScientificNotation,
+		boolean				truncateXScaleText)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: KEY OF THE BACKGROUND LAYER
+
+
+	/**
+	 * This record holds the state on which the background layer of a plot depends.  The background layer is an image
+	 * of the background, grid, scales and axes of the plot, onto which the image of the functions is drawn.
+	 *
+	 * @param scaleLayoutKey
+	 *          the state on which the layout of the scales depends.
+	 * @param width
+	 *          the width of the layer.
+	 * @param height
+	 *          the height of the layer.
+	 * @param scaleX
+	 *          the horizontal scale factor of the device.
+	 * @param scaleY
+	 *          the vertical scale factor of the device.
+	 * @param gridVisible
+	 *          if {@code true}, the grid is drawn.
+	 * @param backgroundColour
+	 *          the background colour of the panel.
+	 * @param plotBackgroundColour
+	 *          the background colour of the plot.
+	 * @param gridColour
+	 *          the colour of the grid.
+	 * @param scaleColour
+	 *          the colour of the scales.
+	 * @param axisColour
+	 *          the colour of the axes.
+	 */
+
+	private record BackgroundLayerKey(
+		ScaleLayoutKey	scaleLayoutKey,
+		int				width,
+		int				height,
+		double			scaleX,
+		double			scaleY,
+		boolean			gridVisible,
+		Color			backgroundColour,
+		Color			plotBackgroundColour,
+		Color			gridColour,
+		Color			scaleColour,
+		Color			axisColour)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: LAYOUT OF THE SCALES
+
+
+	/**
+	 * This record holds the layout of the scales of a plot, so that the plot can be painted again without formatting
+	 * and measuring the labels of its scales if none of the state on which the layout depends has changed.
+	 *
+	 * @param key
+	 *          the state from which the layout was computed.
+	 * @param xMarks
+	 *          the x coordinates of the markings on the x scale.
+	 * @param yAxisX
+	 *          the x coordinate of the y axis, or -1 if the y axis is not within the plot.
+	 * @param yMarks
+	 *          the y coordinates of the markings on the y scale.
+	 * @param xAxisY
+	 *          the y coordinate of the x axis, or -1 if the x axis is not within the plot.
+	 * @param labels
+	 *          the labels of the markings.
+	 * @param scaleTexts
+	 *          the full texts of the labels that are truncated.
+	 */
+
+	private record ScaleLayout(
+		ScaleLayoutKey		key,
+		int[]				xMarks,
+		int					yAxisX,
+		int[]				yMarks,
+		int					xAxisY,
+		List<ScaleLabel>	labels,
+		List<ScaleText>		scaleTexts)
+	{ }
+
+	//==================================================================
+
+
+	// RECORD: LABEL OF A SCALE MARKING
+
+
+	/**
+	 * This record holds a label of a scale marking.
+	 *
+	 * @param text
+	 *          the text of the label.
+	 * @param x
+	 *          the x coordinate of the start of the text.
+	 * @param y
+	 *          the y coordinate of the baseline of the text.
+	 */
+
+	private record ScaleLabel(
+		String	text,
+		int		x,
+		int		y)
+	{ }
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: PLOT PARAMETERS
+
+
+	private static class PlotParams
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	double	start;
+		private	long	startIndex;
+		private	double	pixelDelta;
+		private	int		pixelsPerDivision;
+		private	int		divisionOffset;
+		private	double	divisionDelta;
+		private	int		intervalExponent;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PlotParams(
+			PlotInterval	interval,
+			int				dimension)
+		{
+			final	double	TOLERANCE		= 0.25 / (double)MIN_PIXELS_PER_DIVISION;
+			final	double	UPPER_BOUND_1	= 1.0 + TOLERANCE;
+			final	double	UPPER_BOUND_2	= 2.0 + TOLERANCE;
+			final	double	UPPER_BOUND_5	= 5.0 + TOLERANCE;
+
+			pixelDelta = interval.getInterval() / (double)dimension;
+			divisionDelta = pixelDelta * MIN_PIXELS_PER_DIVISION;
+			int exponent = (int)Math.floor(Math.log(divisionDelta) * RECIP_LOG_10);
+			divisionDelta *= Math.pow(10.0, -exponent);
+			int divIncrement = 1;
+			if (divisionDelta > UPPER_BOUND_1)
+			{
+				if (divisionDelta <= UPPER_BOUND_2)
+					divIncrement = 2;
+				else if (divisionDelta <= UPPER_BOUND_5)
+					divIncrement = 5;
+				else
+					++exponent;
+			}
+			divisionDelta = (double)divIncrement * Math.pow(10.0, exponent);
+			pixelsPerDivision = (int)(divisionDelta / pixelDelta);
+			pixelDelta = divisionDelta / (double)pixelsPerDivision;
 			start = Math.floor(interval.getLowerEndpoint() / pixelDelta);
 			divisionOffset = pixelsPerDivision - (int)start % pixelsPerDivision;
 			if (divisionOffset >= pixelsPerDivision)
 				divisionOffset -= pixelsPerDivision;
+			startIndex = (long)start;
 			start *= pixelDelta;
 			intervalExponent = interval.getExponent();
 
@@ -698,6 +2016,26 @@ class PlotPanel
 
 		//--------------------------------------------------------------
 
+		/**
+		 * Creates a new instance of the parameters of the specified parameters for a plot that is larger by the
+		 * specified factor: the pixels of the new parameters are smaller by that factor.
+		 */
+
+		private PlotParams(
+			PlotParams	params,
+			int			scale)
+		{
+			start = params.start;
+			startIndex = params.startIndex * scale;
+			pixelDelta = params.pixelDelta / (double)scale;
+			pixelsPerDivision = params.pixelsPerDivision * scale;
+			divisionOffset = params.divisionOffset * scale;
+			divisionDelta = params.divisionDelta;
+			intervalExponent = params.intervalExponent;
+		}
+
+		//--------------------------------------------------------------
+
 	////////////////////////////////////////////////////////////////////
 	//  Instance methods
 	////////////////////////////////////////////////////////////////////
@@ -717,6 +2055,174 @@ class PlotPanel
 	//==================================================================
 
 
+	// CLASS: LAYER OF A FUNCTION
+
+
+	/**
+	 * This class implements the layer of a function, which is a bitmap of the pixels of the curve of the function.  The
+	 * bitmap has one byte per pixel, so that lines are drawn into it by the same loops that draw them into an RGB image
+	 * (the loops for packed bitmaps rasterise lines differently).  The layer is drawn in the colour of the function by
+	 * wrapping it in an image whose colour model maps the pixels of the curve to that colour and the other pixels to
+	 * transparency, so the colour of a function can be changed without drawing its layer again.
+	 */
+
+	private static class FunctionLayer
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	Color	MASK_COLOUR	= Color.WHITE;
+
+		private static final	IndexColorModel	MASK_COLOUR_MODEL	= createColourModel(MASK_COLOUR);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	Expression			expression;
+		private	FunctionSamples		samples;
+		private	FunctionEnvelope	envelope;
+		private	int					columnStep;
+		private	int					numExtraSamples;
+		private	long				samplingTime;
+		private	WritableRaster		raster;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private FunctionLayer(
+			Expression			expression,
+			FunctionSamples		samples,
+			FunctionEnvelope	envelope,
+			int					columnStep,
+			int					numExtraSamples,
+			long				samplingTime,
+			int					width,
+			int					height)
+		{
+			this.expression = expression;
+			this.samples = samples;
+			this.envelope = envelope;
+			this.columnStep = columnStep;
+			this.numExtraSamples = numExtraSamples;
+			this.samplingTime = samplingTime;
+			raster = MASK_COLOUR_MODEL.createCompatibleWritableRaster(width, height);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		private static IndexColorModel createColourModel(
+			Color	colour)
+		{
+			byte[] reds = { 0, (byte)colour.getRed() };
+			byte[] greens = { 0, (byte)colour.getGreen() };
+			byte[] blues = { 0, (byte)colour.getBlue() };
+			return new IndexColorModel(8, 2, reds, greens, blues, 0);
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private Graphics2D createGraphics()
+		{
+			Graphics2D gr = new BufferedImage(MASK_COLOUR_MODEL, raster, false, null).createGraphics();
+			gr.setColor(MASK_COLOUR);
+			return gr;
+		}
+
+		//--------------------------------------------------------------
+
+		private BufferedImage getImage(
+			Color	colour)
+		{
+			return new BufferedImage(createColourModel(colour), raster, false, null);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: POLYLINE BUFFER
+
+
+	private static class PolylineBuffer
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int		INITIAL_CAPACITY	= MAX_PLOT_WIDTH + 1;
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int[]	xs;
+		private	int[]	ys;
+		private	int		numVertices;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private PolylineBuffer()
+		{
+			xs = new int[INITIAL_CAPACITY];
+			ys = new int[INITIAL_CAPACITY];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private void addVertex(
+			int	x,
+			int	y)
+		{
+			if (numVertices == xs.length)
+			{
+				xs = Arrays.copyOf(xs, 2 * xs.length);
+				ys = Arrays.copyOf(ys, 2 * ys.length);
+			}
+			xs[numVertices] = x;
+			ys[numVertices++] = y;
+		}
+
+		//--------------------------------------------------------------
+
+		private void flush(
+			Graphics	gr)
+		{
+			if (numVertices > 0)
+			{
+				gr.drawPolyline(xs, ys, numVertices);
+				numVertices = 0;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
 	// CLASS: SCALE TEXT
 
 
@@ -772,6 +2278,168 @@ class PlotPanel
 ////////////////////////////////////////////////////////////////////////
 
 
+	// CLASS: RENDERER OF A SCALED IMAGE
+
+
+	/**
+	 * This class implements the renderer of the bands of an image of the panel that is larger than the panel by a
+	 * whole factor.  The background, grid, scales and axes are drawn at the size of the panel with a scaling transform
+	 * and a layout of the scales that belongs to the renderer, so the cached layout of the panel is not touched; the
+	 * functions are sampled at the resolution of the image when the first band is rendered, and each band draws
+	 * the same samples.
+	 */
+
+	private class ImageRenderer
+		implements BandedImage.IRenderer
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	int					scale;
+		private	RenderRequest		request;
+		private	PlotParams			xParams;
+		private	PlotParams			yParams;
+		private	int					width;
+		private	int					height;
+		private	Font				font;
+		private	ScaleLayout			scaleLayout;
+		private	FunctionSamples[]	samples;
+		private	AdaptiveSampler[]	samplers;
+		private	FunctionEnvelope[]	envelopes;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private ImageRenderer(
+			int	scale)
+		{
+			// Initialise instance variables
+			this.scale = scale;
+			request = createRenderRequest(1);
+			xParams = new PlotParams(request.xParams(), scale);
+			yParams = new PlotParams(request.yParams(), scale);
+			width = plotRect.width * scale;
+			height = plotRect.height * scale;
+			font = getFont();
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : BandedImage.IRenderer interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public void render(
+			Graphics2D	gr)
+		{
+			// Draw background, grid, scales and axes
+			Graphics2D backgroundGr = (Graphics2D)gr.create();
+			try
+			{
+				backgroundGr.scale(scale, scale);
+				backgroundGr.setFont(font);
+				if (scaleLayout == null)
+					scaleLayout = createScaleLayout(backgroundGr);
+				drawBackground(backgroundGr, AppConfig.INSTANCE.getPlotColourImageMargin(), panelWidth, panelHeight,
+							   scaleLayout);
+			}
+			finally
+			{
+				backgroundGr.dispose();
+			}
+
+			// Sample functions
+			if (samples == null)
+				sampleFunctions();
+
+			// Draw functions in reverse order, so that the first function is on top
+			Graphics2D functionGr = (Graphics2D)gr.create(plotRect.x * scale, plotRect.y * scale, width, height);
+			try
+			{
+				if (!request.envelopeMode())
+					functionGr.setStroke(new BasicStroke((float)scale, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND));
+				for (int i = request.expressions().size() - 1; i >= 0; i--)
+				{
+					Color colour = request.colours().get(i);
+					if (colour != null)
+					{
+						functionGr.setColor(colour);
+						if (request.envelopeMode())
+							drawEnvelope(functionGr, envelopes[i], yParams, 0, 1, height);
+						else
+						{
+							int firstX = (int)(samples[i].getFirstIndex() - xParams.startIndex);
+							drawSamples(functionGr, samples[i], samplers[i], yParams, firstX, 1, height);
+						}
+					}
+				}
+			}
+			finally
+			{
+				functionGr.dispose();
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Samples the visible functions in every column of the image, or creates their envelopes.  The budget of the
+		 * adaptive sampler is increased in proportion to the scale factor and shared equally by the functions.
+		 */
+
+		private void sampleFunctions()
+		{
+			int numFunctions = request.expressions().size();
+			samples = new FunctionSamples[numFunctions];
+			samplers = new AdaptiveSampler[numFunctions];
+			envelopes = new FunctionEnvelope[numFunctions];
+
+			// Evaluate functions approximately if approximations are enabled, with the coarsest accuracy that is fine
+			// enough for the pixels of the image
+			double minY = yParams.start - yParams.pixelDelta;
+			double maxY = yParams.start + (double)height * yParams.pixelDelta;
+			double maxError = MAX_APPROXIMATION_ERROR * yParams.pixelDelta;
+			ApproximateMathFunctions.Accuracy accuracy = null;
+			if (AppConfig.INSTANCE.isApproximateMath())
+				accuracy = ApproximateMathFunctions.getAccuracy(minY, maxY, maxError);
+
+			// Sample functions
+			int budget = AppConfig.INSTANCE.getAdaptiveSampleBudget() * scale / Math.max(1, numFunctions);
+			for (int i = 0; i < numFunctions; i++)
+			{
+				if (request.colours().get(i) != null)
+				{
+					Expression expression = request.expressions().get(i).specialise(request.parameters());
+					if (request.envelopeMode())
+					{
+						envelopes[i] = new FunctionEnvelope(expression, xParams.pixelDelta, xParams.startIndex,
+															width, accuracy, null);
+					}
+					else
+					{
+						samples[i] = new FunctionSamples(expression, xParams.pixelDelta, xParams.startIndex - 1,
+														 width + 1, minY, maxY, accuracy, null);
+						samplers[i] = new AdaptiveSampler(samples[i], yParams.pixelDelta, budget, null);
+					}
+				}
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
 	// CLASS: POP-UP COMPONENT
 
 
@@ -0,0 +1,1494 @@
+/*====================================================================*\
+
+PostfixProgram.java
+
+Class: postfix program.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+import java.util.function.BooleanSupplier;
+import java.util.function.DoubleUnaryOperator;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: POSTFIX PROGRAM
+
+
+/**
+ * This class implements a form of an {@link Expression} in which the abstract syntax tree of the expression has been
+ * flattened into a sequence of instructions for a stack machine.  The instructions are stored in an array of opcodes
+ * and the constants of the expression are stored in a separate array.  The program is evaluated with an operand stack
+ * that belongs to the evaluating thread and is reused by every program that the thread evaluates, so the evaluation of
+ * a program does not allocate any objects once the stack has grown to the required size.  A program is immutable, and
+ * it may be evaluated by several threads concurrently.
+ * <p>
+ * A program can also evaluate an array of values of the variable in a single pass.  In this case, each instruction is
+ * applied to a whole block of values before the next instruction is executed, so that the loops over the blocks are
+ * simple enough for the JIT compiler to vectorise the arithmetic operations.  The blocks are independent of each
+ * other, so an array that spans several blocks is evaluated in parallel in the common fork/join pool; because each
+ * value is computed by the same sequence of operations whichever thread evaluates its block, the results are identical
+ * to those of a sequential evaluation.  The evaluation of an array may be abandoned between blocks: it tests whether it
+ * has been cancelled before each block, so that a long evaluation whose result is no longer wanted stops promptly.
+ * </p>
+ * <p>
+ * A program that is evaluated over an array of values of the variable may have <i>inputs</i>: subtrees whose values
+ * have already been computed for every value of the variable in a grid.  The value of an input is loaded from the grid
+ * rather than computed by the program.
+ * </p>
+ * <p>
+ * A program can also be evaluated with <i>dual numbers</i>, which yields the derivative of the expression with respect
+ * to the variable together with its value.  Each instruction is applied to a value and to the derivative of that value
+ * according to the chain rule, so the derivative is exact up to rounding (forward-mode automatic differentiation).
+ * </p>
+ */
+
+class PostfixProgram
+	implements DoubleUnaryOperator
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	// The number of values of the variable that are evaluated together by evaluate(double[], double[], int)
+	private static final	int		BLOCK_LENGTH	= 512;
+
+	// The smallest number of values of the variable that are evaluated in parallel
+	private static final	int		MIN_PARALLEL_LENGTH	= 2 * BLOCK_LENGTH;
+
+	// The natural logarithm of 10, used in the derivative of the common logarithm
+	private static final	double	LN_10			= Math.log(10.0);
+
+	// The operand stacks and slots of each thread
+	private static final	ThreadLocal<Workspace>	WORKSPACES	= ThreadLocal.withInitial(Workspace::new);
+
+	// Opcodes
+	private interface Opcode
+	{
+		int	CONSTANT		= 0;
+		int	VARIABLE		= 1;
+		int	STORE			= 2;
+		int	LOAD			= 3;
+		int	INPUT			= 4;
+
+		int	ABS				= 10;
+		int	ACOS			= 11;
+		int	ACOSH			= 12;
+		int	ACOT			= 13;
+		int	ACSC			= 14;
+		int	ASEC			= 15;
+		int	ASIN			= 16;
+		int	ASINH			= 17;
+		int	ATAN			= 18;
+		int	ATANH			= 19;
+		int	CEIL			= 20;
+		int	COS				= 21;
+		int	COSH			= 22;
+		int	COT				= 23;
+		int	CSC				= 24;
+		int	EXP				= 25;
+		int	FLOOR			= 26;
+		int	LG				= 27;
+		int	LN				= 28;
+		int	ROUND			= 29;
+		int	SEC				= 30;
+		int	SIN				= 31;
+		int	SINH			= 32;
+		int	SQRT			= 33;
+		int	TAN				= 34;
+		int	TANH			= 35;
+		int	NEGATE			= 36;
+
+		int	ADD				= 40;
+		int	SUBTRACT		= 41;
+		int	MULTIPLY		= 42;
+		int	DIVIDE			= 43;
+		int	REMAINDER		= 44;
+		int	IEEE_REMAINDER	= 45;
+		int	POWER			= 46;
+
+		// Each approximate operation is followed by the degree of its approximation
+		int	APPROX_ACOSH	= 50;
+		int	APPROX_ASINH	= 51;
+		int	APPROX_ATANH	= 52;
+		int	APPROX_LG		= 53;
+		int	APPROX_LN		= 54;
+	}
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	int[]								code;
+	private	double[]							constants;
+	private	int									maxStackSize;
+	private	int									numSlots;
+	private	ApproximateMathFunctions.Accuracy	accuracy;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	private PostfixProgram(
+		int[]								code,
+		double[]							constants,
+		int									maxStackSize,
+		int									numSlots,
+		ApproximateMathFunctions.Accuracy	accuracy)
+	{
+		this.code = code;
+		this.constants = constants;
+		this.maxStackSize = maxStackSize;
+		this.numSlots = numSlots;
+		this.accuracy = accuracy;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Flattens the specified abstract syntax tree into a postfix program and returns the program.  The value of each
+	 * common subexpression of the tree is computed once and stored in a slot, from which it is loaded when the
+	 * subexpression occurs again.
+	 *
+	 * @param  tree
+	 *           the tree that will be flattened.
+	 * @param  subexpressions
+	 *           the common subexpressions of {@code tree}.
+	 * @return a postfix program that is equivalent to {@code tree}.
+	 */
+
+	public static PostfixProgram create(
+		Expression.Node		tree,
+		SubexpressionTable	subexpressions)
+	{
+		return create(tree, subexpressions, null);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Flattens the specified abstract syntax tree into a postfix program and returns the program.  If {@code accuracy}
+	 * is not {@code null}, the logarithmic and inverse hyperbolic operations of the tree are evaluated with the
+	 * approximations of {@link ApproximateMathFunctions} to that accuracy; such a program must not be evaluated with
+	 * dual numbers.
+	 *
+	 * @param  tree
+	 *           the tree that will be flattened.
+	 * @param  subexpressions
+	 *           the common subexpressions of {@code tree}.
+	 * @param  accuracy
+	 *           the accuracy of the approximations that the program will evaluate, or {@code null} if the program will
+	 *           be evaluated exactly.
+	 * @return a postfix program that is equivalent to {@code tree}.
+	 */
+
+	public static PostfixProgram create(
+		Expression.Node						tree,
+		SubexpressionTable					subexpressions,
+		ApproximateMathFunctions.Accuracy	accuracy)
+	{
+		return create(tree, subexpressions, accuracy, List.of());
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Flattens the specified abstract syntax tree into a postfix program whose inputs are the specified subtrees of the
+	 * tree, and returns the program.  A program with inputs can be evaluated only by {@link #evaluate(double[],
+	 * double[][], int[], double[], int)}.
+	 *
+	 * @param  tree
+	 *           the tree that will be flattened.
+	 * @param  subexpressions
+	 *           the common subexpressions of {@code tree}.
+	 * @param  accuracy
+	 *           the accuracy of the approximations that the program will evaluate, or {@code null} if the program will
+	 *           be evaluated exactly.
+	 * @param  inputs
+	 *           the subtrees of {@code tree} whose values will be loaded from the inputs of the program.  The subtree
+	 *           at index <i>i</i> of the list is input <i>i</i> of the program.
+	 * @return a postfix program that is equivalent to {@code tree}.
+	 */
+
+	public static PostfixProgram create(
+		Expression.Node						tree,
+		SubexpressionTable					subexpressions,
+		ApproximateMathFunctions.Accuracy	accuracy,
+		List<Expression.Node>				inputs)
+	{
+		Assembler assembler = new Assembler(subexpressions, accuracy, inputs);
+		assembler.assemble(tree);
+		return new PostfixProgram(Arrays.copyOf(assembler.code, assembler.codeLength),
+								  Arrays.copyOf(assembler.constants, assembler.numConstants),
+								  assembler.maxStackSize, subexpressions.getNumSlots(), accuracy);
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getOpcode(
+		Expression.UnaryOperation	operation)
+	{
+		return switch (operation)
+		{
+			case ABS   -> Opcode.ABS;
+			case ACOS  -> Opcode.ACOS;
+			case ACOSH -> Opcode.ACOSH;
+			case ACOT  -> Opcode.ACOT;
+			case ACSC  -> Opcode.ACSC;
+			case ASEC  -> Opcode.ASEC;
+			case ASIN  -> Opcode.ASIN;
+			case ASINH -> Opcode.ASINH;
+			case ATAN  -> Opcode.ATAN;
+			case ATANH -> Opcode.ATANH;
+			case CEIL  -> Opcode.CEIL;
+			case COS   -> Opcode.COS;
+			case COSH  -> Opcode.COSH;
+			case COT   -> Opcode.COT;
+			case CSC   -> Opcode.CSC;
+			case EXP   -> Opcode.EXP;
+			case FLOOR -> Opcode.FLOOR;
+			case LG    -> Opcode.LG;
+			case LN    -> Opcode.LN;
+			case ROUND -> Opcode.ROUND;
+			case SEC   -> Opcode.SEC;
+			case SIN   -> Opcode.SIN;
+			case SINH  -> Opcode.SINH;
+			case SQRT  -> Opcode.SQRT;
+			case TAN   -> Opcode.TAN;
+			case TANH  -> Opcode.TANH;
+			case PLUS  -> -1;
+			case MINUS -> Opcode.NEGATE;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getApproximateOpcode(
+		Expression.UnaryOperation	operation)
+	{
+		return switch (operation)
+		{
+			case ACOSH -> Opcode.APPROX_ACOSH;
+			case ASINH -> Opcode.APPROX_ASINH;
+			case ATANH -> Opcode.APPROX_ATANH;
+			case LG    -> Opcode.APPROX_LG;
+			case LN    -> Opcode.APPROX_LN;
+			default    -> getOpcode(operation);
+		};
+	}
+
+	//------------------------------------------------------------------
+
+	private static int getOpcode(
+		Expression.BinaryOperation	operation)
+	{
+		return switch (operation)
+		{
+			case ADD            -> Opcode.ADD;
+			case SUBTRACT       -> Opcode.SUBTRACT;
+			case MULTIPLY       -> Opcode.MULTIPLY;
+			case DIVIDE         -> Opcode.DIVIDE;
+			case REMAINDER      -> Opcode.REMAINDER;
+			case IEEE_REMAINDER -> Opcode.IEEE_REMAINDER;
+			case POWER          -> Opcode.POWER;
+		};
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods : DoubleUnaryOperator interface
+////////////////////////////////////////////////////////////////////////
+
+	@Override
+	public double applyAsDouble(
+		double	x)
+	{
+		Workspace workspace = WORKSPACES.get();
+		workspace.ensureCapacity(maxStackSize, numSlots);
+
+		int[] code = this.code;
+		double[] stack = workspace.stack;
+		double[] slots = workspace.slots;
+		int sp = -1;
+		int pc = 0;
+		while (pc < code.length)
+		{
+			switch (code[pc++])
+			{
+				case Opcode.CONSTANT       -> stack[++sp] = constants[code[pc++]];
+				case Opcode.VARIABLE       -> stack[++sp] = x;
+				case Opcode.STORE          -> slots[code[pc++]] = stack[sp];
+				case Opcode.LOAD           -> stack[++sp] = slots[code[pc++]];
+
+				case Opcode.ABS            -> stack[sp] = Math.abs(stack[sp]);
+				case Opcode.ACOS           -> stack[sp] = Math.acos(stack[sp]);
+				case Opcode.ACOSH          -> stack[sp] = MathFunctions.acosh(stack[sp]);
+				case Opcode.ACOT           -> stack[sp] = MathFunctions.acot(stack[sp]);
+				case Opcode.ACSC           -> stack[sp] = MathFunctions.acsc(stack[sp]);
+				case Opcode.ASEC           -> stack[sp] = MathFunctions.asec(stack[sp]);
+				case Opcode.ASIN           -> stack[sp] = Math.asin(stack[sp]);
+				case Opcode.ASINH          -> stack[sp] = MathFunctions.asinh(stack[sp]);
+				case Opcode.ATAN           -> stack[sp] = Math.atan(stack[sp]);
+				case Opcode.ATANH          -> stack[sp] = MathFunctions.atanh(stack[sp]);
+				case Opcode.CEIL           -> stack[sp] = Math.ceil(stack[sp]);
+				case Opcode.COS            -> stack[sp] = Math.cos(stack[sp]);
+				case Opcode.COSH           -> stack[sp] = MathFunctions.cosh(stack[sp]);
+				case Opcode.COT            -> stack[sp] = MathFunctions.cot(stack[sp]);
+				case Opcode.CSC            -> stack[sp] = MathFunctions.csc(stack[sp]);
+				case Opcode.EXP            -> stack[sp] = Math.exp(stack[sp]);
+				case Opcode.FLOOR          -> stack[sp] = Math.floor(stack[sp]);
+				case Opcode.LG             -> stack[sp] = Math.log10(stack[sp]);
+				case Opcode.LN             -> stack[sp] = Math.log(stack[sp]);
+				case Opcode.ROUND          -> stack[sp] = Math.rint(stack[sp]);
+				case Opcode.SEC            -> stack[sp] = MathFunctions.sec(stack[sp]);
+				case Opcode.SIN            -> stack[sp] = Math.sin(stack[sp]);
+				case Opcode.SINH           -> stack[sp] = MathFunctions.sinh(stack[sp]);
+				case Opcode.SQRT           -> stack[sp] = Math.sqrt(stack[sp]);
+				case Opcode.TAN            -> stack[sp] = Math.tan(stack[sp]);
+				case Opcode.TANH           -> stack[sp] = MathFunctions.tanh(stack[sp]);
+				case Opcode.NEGATE         -> stack[sp] = -stack[sp];
+
+				case Opcode.APPROX_ACOSH   -> stack[sp] = ApproximateMathFunctions.acosh(stack[sp], code[pc++]);
+				case Opcode.APPROX_ASINH   -> stack[sp] = ApproximateMathFunctions.asinh(stack[sp], code[pc++]);
+				case Opcode.APPROX_ATANH   -> stack[sp] = ApproximateMathFunctions.atanh(stack[sp], code[pc++]);
+				case Opcode.APPROX_LG      -> stack[sp] = ApproximateMathFunctions.log10(stack[sp], code[pc++]);
+				case Opcode.APPROX_LN      -> stack[sp] = ApproximateMathFunctions.log(stack[sp], code[pc++]);
+
+				case Opcode.ADD            -> { --sp; stack[sp] = stack[sp] + stack[sp + 1]; }
+				case Opcode.SUBTRACT       -> { --sp; stack[sp] = stack[sp] - stack[sp + 1]; }
+				case Opcode.MULTIPLY       -> { --sp; stack[sp] = stack[sp] * stack[sp + 1]; }
+				case Opcode.DIVIDE         -> { --sp; stack[sp] = stack[sp] / stack[sp + 1]; }
+				case Opcode.REMAINDER      -> { --sp; stack[sp] = stack[sp] % stack[sp + 1]; }
+				case Opcode.IEEE_REMAINDER -> { --sp; stack[sp] = Math.IEEEremainder(stack[sp], stack[sp + 1]); }
+				case Opcode.POWER          -> { --sp; stack[sp] = Math.pow(stack[sp], stack[sp + 1]); }
+			}
+		}
+		return stack[0];
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the accuracy of the approximations that this program evaluates.
+	 *
+	 * @return the accuracy of the approximations that this program evaluates, or {@code null} if it is evaluated
+	 *         exactly.
+	 */
+
+	public ApproximateMathFunctions.Accuracy getAccuracy()
+	{
+		return accuracy;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this program for each of the specified values of the variable.
+	 *
+	 * @param  xs
+	 *           the values of the variable.
+	 * @param  out
+	 *           the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *           out[i]}.
+	 * @param  length
+	 *           the number of elements of {@code xs}, starting from the first, that will be evaluated.
+	 * @param  cancelled
+	 *           the test, made before each block of values is evaluated, of whether the evaluation has been cancelled,
+	 *           or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the evaluation is complete.
+	 */
+
+	public void evaluate(
+		double[]		xs,
+		double[]		out,
+		int				length,
+		BooleanSupplier	cancelled)
+	{
+		evaluate(xs, null, null, out, length, cancelled);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this program for each of the specified values of the variable, loading the values of the inputs of the
+	 * program from the specified grids.
+	 *
+	 * @param  xs
+	 *           the values of the variable.
+	 * @param  inputs
+	 *           the values of the inputs of this program at the points of a grid.  The value of input <i>k</i> at point
+	 *           <i>j</i> of the grid is {@code inputs[k][j]}.
+	 * @param  indices
+	 *           the indices of the points of the grid at which the program will be evaluated.  {@code xs[i]} is the
+	 *           value of the variable at the point {@code indices[i]}.
+	 * @param  out
+	 *           the array in which the results will be stored.  The result for {@code xs[i]} is stored in {@code
+	 *           out[i]}.
+	 * @param  length
+	 *           the number of elements of {@code xs}, starting from the first, that will be evaluated.
+	 * @param  cancelled
+	 *           the test, made before each block of values is evaluated, of whether the evaluation has been cancelled,
+	 *           or {@code null} if it cannot be cancelled.
+	 * @throws CancellationException
+	 *           if {@code cancelled} returns {@code true} before the evaluation is complete.
+	 */
+
+	public void evaluate(
+		double[]		xs,
+		double[][]		inputs,
+		int[]			indices,
+		double[]		out,
+		int				length,
+		BooleanSupplier	cancelled)
+	{
+		int numBlocks = (length + BLOCK_LENGTH - 1) / BLOCK_LENGTH;
+		if (length < MIN_PARALLEL_LENGTH)
+			evaluateBlocks(xs, inputs, indices, out, length, 0, numBlocks, cancelled);
+		else
+			new BlockTask(xs, inputs, indices, out, length, 0, numBlocks, cancelled).invoke();
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Evaluates this program and its derivative with respect to the variable for the specified value of the variable.
+	 *
+	 * @param  x
+	 *           the value of the variable.
+	 * @return the value of this program and the value of its derivative at {@code x}.
+	 */
+
+	public Dual evaluateDual(
+		double	x)
+	{
+		Workspace workspace = WORKSPACES.get();
+		workspace.ensureCapacity(maxStackSize, numSlots);
+
+		int[] code = this.code;
+		double[] stack = workspace.stack;
+		double[] slots = workspace.slots;
+		double[] dStack = workspace.derivativeStack;
+		double[] dSlots = workspace.derivativeSlots;
+		int sp = -1;
+		int pc = 0;
+		while (pc < code.length)
+		{
+			int opcode = code[pc++];
+			switch (opcode)
+			{
+				case Opcode.CONSTANT:
+					stack[++sp] = constants[code[pc++]];
+					dStack[sp] = 0.0;
+					break;
+
+				case Opcode.VARIABLE:
+					stack[++sp] = x;
+					dStack[sp] = 1.0;
+					break;
+
+				case Opcode.STORE:
+				{
+					int slot = code[pc++];
+					slots[slot] = stack[sp];
+					dSlots[slot] = dStack[sp];
+					break;
+				}
+
+				case Opcode.LOAD:
+				{
+					int slot = code[pc++];
+					stack[++sp] = slots[slot];
+					dStack[sp] = dSlots[slot];
+					break;
+				}
+
+				default:
+				{
+					// Binary operation
+					if ((opcode >= Opcode.ADD) && (opcode <= Opcode.POWER))
+					{
+						--sp;
+						double a = stack[sp];
+						double da = dStack[sp];
+						double b = stack[sp + 1];
+						double db = dStack[sp + 1];
+						double value = 0.0;
+						double derivative = 0.0;
+						switch (opcode)
+						{
+							case Opcode.ADD:
+								value = a + b;
+								derivative = da + db;
+								break;
+
+							case Opcode.SUBTRACT:
+								value = a - b;
+								derivative = da - db;
+								break;
+
+							case Opcode.MULTIPLY:
+								value = a * b;
+								derivative = da * b + a * db;
+								break;
+
+							case Opcode.DIVIDE:
+								value = a / b;
+								derivative = (da - value * db) / b;
+								break;
+
+							case Opcode.REMAINDER:
+								value = a % b;
+								derivative = (db == 0.0) ? da : da - Math.rint((a - value) / b) * db;
+								break;
+
+							case Opcode.IEEE_REMAINDER:
+								value = Math.IEEEremainder(a, b);
+								derivative = (db == 0.0) ? da : da - Math.rint((a - value) / b) * db;
+								break;
+
+							case Opcode.POWER:
+								value = Math.pow(a, b);
+								if (da != 0.0)
+									derivative = b * Math.pow(a, b - 1.0) * da;
+								if (db != 0.0)
+									derivative += value * Math.log(a) * db;
+								break;
+						}
+						stack[sp] = value;
+						dStack[sp] = derivative;
+					}
+
+					// Unary operation
+					else
+					{
+						double u = stack[sp];
+						double du = dStack[sp];
+						double value = 0.0;
+						double derivative = 0.0;
+						switch (opcode)
+						{
+							case Opcode.ABS:
+								value = Math.abs(u);
+								derivative = Math.signum(u) * du;
+								break;
+
+							case Opcode.ACOS:
+								value = Math.acos(u);
+								derivative = -du / Math.sqrt(1.0 - u * u);
+								break;
+
+							case Opcode.ACOSH:
+								value = MathFunctions.acosh(u);
+								derivative = du / Math.sqrt(u * u - 1.0);
+								break;
+
+							case Opcode.ACOT:
+								value = MathFunctions.acot(u);
+								derivative = -du / (1.0 + u * u);
+								break;
+
+							case Opcode.ACSC:
+								value = MathFunctions.acsc(u);
+								derivative = -du / (Math.abs(u) * Math.sqrt(u * u - 1.0));
+								break;
+
+							case Opcode.ASEC:
+								value = MathFunctions.asec(u);
+								derivative = du / (Math.abs(u) * Math.sqrt(u * u - 1.0));
+								break;
+
+							case Opcode.ASIN:
+								value = Math.asin(u);
+								derivative = du / Math.sqrt(1.0 - u * u);
+								break;
+
+							case Opcode.ASINH:
+								value = MathFunctions.asinh(u);
+								derivative = du / Math.sqrt(u * u + 1.0);
+								break;
+
+							case Opcode.ATAN:
+								value = Math.atan(u);
+								derivative = du / (1.0 + u * u);
+								break;
+
+							case Opcode.ATANH:
+								value = MathFunctions.atanh(u);
+								derivative = du / (1.0 - u * u);
+								break;
+
+							case Opcode.CEIL:
+								value = Math.ceil(u);
+								break;
+
+							case Opcode.COS:
+								value = Math.cos(u);
+								derivative = -Math.sin(u) * du;
+								break;
+
+							case Opcode.COSH:
+								value = MathFunctions.cosh(u);
+								derivative = MathFunctions.sinh(u) * du;
+								break;
+
+							case Opcode.COT:
+								value = MathFunctions.cot(u);
+								derivative = -(1.0 + value * value) * du;
+								break;
+
+							case Opcode.CSC:
+								value = MathFunctions.csc(u);
+								derivative = -value * MathFunctions.cot(u) * du;
+								break;
+
+							case Opcode.EXP:
+								value = Math.exp(u);
+								derivative = value * du;
+								break;
+
+							case Opcode.FLOOR:
+								value = Math.floor(u);
+								break;
+
+							case Opcode.LG:
+								value = Math.log10(u);
+								derivative = du / (u * LN_10);
+								break;
+
+							case Opcode.LN:
+								value = Math.log(u);
+								derivative = du / u;
+								break;
+
+							case Opcode.ROUND:
+								value = Math.rint(u);
+								break;
+
+							case Opcode.SEC:
+								value = MathFunctions.sec(u);
+								derivative = value * Math.tan(u) * du;
+								break;
+
+							case Opcode.SIN:
+								value = Math.sin(u);
+								derivative = Math.cos(u) * du;
+								break;
+
+							case Opcode.SINH:
+								value = MathFunctions.sinh(u);
+								derivative = MathFunctions.cosh(u) * du;
+								break;
+
+							case Opcode.SQRT:
+								value = Math.sqrt(u);
+								derivative = du / (2.0 * value);
+								break;
+
+							case Opcode.TAN:
+								value = Math.tan(u);
+								derivative = (1.0 + value * value) * du;
+								break;
+
+							case Opcode.TANH:
+								value = MathFunctions.tanh(u);
+								derivative = (1.0 - value * value) * du;
+								break;
+
+							case Opcode.NEGATE:
+								value = -u;
+								derivative = -du;
+								break;
+						}
+						stack[sp] = value;
+						dStack[sp] = derivative;
+					}
+					break;
+				}
+			}
+		}
+		return new Dual(stack[0], dStack[0]);
+	}
+
+	//------------------------------------------------------------------
+
+	private void evaluateBlocks(
+		double[]		xs,
+		double[][]		inputs,
+		int[]			indices,
+		double[]		out,
+		int				length,
+		int				startBlock,
+		int				endBlock,
+		BooleanSupplier	cancelled)
+	{
+		Workspace workspace = WORKSPACES.get();
+		workspace.ensureBlockCapacity(maxStackSize, numSlots);
+
+		for (int i = startBlock; i < endBlock; i++)
+		{
+			if ((cancelled != null) && cancelled.getAsBoolean())
+				throw new CancellationException();
+			int offset = i * BLOCK_LENGTH;
+			evaluateBlock(xs, inputs, indices, out, offset, Math.min(BLOCK_LENGTH, length - offset),
+						  workspace.blockStack, workspace.blockSlots);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private void evaluateBlock(
+		double[]	xs,
+		double[][]	inputs,
+		int[]		indices,
+		double[]	out,
+		int			offset,
+		int			length,
+		double[][]	stack,
+		double[][]	slots)
+	{
+		int[] code = this.code;
+		int sp = -1;
+		int pc = 0;
+		while (pc < code.length)
+		{
+			switch (code[pc++])
+			{
+				case Opcode.CONSTANT:
+					Arrays.fill(stack[++sp], 0, length, constants[code[pc++]]);
+					break;
+
+				case Opcode.VARIABLE:
+					System.arraycopy(xs, offset, stack[++sp], 0, length);
+					break;
+
+				case Opcode.STORE:
+					System.arraycopy(stack[sp], 0, slots[code[pc++]], 0, length);
+					break;
+
+				case Opcode.LOAD:
+					System.arraycopy(slots[code[pc++]], 0, stack[++sp], 0, length);
+					break;
+
+				case Opcode.INPUT:
+				{
+					double[] a = stack[++sp];
+					double[] input = inputs[code[pc++]];
+					for (int i = 0; i < length; i++)
+						a[i] = input[indices[offset + i]];
+					break;
+				}
+
+				case Opcode.ABS:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.abs(a[i]);
+					break;
+				}
+
+				case Opcode.CEIL:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.ceil(a[i]);
+					break;
+				}
+
+				case Opcode.FLOOR:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.floor(a[i]);
+					break;
+				}
+
+				case Opcode.ROUND:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.rint(a[i]);
+					break;
+				}
+
+				case Opcode.SQRT:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.sqrt(a[i]);
+					break;
+				}
+
+				case Opcode.NEGATE:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = -a[i];
+					break;
+				}
+
+				case Opcode.ACOS:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.acos(a[i]);
+					break;
+				}
+
+				case Opcode.ACOSH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.acosh(a[i]);
+					break;
+				}
+
+				case Opcode.ACOT:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.acot(a[i]);
+					break;
+				}
+
+				case Opcode.ACSC:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.acsc(a[i]);
+					break;
+				}
+
+				case Opcode.ASEC:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.asec(a[i]);
+					break;
+				}
+
+				case Opcode.ASIN:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.asin(a[i]);
+					break;
+				}
+
+				case Opcode.ASINH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.asinh(a[i]);
+					break;
+				}
+
+				case Opcode.ATAN:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.atan(a[i]);
+					break;
+				}
+
+				case Opcode.ATANH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.atanh(a[i]);
+					break;
+				}
+
+				case Opcode.COS:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.cos(a[i]);
+					break;
+				}
+
+				case Opcode.COSH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.cosh(a[i]);
+					break;
+				}
+
+				case Opcode.COT:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.cot(a[i]);
+					break;
+				}
+
+				case Opcode.CSC:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.csc(a[i]);
+					break;
+				}
+
+				case Opcode.EXP:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.exp(a[i]);
+					break;
+				}
+
+				case Opcode.LG:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.log10(a[i]);
+					break;
+				}
+
+				case Opcode.LN:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.log(a[i]);
+					break;
+				}
+
+				case Opcode.SEC:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.sec(a[i]);
+					break;
+				}
+
+				case Opcode.SIN:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.sin(a[i]);
+					break;
+				}
+
+				case Opcode.SINH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.sinh(a[i]);
+					break;
+				}
+
+				case Opcode.TAN:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.tan(a[i]);
+					break;
+				}
+
+				case Opcode.TANH:
+				{
+					double[] a = stack[sp];
+					for (int i = 0; i < length; i++)
+						a[i] = MathFunctions.tanh(a[i]);
+					break;
+				}
+
+				case Opcode.APPROX_ACOSH:
+				{
+					double[] a = stack[sp];
+					int degree = code[pc++];
+					for (int i = 0; i < length; i++)
+						a[i] = ApproximateMathFunctions.acosh(a[i], degree);
+					break;
+				}
+
+				case Opcode.APPROX_ASINH:
+				{
+					double[] a = stack[sp];
+					int degree = code[pc++];
+					for (int i = 0; i < length; i++)
+						a[i] = ApproximateMathFunctions.asinh(a[i], degree);
+					break;
+				}
+
+				case Opcode.APPROX_ATANH:
+				{
+					double[] a = stack[sp];
+					int degree = code[pc++];
+					for (int i = 0; i < length; i++)
+						a[i] = ApproximateMathFunctions.atanh(a[i], degree);
+					break;
+				}
+
+				case Opcode.APPROX_LG:
+				{
+					double[] a = stack[sp];
+					int degree = code[pc++];
+					for (int i = 0; i < length; i++)
+						a[i] = ApproximateMathFunctions.log10(a[i], degree);
+					break;
+				}
+
+				case Opcode.APPROX_LN:
+				{
+					double[] a = stack[sp];
+					int degree = code[pc++];
+					for (int i = 0; i < length; i++)
+						a[i] = ApproximateMathFunctions.log(a[i], degree);
+					break;
+				}
+
+				case Opcode.ADD:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = a[i] + b[i];
+					break;
+				}
+
+				case Opcode.SUBTRACT:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = a[i] - b[i];
+					break;
+				}
+
+				case Opcode.MULTIPLY:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = a[i] * b[i];
+					break;
+				}
+
+				case Opcode.DIVIDE:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = a[i] / b[i];
+					break;
+				}
+
+				case Opcode.REMAINDER:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = a[i] % b[i];
+					break;
+				}
+
+				case Opcode.IEEE_REMAINDER:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.IEEEremainder(a[i], b[i]);
+					break;
+				}
+
+				case Opcode.POWER:
+				{
+					double[] a = stack[--sp];
+					double[] b = stack[sp + 1];
+					for (int i = 0; i < length; i++)
+						a[i] = Math.pow(a[i], b[i]);
+					break;
+				}
+			}
+		}
+		System.arraycopy(stack[0], 0, out, offset, length);
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : non-inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: ASSEMBLER
+
+
+	private static class Assembler
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		private static final	int	INITIAL_CODE_LENGTH		= 64;
+		private static final	int	INITIAL_NUM_CONSTANTS	= 16;
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	SubexpressionTable					subexpressions;
+		private	ApproximateMathFunctions.Accuracy	accuracy;
+		private	Map<Expression.Node, Integer>		inputIndices;
+		private	boolean[]							slotsStored;
+		private	int[]								code;
+		private	int									codeLength;
+		private	double[]							constants;
+		private	int									numConstants;
+		private	int									stackSize;
+		private	int									maxStackSize;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Assembler(
+			SubexpressionTable					subexpressions,
+			ApproximateMathFunctions.Accuracy	accuracy,
+			List<Expression.Node>				inputs)
+		{
+			this.subexpressions = subexpressions;
+			this.accuracy = accuracy;
+			inputIndices = new IdentityHashMap<>();
+			for (int i = 0; i < inputs.size(); i++)
+				inputIndices.put(inputs.get(i), i);
+			slotsStored = new boolean[subexpressions.getNumSlots()];
+			code = new int[INITIAL_CODE_LENGTH];
+			constants = new double[INITIAL_NUM_CONSTANTS];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private void assemble(
+			Expression.Node	node)
+		{
+			// If the node is an input, load its value from the input
+			Integer input = inputIndices.get(node);
+			if (input != null)
+			{
+				emit(Opcode.INPUT);
+				emit(input);
+				push();
+				return;
+			}
+
+			// If the value of a common subexpression has already been stored, load it from its slot
+			int slot = subexpressions.getSlot(node);
+			if ((slot >= 0) && slotsStored[slot])
+			{
+				emit(Opcode.LOAD);
+				emit(slot);
+				push();
+				return;
+			}
+
+			// Constant
+			if (node instanceof Expression.Node.ConstantNode constantNode)
+			{
+				emit(Opcode.CONSTANT);
+				emit(addConstant(constantNode.value));
+				push();
+			}
+
+			// Variable
+			else if (node instanceof Expression.Node.VariableNode)
+			{
+				emit(Opcode.VARIABLE);
+				push();
+			}
+
+			// Unary operation
+			else if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+			{
+				assemble(unaryNode.leftChild);
+				int opcode = (accuracy == null) ? getOpcode(unaryNode.unaryOperation)
+												: getApproximateOpcode(unaryNode.unaryOperation);
+				if (opcode >= 0)
+					emit(opcode);
+
+				// Follow an approximate operation, whose opcode is above those of the exact operations, with the degree
+				// of its approximation
+				if (opcode >= Opcode.APPROX_ACOSH)
+					emit(accuracy.getDegree());
+			}
+
+			// Binary operation
+			else if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+			{
+				assemble(binaryNode.leftChild);
+				assemble(binaryNode.rightChild);
+				emit(getOpcode(binaryNode.binaryOperation));
+				--stackSize;
+			}
+
+			// Unknown kind of node: push NaN, as the tree interpreter does
+			else
+			{
+				emit(Opcode.CONSTANT);
+				emit(addConstant(Double.NaN));
+				push();
+			}
+
+			// Store the value of a common subexpression in its slot
+			if (slot >= 0)
+			{
+				emit(Opcode.STORE);
+				emit(slot);
+				slotsStored[slot] = true;
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		private void emit(
+			int	value)
+		{
+			if (codeLength >= code.length)
+				code = Arrays.copyOf(code, 2 * code.length);
+			code[codeLength++] = value;
+		}
+
+		//--------------------------------------------------------------
+
+		private int addConstant(
+			double	value)
+		{
+			long bits = Double.doubleToRawLongBits(value);
+			for (int i = 0; i < numConstants; i++)
+			{
+				if (Double.doubleToRawLongBits(constants[i]) == bits)
+					return i;
+			}
+			if (numConstants >= constants.length)
+				constants = Arrays.copyOf(constants, 2 * constants.length);
+			constants[numConstants] = value;
+			return numConstants++;
+		}
+
+		//--------------------------------------------------------------
+
+		private void push()
+		{
+			maxStackSize = Math.max(++stackSize, maxStackSize);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// CLASS: WORKSPACE
+
+
+	/**
+	 * This class holds the operand stacks and slots with which a thread evaluates programs.  The arrays are grown as
+	 * required and are shared by all the programs that the thread evaluates.
+	 */
+
+	private static class Workspace
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	double[]	stack;
+		private	double[]	slots;
+		private	double[]	derivativeStack;
+		private	double[]	derivativeSlots;
+		private	double[][]	blockStack;
+		private	double[][]	blockSlots;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private Workspace()
+		{
+			stack = new double[0];
+			slots = new double[0];
+			derivativeStack = new double[0];
+			derivativeSlots = new double[0];
+			blockStack = new double[0][];
+			blockSlots = new double[0][];
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Class methods
+	////////////////////////////////////////////////////////////////////
+
+		private static double[][] growBlocks(
+			double[][]	blocks,
+			int			length)
+		{
+			int oldLength = blocks.length;
+			blocks = Arrays.copyOf(blocks, length);
+			for (int i = oldLength; i < length; i++)
+				blocks[i] = new double[BLOCK_LENGTH];
+			return blocks;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods
+	////////////////////////////////////////////////////////////////////
+
+		private void ensureCapacity(
+			int	stackSize,
+			int	numSlots)
+		{
+			if (stack.length < stackSize)
+			{
+				stack = new double[stackSize];
+				derivativeStack = new double[stackSize];
+			}
+			if (slots.length < numSlots)
+			{
+				slots = new double[numSlots];
+				derivativeSlots = new double[numSlots];
+			}
+		}
+
+		//--------------------------------------------------------------
+
+		private void ensureBlockCapacity(
+			int	stackSize,
+			int	numSlots)
+		{
+			if (blockStack.length < stackSize)
+				blockStack = growBlocks(blockStack, stackSize);
+			if (blockSlots.length < numSlots)
+				blockSlots = growBlocks(blockSlots, numSlots);
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+////////////////////////////////////////////////////////////////////////
+//  Member classes : inner classes
+////////////////////////////////////////////////////////////////////////
+
+
+	// CLASS: BLOCK-EVALUATION TASK
+
+
+	/**
+	 * This class implements a task that evaluates a program over a range of blocks of values of the variable.  The
+	 * task divides the range in two until it contains a single block.
+	 */
+
+	private class BlockTask
+		extends RecursiveAction
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	double[]		xs;
+		private	double[][]		inputs;
+		private	int[]			indices;
+		private	double[]		out;
+		private	int				length;
+		private	int				startBlock;
+		private	int				endBlock;
+		private	BooleanSupplier	cancelled;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private BlockTask(
+			double[]		xs,
+			double[][]		inputs,
+			int[]			indices,
+			double[]		out,
+			int				length,
+			int				startBlock,
+			int				endBlock,
+			BooleanSupplier	cancelled)
+		{
+			this.xs = xs;
+			this.inputs = inputs;
+			this.indices = indices;
+			this.out = out;
+			this.length = length;
+			this.startBlock = startBlock;
+			this.endBlock = endBlock;
+			this.cancelled = cancelled;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		protected void compute()
+		{
+			if (endBlock - startBlock <= 1)
+				evaluateBlocks(xs, inputs, indices, out, length, startBlock, endBlock, cancelled);
+			else
+			{
+				int midBlock = (startBlock + endBlock) >>> 1;
+				invokeAll(new BlockTask(xs, inputs, indices, out, length, startBlock, midBlock, cancelled),
+						  new BlockTask(xs, inputs, indices, out, length, midBlock, endBlock, cancelled));
+			}
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -80,6 +80,8 @@ import uk.blankaspect.ui.swing.font.FontStyle;
 
 import uk.blankaspect.ui.swing.icon.ColourSampleIcon;
 
+import uk.blankaspect.ui.swing.image.PngEncoder;
+
 import uk.blankaspect.ui.swing.label.FLabel;
 
 import uk.blankaspect.ui.swing.misc.GuiUtils;
@@ -133,10 +135,14 @@ class PreferencesDialog
 	private static final	String	NO_LOOK_AND_FEELS_STR	= "<no look-and-feels>";
 
 	// Plot panel
-	private static final	int		PLOT_SIZE_FIELD_LENGTH				= 4;
-	private static final	int		NUM_FRACTION_DIGITS_FIELD_LENGTH	= 2;
-	private static final	int		NUM_Y_SCALE_DIGITS_FIELD_LENGTH		= 2;
-	private static final	int		FIXED_POINT_RANGE_FIELD_LENGTH		= 3;
+	private static final	int		PLOT_SIZE_FIELD_LENGTH					= 4;
+	private static final	int		NUM_FRACTION_DIGITS_FIELD_LENGTH		= 2;
+	private static final	int		NUM_Y_SCALE_DIGITS_FIELD_LENGTH			= 2;
+	private static final	int		FIXED_POINT_RANGE_FIELD_LENGTH			= 3;
+	private static final	int		INTERACTION_COLUMN_STEP_FIELD_LENGTH	= 2;
+	private static final	int		ADAPTIVE_SAMPLE_BUDGET_FIELD_LENGTH		= 5;
+	private static final	int		IMAGE_SCALE_FIELD_LENGTH				= 2;
+	private static final	int		PNG_COMPRESSION_LEVEL_FIELD_LENGTH		= 1;
 
 	private static final	String	PLOT_SIZE_STR					= "Plot size";
 	private static final	String	SHOW_GRID_STR					= "Show grid";
@@ -160,6 +166,15 @@ class PreferencesDialog
 	private static final	String	GRID_TITLE_STR					= "Grid";
 	private static final	String	AXIS_TITLE_STR					= "Axis";
 	private static final	String	SCALE_MARKINGS_TITLE_STR		= "Scale markings";
+	private static final	String	RENDERING_STR					= "Rendering";
+	private static final	String	COMPILE_EXPRESSIONS_STR			= "Compile expressions";
+	private static final	String	APPROXIMATE_MATH_STR			= "Approximate mathematical functions";
+	private static final	String	INTERACTION_COLUMN_STEP_STR		= "Column step during interaction";
+	private static final	String	ADAPTIVE_SAMPLE_BUDGET_STR		= "Adaptive sample budget";
+	private static final	String	IMAGE_EXPORT_STR				= "Image export";
+	private static final	String	IMAGE_SCALE_STR					= "Image scale (multiple of plot size)";
+	private static final	String	PNG_COMPRESSION_LEVEL_STR		= "PNG compression level";
+	private static final	String	PNG_FILTER_STRATEGY_STR			= "PNG filter strategy";
 
 	// Function panel
 	private static final	int		LIST_WIDTH_FIELD_LENGTH		= 2;
@@ -243,6 +258,13 @@ class PreferencesDialog
 	private	JButton									plotColourGridButton;
 	private	JButton									plotColourAxisButton;
 	private	JButton									plotColourScaleMarkingsButton;
+	private	BooleanComboBox							compileExpressionsComboBox;
+	private	BooleanComboBox							approximateMathComboBox;
+	private	FIntegerSpinner							interactionColumnStepSpinner;
+	private	FIntegerSpinner							adaptiveSampleBudgetSpinner;
+	private	FIntegerSpinner							imageScaleSpinner;
+	private	FIntegerSpinner							pngCompressionLevelSpinner;
+	private	FComboBox<PngEncoder.FilterStrategy>	pngFilterStrategyComboBox;
 
 	// Function panel
 	private	FPathnameField							directoryField;
@@ -1539,6 +1561,243 @@ class PreferencesDialog
 		plotColoursPanelB.add(plotColourScaleMarkingsButton);
 
 
+		//----  Rendering panel
+
+		JPanel renderingPanel = new JPanel(gridBag);
+		TitledBorder.setPaddedBorder(renderingPanel, RENDERING_STR);
+
+		gridY = 0;
+
+		// Label: compile expressions
+		JLabel compileExpressionsLabel = new FLabel(COMPILE_EXPRESSIONS_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(compileExpressionsLabel, gbc);
+		renderingPanel.add(compileExpressionsLabel);
+
+		// Combo box: compile expressions
+		compileExpressionsComboBox = new BooleanComboBox(config.isCompileExpressions());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(compileExpressionsComboBox, gbc);
+		renderingPanel.add(compileExpressionsComboBox);
+
+		// Label: approximate mathematical functions
+		JLabel approximateMathLabel = new FLabel(APPROXIMATE_MATH_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(approximateMathLabel, gbc);
+		renderingPanel.add(approximateMathLabel);
+
+		// Combo box: approximate mathematical functions
+		approximateMathComboBox = new BooleanComboBox(config.isApproximateMath());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(approximateMathComboBox, gbc);
+		renderingPanel.add(approximateMathComboBox);
+
+		// Label: column step during interaction
+		JLabel interactionColumnStepLabel = new FLabel(INTERACTION_COLUMN_STEP_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(interactionColumnStepLabel, gbc);
+		renderingPanel.add(interactionColumnStepLabel);
+
+		// Spinner: column step during interaction
+		interactionColumnStepSpinner = new FIntegerSpinner(config.getInteractionColumnStep(),
+														   PlotPanel.MIN_INTERACTION_COLUMN_STEP,
+														   PlotPanel.MAX_INTERACTION_COLUMN_STEP,
+														   INTERACTION_COLUMN_STEP_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(interactionColumnStepSpinner, gbc);
+		renderingPanel.add(interactionColumnStepSpinner);
+
+		// Label: adaptive sample budget
+		JLabel adaptiveSampleBudgetLabel = new FLabel(ADAPTIVE_SAMPLE_BUDGET_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(adaptiveSampleBudgetLabel, gbc);
+		renderingPanel.add(adaptiveSampleBudgetLabel);
+
+		// Spinner: adaptive sample budget
+		adaptiveSampleBudgetSpinner = new FIntegerSpinner(config.getAdaptiveSampleBudget(),
+														  PlotPanel.MIN_ADAPTIVE_SAMPLE_BUDGET,
+														  PlotPanel.MAX_ADAPTIVE_SAMPLE_BUDGET,
+														  ADAPTIVE_SAMPLE_BUDGET_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(adaptiveSampleBudgetSpinner, gbc);
+		renderingPanel.add(adaptiveSampleBudgetSpinner);
+
+
+		//----  Image export panel
+
+		JPanel imageExportPanel = new JPanel(gridBag);
+		TitledBorder.setPaddedBorder(imageExportPanel, IMAGE_EXPORT_STR);
+
+		gridY = 0;
+
+		// Label: image scale
+		JLabel imageScaleLabel = new FLabel(IMAGE_SCALE_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(imageScaleLabel, gbc);
+		imageExportPanel.add(imageScaleLabel);
+
+		// Spinner: image scale
+		imageScaleSpinner = new FIntegerSpinner(config.getImageScale(), PlotPanel.MIN_IMAGE_SCALE,
+												PlotPanel.MAX_IMAGE_SCALE, IMAGE_SCALE_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(imageScaleSpinner, gbc);
+		imageExportPanel.add(imageScaleSpinner);
+
+		// Label: PNG compression level
+		JLabel pngCompressionLevelLabel = new FLabel(PNG_COMPRESSION_LEVEL_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(pngCompressionLevelLabel, gbc);
+		imageExportPanel.add(pngCompressionLevelLabel);
+
+		// Spinner: PNG compression level
+		pngCompressionLevelSpinner = new FIntegerSpinner(config.getPngCompressionLevel(),
+														 PngEncoder.MIN_COMPRESSION_LEVEL,
+														 PngEncoder.MAX_COMPRESSION_LEVEL,
+														 PNG_COMPRESSION_LEVEL_FIELD_LENGTH);
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(pngCompressionLevelSpinner, gbc);
+		imageExportPanel.add(pngCompressionLevelSpinner);
+
+		// Label: PNG filter strategy
+		JLabel pngFilterStrategyLabel = new FLabel(PNG_FILTER_STRATEGY_STR);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_END;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(pngFilterStrategyLabel, gbc);
+		imageExportPanel.add(pngFilterStrategyLabel);
+
+		// Combo box: PNG filter strategy
+		pngFilterStrategyComboBox = new FComboBox<>(PngEncoder.FilterStrategy.values());
+		pngFilterStrategyComboBox.setSelectedValue(config.getPngFilterStrategy());
+
+		gbc.gridx = 1;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.LINE_START;
+		gbc.fill = GridBagConstraints.NONE;
+		gbc.insets = AppConstants.COMPONENT_INSETS;
+		gridBag.setConstraints(pngFilterStrategyComboBox, gbc);
+		imageExportPanel.add(pngFilterStrategyComboBox);
+
+
 		//----  Outer panel
 
 		JPanel outerPanel = new JPanel(gridBag);
@@ -1570,6 +1829,30 @@ class PreferencesDialog
 		gridBag.setConstraints(plotColoursPanel, gbc);
 		outerPanel.add(plotColoursPanel);
 
+		gbc.gridx = 0;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 0, 0, 0);
+		gridBag.setConstraints(renderingPanel, gbc);
+		outerPanel.add(renderingPanel);
+
+		gbc.gridx = 0;
+		gbc.gridy = gridY++;
+		gbc.gridwidth = 1;
+		gbc.gridheight = 1;
+		gbc.weightx = 0.0;
+		gbc.weighty = 0.0;
+		gbc.anchor = GridBagConstraints.NORTH;
+		gbc.fill = GridBagConstraints.HORIZONTAL;
+		gbc.insets = new Insets(3, 0, 0, 0);
+		gridBag.setConstraints(imageExportPanel, gbc);
+		outerPanel.add(imageExportPanel);
+
 		return outerPanel;
 	}
 
@@ -2018,6 +2301,13 @@ class PreferencesDialog
 		config.setPlotColourGrid(plotColourGridButton.getForeground());
 		config.setPlotColourAxis(plotColourAxisButton.getForeground());
 		config.setPlotColourScale(plotColourScaleMarkingsButton.getForeground());
+		config.setCompileExpressions(compileExpressionsComboBox.getSelectedValue());
+		config.setApproximateMath(approximateMathComboBox.getSelectedValue());
+		config.setInteractionColumnStep(interactionColumnStepSpinner.getIntValue());
+		config.setAdaptiveSampleBudget(adaptiveSampleBudgetSpinner.getIntValue());
+		config.setImageScale(imageScaleSpinner.getIntValue());
+		config.setPngCompressionLevel(pngCompressionLevelSpinner.getIntValue());
+		config.setPngFilterStrategy(pngFilterStrategyComboBox.getSelectedValue());
 	}
 
 	//------------------------------------------------------------------
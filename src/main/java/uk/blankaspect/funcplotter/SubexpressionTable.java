@@ -0,0 +1,242 @@
+/*====================================================================*\
+
+SubexpressionTable.java
+
+Class: table of common subexpressions.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.funcplotter;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: TABLE OF COMMON SUBEXPRESSIONS
+
+
+/**
+ * This class identifies the subtrees of the abstract syntax tree of an {@link Expression} that occur more than once in
+ * the tree.  The subtrees are identified by hash-consing: each node of the tree is mapped to the identifier of its
+ * structure (its kind, its operation or value, and the identifiers of its children), so that two subtrees are
+ * structurally equal if and only if their roots have the same identifier.
+ * <p>
+ * Each repeated subtree that is not a terminal node is assigned a <i>slot</i>.  When a tree is flattened or compiled,
+ * the first occurrence of a subtree that has a slot is evaluated and its value is stored in the slot; subsequent
+ * occurrences of the subtree load the value from the slot instead of evaluating the subtree again.  The first
+ * occurrence of a subtree is the one that is encountered first in a depth-first, left-to-right traversal of the tree.
+ * </p>
+ */
+
+class SubexpressionTable
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	Map<Expression.Node, Integer>	slotIndices;
+	private	int								numSlots;
+	private	int								numEliminatedNodes;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of a table of the common subexpressions of the specified abstract syntax tree.
+	 *
+	 * @param tree
+	 *          the tree whose common subexpressions will be identified.
+	 */
+
+	public SubexpressionTable(
+		Expression.Node	tree)
+	{
+		// Initialise instance variables
+		slotIndices = new IdentityHashMap<>();
+
+		// Assign identifiers to the nodes of the tree
+		Map<Expression.Node, Integer> nodeIds = new IdentityHashMap<>();
+		List<Integer> subtreeSizes = new ArrayList<>();
+		if (tree != null)
+			assignIds(tree, nodeIds, new HashMap<>(), subtreeSizes);
+
+		// Count the references to each distinct subtree, ignoring the subtrees of a subtree that has already been
+		// referenced
+		int[] refCounts = new int[subtreeSizes.size()];
+		if (tree != null)
+			countReferences(tree, nodeIds, subtreeSizes, refCounts);
+
+		// Assign slots to non-terminal subtrees that are referenced more than once
+		int[] slots = new int[refCounts.length];
+		for (int i = 0; i < refCounts.length; i++)
+			slots[i] = ((refCounts[i] > 1) && (subtreeSizes.get(i) > 1)) ? numSlots++ : -1;
+		for (Map.Entry<Expression.Node, Integer> entry : nodeIds.entrySet())
+		{
+			int slot = slots[entry.getValue()];
+			if (slot >= 0)
+				slotIndices.put(entry.getKey(), slot);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	private static int assignIds(
+		Expression.Node					node,
+		Map<Expression.Node, Integer>	nodeIds,
+		Map<NodeKey, Integer>			keyIds,
+		List<Integer>					subtreeSizes)
+	{
+		// Assign identifiers to children
+		int leftId = -1;
+		int rightId = -1;
+		int size = 1;
+		if (node.leftChild != null)
+		{
+			leftId = assignIds(node.leftChild, nodeIds, keyIds, subtreeSizes);
+			size += subtreeSizes.get(leftId);
+		}
+		if (node.rightChild != null)
+		{
+			rightId = assignIds(node.rightChild, nodeIds, keyIds, subtreeSizes);
+			size += subtreeSizes.get(rightId);
+		}
+
+		// Create key from structure of node
+		Object operation = node.getKindString();
+		long valueBits = 0;
+		if (node instanceof Expression.Node.ConstantNode constantNode)
+			valueBits = Double.doubleToRawLongBits(constantNode.value);
+		else if (node instanceof Expression.Node.ParameterNode parameterNode)
+			valueBits = parameterNode.name;
+		else if (node instanceof Expression.Node.UnaryOperationNode unaryNode)
+			operation = unaryNode.unaryOperation;
+		else if (node instanceof Expression.Node.BinaryOperationNode binaryNode)
+			operation = binaryNode.binaryOperation;
+		NodeKey key = new NodeKey(operation, valueBits, leftId, rightId);
+
+		// Get identifier of structure; if there is none, create a new one
+		Integer id = keyIds.get(key);
+		if (id == null)
+		{
+			id = subtreeSizes.size();
+			keyIds.put(key, id);
+			subtreeSizes.add(size);
+		}
+		nodeIds.put(node, id);
+		return id;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Returns the index of the slot that is assigned to the specified node.
+	 *
+	 * @param  node
+	 *           the node whose slot is required.
+	 * @return the index of the slot that is assigned to {@code node}, or -1 if no slot is assigned to it.
+	 */
+
+	public int getSlot(
+		Expression.Node	node)
+	{
+		Integer index = slotIndices.get(node);
+		return (index == null) ? -1 : index;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of slots that are assigned to the subtrees of the tree.
+	 *
+	 * @return the number of slots that are assigned to the subtrees of the tree.
+	 */
+
+	public int getNumSlots()
+	{
+		return numSlots;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of nodes of the tree that are not evaluated because the value of a subtree that contains them
+	 * is loaded from a slot.
+	 *
+	 * @return the number of nodes of the tree that are eliminated by sharing common subexpressions.
+	 */
+
+	public int getNumEliminatedNodes()
+	{
+		return numEliminatedNodes;
+	}
+
+	//------------------------------------------------------------------
+
+	private void countReferences(
+		Expression.Node					node,
+		Map<Expression.Node, Integer>	nodeIds,
+		List<Integer>					subtreeSizes,
+		int[]							refCounts)
+	{
+		int id = nodeIds.get(node);
+		if (refCounts[id]++ > 0)
+		{
+			if (!node.isTerminal())
+				numEliminatedNodes += subtreeSizes.get(id);
+		}
+		else
+		{
+			if (node.leftChild != null)
+				countReferences(node.leftChild, nodeIds, subtreeSizes, refCounts);
+			if (node.rightChild != null)
+				countReferences(node.rightChild, nodeIds, subtreeSizes, refCounts);
+		}
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Member records
+////////////////////////////////////////////////////////////////////////
+
+
+	// RECORD: KEY OF THE STRUCTURE OF A NODE
+
+
+	private record NodeKey(
+		Object	operation,
+		long	valueBits,
+		int		leftId,
+		int		rightId)
+	{ }
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
@@ -0,0 +1,796 @@
+/*====================================================================*\
+
+PngEncoder.java
+
+Class: PNG encoder.
+
+\*====================================================================*/
+
+
+// PACKAGE
+
+
+package uk.blankaspect.ui.swing.image;
+
+//----------------------------------------------------------------------
+
+
+// IMPORTS
+
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import uk.blankaspect.common.misc.IProgressListener;
+import uk.blankaspect.common.misc.IStringKeyed;
+
+//----------------------------------------------------------------------
+
+
+// CLASS: PNG ENCODER
+
+
+/**
+ * This class implements an encoder that writes an image to an output stream in the PNG format, with a bit depth of 8
+ * and a colour type of either truecolour (RGB) or truecolour with alpha (RGBA).
+ * <p>
+ * The rows of the image are written to the encoder one at a time, from top to bottom, so the image need not be held in
+ * memory.  Each row is filtered as it is written, with the {@linkplain FilterStrategy filter strategy} of the encoder.
+ * The filtered rows are collected in blocks of about {@link #BLOCK_SIZE} bytes, and the blocks are compressed
+ * concurrently in the common fork/join pool, in the manner of <i>pigz</i>: each block is compressed independently as a
+ * sequence of deflate blocks that ends on a byte boundary, with the last 32 KB of the preceding block as its preset
+ * dictionary, so the compressed blocks can be concatenated in order into a single zlib stream with little loss of
+ * compression.  The number of blocks that are being compressed at any time is limited, so the memory that the encoder
+ * occupies is bounded.
+ * </p>
+ * <p>
+ * Each compressed block is written to the output stream in an IDAT chunk as soon as it and the blocks before it have
+ * been compressed, and the progress listeners of the encoder are then notified of the fraction of the rows of the
+ * image that have been written.
+ * </p>
+ * <p>
+ * This class is not thread-safe; the rows of an image must be written on a single thread.
+ * </p>
+ */
+
+public class PngEncoder
+{
+
+////////////////////////////////////////////////////////////////////////
+//  Constants
+////////////////////////////////////////////////////////////////////////
+
+	/** The minimum compression level. */
+	public static final		int		MIN_COMPRESSION_LEVEL	= Deflater.NO_COMPRESSION;
+
+	/** The maximum compression level. */
+	public static final		int		MAX_COMPRESSION_LEVEL	= Deflater.BEST_COMPRESSION;
+
+	/** The default compression level. */
+	public static final		int		DEFAULT_COMPRESSION_LEVEL	= 6;
+
+	/** The approximate number of bytes of filtered rows in a block that is compressed as a unit. */
+	public static final		int		BLOCK_SIZE	= 1 << 17;
+
+	/** The size of the preset dictionary of a block. */
+	private static final	int		DICTIONARY_SIZE	= 1 << 15;
+
+	/** The size of the buffer into which a block is compressed. */
+	private static final	int		COMPRESSION_BUFFER_SIZE	= 1 << 16;
+
+	/** The signature of a PNG file. */
+	private static final	byte[]	SIGNATURE	= { (byte)0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+
+	/** The types of chunk. */
+	private static final	byte[]	IHDR_CHUNK_TYPE	= "IHDR".getBytes(StandardCharsets.US_ASCII);
+	private static final	byte[]	IDAT_CHUNK_TYPE	= "IDAT".getBytes(StandardCharsets.US_ASCII);
+	private static final	byte[]	IEND_CHUNK_TYPE	= "IEND".getBytes(StandardCharsets.US_ASCII);
+
+	/** The bit depth of a sample. */
+	private static final	int		BIT_DEPTH	= 8;
+
+	/** The colour types. */
+	private static final	int		COLOUR_TYPE_RGB		= 2;
+	private static final	int		COLOUR_TYPE_RGBA	= 6;
+
+	/** The compression method of a zlib stream: deflate with a 32 KB window. */
+	private static final	int		ZLIB_COMPRESSION_METHOD	= 0x78;
+
+	/** The maximum number of blocks that may be compressed concurrently for each thread of the common pool. */
+	private static final	int		PENDING_BLOCKS_PER_THREAD	= 2;
+
+////////////////////////////////////////////////////////////////////////
+//  Instance variables
+////////////////////////////////////////////////////////////////////////
+
+	private	OutputStream					outStream;
+	private	int								width;
+	private	int								height;
+	private	boolean							alpha;
+	private	int								compressionLevel;
+	private	FilterStrategy					filterStrategy;
+	private	List<IProgressListener>			progressListeners;
+	private	int								bytesPerPixel;
+	private	int								rowLength;
+	private	byte[]							row;
+	private	byte[]							prevRow;
+	private	byte[][]						filteredRows;
+	private	int								rowsPerBlock;
+	private	byte[]							block;
+	private	int								blockLength;
+	private	byte[]							prevBlock;
+	private	int								prevBlockLength;
+	private	Adler32							checksum;
+	private	Deque<ForkJoinTask<byte[]>>		pendingBlocks;
+	private	int								maxPendingBlocks;
+	private	int								numRows;
+	private	int								numRowsWritten;
+	private	int								numBlocks;
+	private	int								numBlocksWritten;
+
+////////////////////////////////////////////////////////////////////////
+//  Constructors
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Creates a new instance of an encoder with the default compression level and the {@linkplain
+	 * FilterStrategy#ADAPTIVE adaptive} filter strategy.
+	 *
+	 * @param  outStream
+	 *           the output stream to which the image will be written.
+	 * @param  width
+	 *           the width of the image.
+	 * @param  height
+	 *           the height of the image.
+	 * @param  alpha
+	 *           if {@code true}, the alpha component of the pixels of the image will be written.
+	 * @throws IllegalArgumentException
+	 *           if {@code width} or {@code height} is less than 1.
+	 */
+
+	public PngEncoder(
+		OutputStream	outStream,
+		int				width,
+		int				height,
+		boolean			alpha)
+	{
+		this(outStream, width, height, alpha, DEFAULT_COMPRESSION_LEVEL, FilterStrategy.ADAPTIVE);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of an encoder with the specified compression level and filter strategy.
+	 *
+	 * @param  outStream
+	 *           the output stream to which the image will be written.
+	 * @param  width
+	 *           the width of the image.
+	 * @param  height
+	 *           the height of the image.
+	 * @param  alpha
+	 *           if {@code true}, the alpha component of the pixels of the image will be written.
+	 * @param  compressionLevel
+	 *           the level of compression, from {@link #MIN_COMPRESSION_LEVEL} (no compression) to {@link
+	 *           #MAX_COMPRESSION_LEVEL} (best compression).
+	 * @param  filterStrategy
+	 *           the strategy by which a filter is chosen for each row of the image.
+	 * @throws IllegalArgumentException
+	 *           if {@code width} or {@code height} is less than 1, if {@code compressionLevel} is out of bounds or if
+	 *           {@code filterStrategy} is {@code null}.
+	 */
+
+	public PngEncoder(
+		OutputStream	outStream,
+		int				width,
+		int				height,
+		boolean			alpha,
+		int				compressionLevel,
+		FilterStrategy	filterStrategy)
+	{
+		// Validate arguments
+		if ((width < 1) || (height < 1))
+			throw new IllegalArgumentException("Invalid dimensions");
+		if ((compressionLevel < MIN_COMPRESSION_LEVEL) || (compressionLevel > MAX_COMPRESSION_LEVEL))
+			throw new IllegalArgumentException("Compression level out of bounds: " + compressionLevel);
+		if (filterStrategy == null)
+			throw new IllegalArgumentException("Null filter strategy");
+
+		// Initialise instance variables
+		this.outStream = outStream;
+		this.width = width;
+		this.height = height;
+		this.alpha = alpha;
+		this.compressionLevel = compressionLevel;
+		this.filterStrategy = filterStrategy;
+		progressListeners = new ArrayList<>();
+		bytesPerPixel = alpha ? 4 : 3;
+		rowLength = width * bytesPerPixel + 1;
+		row = new byte[rowLength];
+		prevRow = new byte[rowLength];
+		filteredRows = new byte[Filter.values().length][rowLength];
+		rowsPerBlock = Math.max(1, BLOCK_SIZE / rowLength);
+		numBlocks = (height + rowsPerBlock - 1) / rowsPerBlock;
+		checksum = new Adler32();
+		pendingBlocks = new ArrayDeque<>();
+		maxPendingBlocks = PENDING_BLOCKS_PER_THREAD * Math.max(1, ForkJoinPool.getCommonPoolParallelism());
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Class methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Compresses the specified filtered rows as a sequence of deflate blocks.  The sequence ends on a byte boundary,
+	 * and it is the end of the deflate stream only if the rows are the last rows of the image.
+	 */
+
+	private static byte[] compress(
+		byte[]	data,
+		int		length,
+		byte[]	dictionary,
+		int		dictionaryLength,
+		boolean	last,
+		int		compressionLevel,
+		boolean	filtered)
+	{
+		Deflater deflater = new Deflater(compressionLevel, true);
+		try
+		{
+			// Set the strategy of the deflater.  A new strategy takes effect at the next call to deflate(), so it is
+			// applied to empty input before the dictionary is set; applying it later would disturb the dictionary.
+			if (filtered)
+			{
+				deflater.setStrategy(Deflater.FILTERED);
+				deflater.deflate(new byte[0]);
+			}
+
+			// Set the dictionary
+			if (dictionary != null)
+			{
+				int offset = Math.max(0, dictionaryLength - DICTIONARY_SIZE);
+				deflater.setDictionary(dictionary, offset, dictionaryLength - offset);
+			}
+
+			// Compress the rows.  If they are not the last rows, flush the output to a byte boundary without ending the
+			// stream.
+			deflater.setInput(data, 0, length);
+			if (last)
+				deflater.finish();
+			ByteArrayOutputStream outStream = new ByteArrayOutputStream(length / 2 + 64);
+			byte[] buffer = new byte[COMPRESSION_BUFFER_SIZE];
+			int flush = last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+			while (true)
+			{
+				int outLength = deflater.deflate(buffer, 0, buffer.length, flush);
+				outStream.write(buffer, 0, outLength);
+				if (last ? deflater.finished() : (outLength < buffer.length))
+					break;
+			}
+			return outStream.toByteArray();
+		}
+		finally
+		{
+			deflater.end();
+		}
+	}
+
+	//------------------------------------------------------------------
+
+	private static int paethPredictor(
+		int	a,
+		int	b,
+		int	c)
+	{
+		int p = a + b - c;
+		int pa = Math.abs(p - a);
+		int pb = Math.abs(p - b);
+		int pc = Math.abs(p - c);
+		return ((pa <= pb) && (pa <= pc)) ? a : (pb <= pc) ? b : c;
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Instance methods
+////////////////////////////////////////////////////////////////////////
+
+	/**
+	 * Adds the specified listener, which will be notified of the fraction of the rows of the image that have been
+	 * written to the output stream.
+	 *
+	 * @param listener
+	 *          the listener that will be added.
+	 */
+
+	public void addProgressListener(
+		IProgressListener	listener)
+	{
+		progressListeners.add(listener);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Returns the number of rows of the image that have been written to this encoder.
+	 *
+	 * @return the number of rows of the image that have been written to this encoder.
+	 */
+
+	public int getNumRows()
+	{
+		return numRows;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes the next row of the image to this encoder.  The signature and header of the PNG file are written to the
+	 * output stream before the first row.
+	 *
+	 * @param  pixels
+	 *           an array that contains the pixels of the row as packed integers in the format of {@link
+	 *           java.awt.image.BufferedImage#TYPE_INT_ARGB TYPE_INT_ARGB}.  The alpha component is ignored if this
+	 *           encoder does not write it.
+	 * @param  offset
+	 *           the index of the first pixel of the row in {@code pixels}.
+	 * @throws IllegalStateException
+	 *           if all the rows of the image have been written.
+	 * @throws IOException
+	 *           if an error occurred when writing to the output stream.
+	 */
+
+	public void writeRow(
+		int[]	pixels,
+		int		offset)
+		throws IOException
+	{
+		// Test whether all rows have been written
+		if (numRows >= height)
+			throw new IllegalStateException("Too many rows");
+
+		// Write signature and header
+		if (numRows == 0)
+			writeHeader();
+
+		// Convert pixels to bytes; the first byte of the row is reserved for the type of filter
+		int j = 1;
+		for (int i = offset; i < offset + width; i++)
+		{
+			int pixel = pixels[i];
+			row[j++] = (byte)(pixel >> 16);
+			row[j++] = (byte)(pixel >> 8);
+			row[j++] = (byte)pixel;
+			if (alpha)
+				row[j++] = (byte)(pixel >> 24);
+		}
+
+		// Filter row and append it to the current block
+		if (block == null)
+			block = new byte[rowsPerBlock * rowLength];
+		byte[] filteredRow = filterRow();
+		System.arraycopy(filteredRow, 0, block, blockLength, rowLength);
+		checksum.update(filteredRow, 0, rowLength);
+		blockLength += rowLength;
+
+		// Swap current and previous rows
+		byte[] temp = prevRow;
+		prevRow = row;
+		row = temp;
+
+		// If block is full or this is the last row, submit block for compression
+		if ((++numRows == height) || (blockLength == block.length))
+			submitBlock(numRows == height);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Completes the encoding of the image: waits for the compression of the remaining blocks, writes them to the output
+	 * stream, and writes the end of the PNG file.  The output stream is not closed.
+	 *
+	 * @throws IllegalStateException
+	 *           if not all the rows of the image have been written.
+	 * @throws IOException
+	 *           if an error occurred when writing to the output stream.
+	 */
+
+	public void finish()
+		throws IOException
+	{
+		// Test whether all rows have been written
+		if (numRows < height)
+			throw new IllegalStateException("Too few rows");
+
+		// Write remaining blocks
+		while (!pendingBlocks.isEmpty())
+			writeBlock();
+
+		// Write end of file
+		writeChunk(IEND_CHUNK_TYPE);
+		outStream.flush();
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeHeader()
+		throws IOException
+	{
+		outStream.write(SIGNATURE);
+		byte[] header =
+		{
+			(byte)(width >>> 24), (byte)(width >>> 16), (byte)(width >>> 8), (byte)width,
+			(byte)(height >>> 24), (byte)(height >>> 16), (byte)(height >>> 8), (byte)height,
+			BIT_DEPTH,
+			(byte)(alpha ? COLOUR_TYPE_RGBA : COLOUR_TYPE_RGB),
+			0,	// compression method: deflate
+			0,	// filter method: adaptive
+			0	// interlace method: none
+		};
+		writeChunk(IHDR_CHUNK_TYPE, header);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Filters the current row with the filter strategy of this encoder, and returns an array that contains the type of
+	 * filter followed by the filtered row.
+	 */
+
+	private byte[] filterRow()
+	{
+		// Apply a single filter
+		if (filterStrategy.filter != null)
+			return filterRow(filterStrategy.filter);
+
+		// Apply each filter, and choose the one whose output has the least sum of absolute values as signed bytes
+		byte[] bestRow = null;
+		long minSum = Long.MAX_VALUE;
+		for (Filter filter : Filter.values())
+		{
+			byte[] filteredRow = filterRow(filter);
+			long sum = 0;
+			for (int i = 1; i < rowLength; i++)
+				sum += Math.abs(filteredRow[i]);
+			if (sum < minSum)
+			{
+				bestRow = filteredRow;
+				minSum = sum;
+			}
+		}
+		return bestRow;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Filters the current row with the specified filter, and returns an array that contains the type of filter followed
+	 * by the filtered row.
+	 */
+
+	private byte[] filterRow(
+		Filter	filter)
+	{
+		byte[] out = filteredRows[filter.ordinal()];
+		out[0] = (byte)filter.ordinal();
+		int bpp = bytesPerPixel;
+		switch (filter)
+		{
+			case NONE:
+				System.arraycopy(row, 1, out, 1, rowLength - 1);
+				break;
+
+			case SUB:
+				for (int i = 1; i < rowLength; i++)
+					out[i] = (byte)(row[i] - ((i > bpp) ? row[i - bpp] : 0));
+				break;
+
+			case UP:
+				for (int i = 1; i < rowLength; i++)
+					out[i] = (byte)(row[i] - prevRow[i]);
+				break;
+
+			case AVERAGE:
+				for (int i = 1; i < rowLength; i++)
+				{
+					int a = (i > bpp) ? row[i - bpp] & 0xFF : 0;
+					out[i] = (byte)(row[i] - ((a + (prevRow[i] & 0xFF)) >>> 1));
+				}
+				break;
+
+			case PAETH:
+				for (int i = 1; i < rowLength; i++)
+				{
+					int a = (i > bpp) ? row[i - bpp] & 0xFF : 0;
+					int c = (i > bpp) ? prevRow[i - bpp] & 0xFF : 0;
+					out[i] = (byte)(row[i] - paethPredictor(a, prevRow[i] & 0xFF, c));
+				}
+				break;
+		}
+		return out;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Submits the current block for compression in the common pool, after writing the oldest pending blocks to the
+	 * output stream if the number of pending blocks has reached its limit.
+	 */
+
+	private void submitBlock(
+		boolean	last)
+		throws IOException
+	{
+		// Limit the number of pending blocks
+		while (pendingBlocks.size() >= maxPendingBlocks)
+			writeBlock();
+
+		// Submit block.  The preceding block, which is not modified after it is submitted, is the dictionary.
+		byte[] data = block;
+		int length = blockLength;
+		byte[] dictionary = prevBlock;
+		int dictionaryLength = prevBlockLength;
+		int level = compressionLevel;
+		boolean filtered = (filterStrategy != FilterStrategy.NONE);
+		pendingBlocks.addLast(ForkJoinPool.commonPool().submit(() ->
+				compress(data, length, dictionary, dictionaryLength, last, level, filtered)));
+
+		// Start a new block
+		prevBlock = block;
+		prevBlockLength = blockLength;
+		block = null;
+		blockLength = 0;
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Waits for the compression of the oldest pending block, writes it to the output stream in an IDAT chunk, and
+	 * notifies the progress listeners.  The header of the zlib stream precedes the first block, and the checksum of the
+	 * zlib stream follows the last block.
+	 */
+
+	private void writeBlock()
+		throws IOException
+	{
+		// Wait for compression of block
+		byte[] data = pendingBlocks.removeFirst().join();
+
+		// Write block
+		boolean first = (numBlocksWritten++ == 0);
+		boolean last = (numBlocksWritten == numBlocks);
+		byte[] prefix = first ? getZlibHeader() : new byte[0];
+		byte[] suffix = new byte[0];
+		if (last)
+		{
+			int adler = (int)checksum.getValue();
+			suffix = new byte[] { (byte)(adler >>> 24), (byte)(adler >>> 16), (byte)(adler >>> 8), (byte)adler };
+		}
+		writeChunk(IDAT_CHUNK_TYPE, prefix, data, suffix);
+
+		// Notify listeners of progress
+		numRowsWritten = last ? height : Math.min(numRowsWritten + rowsPerBlock, height);
+		for (IProgressListener listener : progressListeners)
+			listener.setProgress((double)numRowsWritten / (double)height);
+	}
+
+	//------------------------------------------------------------------
+
+	private byte[] getZlibHeader()
+	{
+		int level = (compressionLevel < 2) ? 0 : (compressionLevel < 6) ? 1 : (compressionLevel == 6) ? 2 : 3;
+		int flags = level << 6;
+		flags += (31 - ((ZLIB_COMPRESSION_METHOD << 8) | flags) % 31) % 31;
+		return new byte[] { (byte)ZLIB_COMPRESSION_METHOD, (byte)flags };
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Writes a chunk of the specified type whose data is the concatenation of the specified parts.
+	 */
+
+	private void writeChunk(
+		byte[]		type,
+		byte[]...	parts)
+		throws IOException
+	{
+		int length = Arrays.stream(parts).mapToInt(part -> part.length).sum();
+		CRC32 crc = new CRC32();
+		crc.update(type);
+		for (byte[] part : parts)
+			crc.update(part);
+		int crcValue = (int)crc.getValue();
+
+		writeInt(length);
+		outStream.write(type);
+		for (byte[] part : parts)
+			outStream.write(part);
+		writeInt(crcValue);
+	}
+
+	//------------------------------------------------------------------
+
+	private void writeInt(
+		int	value)
+		throws IOException
+	{
+		outStream.write(new byte[] { (byte)(value >>> 24), (byte)(value >>> 16), (byte)(value >>> 8), (byte)value });
+	}
+
+	//------------------------------------------------------------------
+
+////////////////////////////////////////////////////////////////////////
+//  Enumerated types
+////////////////////////////////////////////////////////////////////////
+
+
+	// ENUMERATION: FILTER STRATEGIES
+
+
+	/**
+	 * This is an enumeration of the strategies by which a filter is chosen for each row of an image.
+	 */
+
+	public enum FilterStrategy
+		implements IStringKeyed
+	{
+
+	////////////////////////////////////////////////////////////////////
+	//  Constants
+	////////////////////////////////////////////////////////////////////
+
+		/**
+		 * Rows are not filtered.
+		 */
+		NONE
+		(
+			"none",
+			"None",
+			Filter.NONE
+		),
+
+		/**
+		 * Each byte is predicted by the corresponding byte of the pixel to its left.
+		 */
+		SUB
+		(
+			"sub",
+			"Sub",
+			Filter.SUB
+		),
+
+		/**
+		 * Each byte is predicted by the corresponding byte of the pixel above it.
+		 */
+		UP
+		(
+			"up",
+			"Up",
+			Filter.UP
+		),
+
+		/**
+		 * Each byte is predicted by the mean of the corresponding bytes of the pixels to its left and above it.
+		 */
+		AVERAGE
+		(
+			"average",
+			"Average",
+			Filter.AVERAGE
+		),
+
+		/**
+		 * Each byte is predicted by the Paeth predictor of the corresponding bytes of the pixels to its left, above it
+		 * and above and to the left of it.
+		 */
+		PAETH
+		(
+			"paeth",
+			"Paeth",
+			Filter.PAETH
+		),
+
+		/**
+		 * Each row is filtered with every filter, and the filter whose output has the least sum of absolute values,
+		 * taken as signed bytes, is chosen.
+		 */
+		ADAPTIVE
+		(
+			"adaptive",
+			"Adaptive",
+			null
+		);
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance variables
+	////////////////////////////////////////////////////////////////////
+
+		private	String	key;
+		private	String	text;
+		private	Filter	filter;
+
+	////////////////////////////////////////////////////////////////////
+	//  Constructors
+	////////////////////////////////////////////////////////////////////
+
+		private FilterStrategy(
+			String	key,
+			String	text,
+			Filter	filter)
+		{
+			this.key = key;
+			this.text = text;
+			this.filter = filter;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : IStringKeyed interface
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String getKey()
+		{
+			return key;
+		}
+
+		//--------------------------------------------------------------
+
+	////////////////////////////////////////////////////////////////////
+	//  Instance methods : overriding methods
+	////////////////////////////////////////////////////////////////////
+
+		@Override
+		public String toString()
+		{
+			return text;
+		}
+
+		//--------------------------------------------------------------
+
+	}
+
+	//==================================================================
+
+
+	// ENUMERATION: FILTERS
+
+
+	/**
+	 * This is an enumeration of the filters of a row.  The ordinal of a filter is its type in a PNG file.
+	 */
+
+	private enum Filter
+	{
+		NONE,
+		SUB,
+		UP,
+		AVERAGE,
+		PAETH
+	}
+
+	//==================================================================
+
+}
+
+//----------------------------------------------------------------------
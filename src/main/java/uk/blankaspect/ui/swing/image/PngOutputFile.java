@@ -18,16 +18,19 @@ package uk.blankaspect.ui.swing.image;
 // IMPORTS
 
 
+import java.awt.Rectangle;
+
+import java.awt.image.ColorModel;
+import java.awt.image.DataBuffer;
+import java.awt.image.DirectColorModel;
+import java.awt.image.Raster;
 import java.awt.image.RenderedImage;
+import java.awt.image.SinglePixelPackedSampleModel;
 
 import java.io.File;
 import java.io.IOException;
 import java.io.OutputStream;
 
-import java.util.Arrays;
-
-import javax.imageio.ImageIO;
-
 import uk.blankaspect.common.exception.AppException;
 import uk.blankaspect.common.exception.FileException;
 import uk.blankaspect.common.exception.TaskCancelledException;
@@ -50,13 +53,16 @@ public class PngOutputFile
 //  Constants
 ////////////////////////////////////////////////////////////////////////
 
-	private static final	String	PNG_FORMAT_NAME	= "png";
+	/** The maximum number of pixels in a strip of rows that is read from an image. */
+	private static final	int		MAX_STRIP_AREA	= 1 << 20;
 
 ////////////////////////////////////////////////////////////////////////
 //  Instance variables
 ////////////////////////////////////////////////////////////////////////
 
-	private	RenderedImage	image;
+	private	RenderedImage				image;
+	private	int							compressionLevel;
+	private	PngEncoder.FilterStrategy	filterStrategy;
 
 ////////////////////////////////////////////////////////////////////////
 //  Constructors
@@ -65,9 +71,37 @@ public class PngOutputFile
 	public PngOutputFile(
 		File			file,
 		RenderedImage	image)
+	{
+		this(file, image, PngEncoder.DEFAULT_COMPRESSION_LEVEL, PngEncoder.FilterStrategy.ADAPTIVE);
+	}
+
+	//------------------------------------------------------------------
+
+	/**
+	 * Creates a new instance of a PNG file to which the specified image will be written with the specified compression
+	 * level and filter strategy.
+	 *
+	 * @param file
+	 *          the file to which the image will be written.
+	 * @param image
+	 *          the image that will be written.
+	 * @param compressionLevel
+	 *          the level of compression, from {@link PngEncoder#MIN_COMPRESSION_LEVEL} (no compression) to {@link
+	 *          PngEncoder#MAX_COMPRESSION_LEVEL} (best compression).
+	 * @param filterStrategy
+	 *          the strategy by which a filter is chosen for each row of the image.
+	 */
+
+	public PngOutputFile(
+		File						file,
+		RenderedImage				image,
+		int							compressionLevel,
+		PngEncoder.FilterStrategy	filterStrategy)
 	{
 		super(file);
 		this.image = image;
+		this.compressionLevel = compressionLevel;
+		this.filterStrategy = filterStrategy;
 	}
 
 	//------------------------------------------------------------------
@@ -76,9 +110,16 @@ public class PngOutputFile
 //  Class methods
 ////////////////////////////////////////////////////////////////////////
 
+	/**
+	 * Returns {@code true} if PNG files can be written.  PNG files are written with {@link PngEncoder}, which does not
+	 * depend on the image writers of the Java implementation, so this method always returns {@code true}.
+	 *
+	 * @return {@code true}.
+	 */
+
 	public static boolean canWrite()
 	{
-		return Arrays.stream(ImageIO.getWriterFormatNames()).anyMatch(PNG_FORMAT_NAME::equals);
+		return true;
 	}
 
 	//------------------------------------------------------------------
@@ -104,6 +145,26 @@ public class PngOutputFile
 
 	//------------------------------------------------------------------
 
+	/**
+	 * Returns {@code true} if the pixels of the specified image are stored as integers in the format of {@link
+	 * java.awt.image.BufferedImage#TYPE_INT_RGB TYPE_INT_RGB} or {@link java.awt.image.BufferedImage#TYPE_INT_ARGB
+	 * TYPE_INT_ARGB}, so that a row of pixels can be read from a raster of the image without conversion.
+	 */
+
+	private static boolean isIntRgb(
+		RenderedImage	image)
+	{
+		return (image.getColorModel() instanceof DirectColorModel colourModel)
+				&& (image.getSampleModel() instanceof SinglePixelPackedSampleModel)
+				&& (colourModel.getTransferType() == DataBuffer.TYPE_INT)
+				&& colourModel.getColorSpace().isCS_sRGB() && !colourModel.isAlphaPremultiplied()
+				&& (colourModel.getRedMask() == 0x00FF0000) && (colourModel.getGreenMask() == 0x0000FF00)
+				&& (colourModel.getBlueMask() == 0x000000FF)
+				&& ((colourModel.getAlphaMask() == 0) || (colourModel.getAlphaMask() == 0xFF000000));
+	}
+
+	//------------------------------------------------------------------
+
 ////////////////////////////////////////////////////////////////////////
 //  Instance methods : overriding methods
 ////////////////////////////////////////////////////////////////////////
@@ -120,20 +181,58 @@ public class PngOutputFile
 				throw new TaskCancelledException();
 		}
 
-		// Write data to output stream
+		// Create encoder; it notifies the monitors of progress as rows are written to the output stream
+		int width = image.getWidth();
+		int height = image.getHeight();
+		ColorModel colourModel = image.getColorModel();
+		PngEncoder encoder = new PngEncoder(outStream, width, height, colourModel.hasAlpha(), compressionLevel,
+											filterStrategy);
+		for (IProgressListener listener : progressListeners)
+			encoder.addProgressListener(listener);
+
+		// Write the rows of the image to the encoder, reading them from the image in strips, so that the image is
+		// never copied in full.  An image that is rendered on demand, one tile at a time, is rendered in the order of
+		// its rows.
 		try
 		{
-			if (!ImageIO.write(image, PNG_FORMAT_NAME, outStream))
-				throw new AppException(ErrorId.PNG_OUTPUT_NOT_SUPPORTED);
+			boolean intRgb = isIntRgb(image);
+			int stripHeight = Math.max(1, MAX_STRIP_AREA / width);
+			int[] pixels = new int[width];
+			for (int y = 0; y < height; y += stripHeight)
+			{
+				// Test whether task has been cancelled by a monitor
+				for (IProgressListener listener : progressListeners)
+				{
+					if (listener.isTaskCancelled())
+						throw new TaskCancelledException();
+				}
+
+				// Write the rows of the strip
+				Raster strip = image.getData(new Rectangle(image.getMinX(), image.getMinY() + y, width,
+														   Math.min(stripHeight, height - y)));
+				for (int i = 0; i < strip.getHeight(); i++)
+				{
+					int rowY = strip.getMinY() + i;
+					if (intRgb)
+						strip.getDataElements(strip.getMinX(), rowY, width, 1, pixels);
+					else
+					{
+						Object data = null;
+						for (int x = 0; x < width; x++)
+						{
+							data = strip.getDataElements(strip.getMinX() + x, rowY, data);
+							pixels[x] = colourModel.getRGB(data);
+						}
+					}
+					encoder.writeRow(pixels, 0);
+				}
+			}
+			encoder.finish();
 		}
 		catch (IOException e)
 		{
 			throw new FileException(ErrorId.ERROR_WRITING_FILE, file, e);
 		}
-
-		// Notify monitor of progress
-		for (IProgressListener listener : progressListeners)
-			listener.setProgress(1.0);
 	}
 
 	//------------------------------------------------------------------
@@ -155,10 +254,7 @@ public class PngOutputFile
 	////////////////////////////////////////////////////////////////////
 
 		ERROR_WRITING_FILE
-		("An error occurred when writing the file."),
-
-		PNG_OUTPUT_NOT_SUPPORTED
-		("This implementation of Java does not support the writing of PNG files.");
+		("An error occurred when writing the file.");
 
 	////////////////////////////////////////////////////////////////////
 	//  Instance variables